@@ -0,0 +1,84 @@
+package structure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Path length of a stored tree against an embedded H2 database:
+ * one query on the closure table, on-demand reads through LazyTree,
+ * or a full load answered in memory (the ITreeLoader default)
+ * saveWithClosure shows what keeping the closure table costs a save
+ * The closure table grows with n * height, so sizes stay moderate
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ClosureTableBenchmark {
+    private static final String TREE_NAME = "bench";
+
+    @Param({"BALANCED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private EmbeddedTreeDatabase database;
+    private TreeSaverDB saver;
+    private TreeBuilderDB loader;
+    private TreeNode[] nodes;
+    private String nodeX;
+    private String nodeY;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new EmbeddedTreeDatabase();
+        saver = new TreeSaverDB(database.pool);
+        saver.setMaintainClosureTable(true);
+        loader = new TreeBuilderDB(database.pool, new MessageController());
+        nodes = TreeShapes.build(shape, size);
+        saver.saveTree(TREE_NAME, nodes[0]);
+        nodeX = TreeShapes.nameOf(size - 1);
+        nodeY = TreeShapes.nameOf(size - 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public int closurePathLength() throws Exception {
+        return loader.queryPathLength(TREE_NAME, nodeX, nodeY);
+    }
+
+    @Benchmark
+    public int lazyPathLength() throws Exception {
+        return loader.openLazyTree(TREE_NAME).calculatePathLength(nodeX, nodeY);
+    }
+
+    @Benchmark
+    public int loadAndQuery() throws Exception {
+        TreeNode root = loader.loadTree(TREE_NAME);
+        return new LcaIndex(root).pathLength(nodeX, nodeY);
+    }
+
+    @Benchmark
+    public void saveWithClosure() throws Exception {
+        saver.saveTree(TREE_NAME, nodes[0]);
+    }
+}
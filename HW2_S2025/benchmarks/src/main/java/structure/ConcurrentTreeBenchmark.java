@@ -0,0 +1,75 @@
+package structure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reader throughput of ConcurrentTree while one thread keeps writing
+ * Compare the reader score across -tg 1,1 / 2,1 / 4,1 ... to see how
+ * queries scale with reader threads; the writer publishes a new version
+ * per weight update
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentTreeBenchmark {
+    private static final int QUERY_NAMES = 4096;
+
+    @Param({"BALANCED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private ConcurrentTree tree;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new ConcurrentTree("bench", null, null, null);
+        tree.replaceRoot(TreeShapes.build(shape, size)[0]);
+        names = TreeShapes.queryNames(size, QUERY_NAMES);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = 0;
+
+        String nextName(String[] names) {
+            String name = names[next];
+            next = (next + 1) & (QUERY_NAMES - 1);
+            return name;
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public int reader(Cursor cursor) {
+        ConcurrentTree.Version version = tree.current();
+        return version.calculatePathLength(cursor.nextName(names), cursor.nextName(names));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public boolean writer(Cursor cursor) {
+        return tree.updateWeight(cursor.nextName(names), cursor.next);
+    }
+}
@@ -0,0 +1,56 @@
+package structure;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database with the world.tree and world.tree_closure tables of treeDB.sql
+ * Runs in MySQL compatibility mode, so TreeBuilderDB and TreeSaverDB
+ * use their normal SQL against it
+ */
+final class EmbeddedTreeDatabase implements AutoCloseable {
+    private static final AtomicInteger DATABASE_COUNT = new AtomicInteger();
+
+    final ConnectionPool pool;
+
+    EmbeddedTreeDatabase() throws SQLException {
+        String url = "jdbc:h2:mem:bench" + DATABASE_COUNT.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 4, 30000);
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE SCHEMA world");
+            stmt.execute("CREATE TABLE world.tree ("
+                    + "treeName varchar(10) NOT NULL, "
+                    + "nodename varchar(10) NOT NULL, "
+                    + "weight int DEFAULT NULL, "
+                    + "leftp varchar(10) DEFAULT NULL, "
+                    + "rightp varchar(10) DEFAULT NULL, "
+                    + "PRIMARY KEY (nodename, treeName))");
+            // Parent lookups of LazyTree, as in treeDB.sql
+            stmt.execute("CREATE INDEX idx_tree_leftp ON world.tree (leftp, treeName)");
+            stmt.execute("CREATE INDEX idx_tree_rightp ON world.tree (rightp, treeName)");
+            stmt.execute("CREATE TABLE world.tree_closure ("
+                    + "treeName varchar(10) NOT NULL, "
+                    + "ancestor varchar(10) NOT NULL, "
+                    + "descendant varchar(10) NOT NULL, "
+                    + "depth int NOT NULL, "
+                    + "PRIMARY KEY (descendant, ancestor, treeName))");
+            stmt.execute("CREATE INDEX idx_tree_closure_tree ON world.tree_closure (treeName)");
+        }
+    }
+
+    /**
+     * Drops the database (it lives until the last connection closes it)
+     */
+    @Override
+    public void close() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            pool.close();
+        }
+    }
+}
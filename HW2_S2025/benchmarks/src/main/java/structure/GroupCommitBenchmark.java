@@ -0,0 +1,97 @@
+package structure;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Burst of concurrent saves against an embedded H2 database: each thread
+ * saves its own share of "trees" small trees, directly through TreeSaverDB
+ * (one transaction per save) or through GroupCommitTreeSaver
+ * Threads never share a tree: direct saves of one tree from two
+ * transactions can both find no rows to delete and then collide on insert
+ * The commits per save of the grouped saver are printed after each trial
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(GroupCommitBenchmark.THREADS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GroupCommitBenchmark {
+    static final int THREADS = 8;
+
+    @Param({"100"})
+    public int size;
+
+    @Param({"8", "64"})
+    public int trees;
+
+    @Param({"2"})
+    public long flushIntervalMillis;
+
+    private EmbeddedTreeDatabase database;
+    private TreeSaverDB saver;
+    private GroupCommitTreeSaver groupSaver;
+    private TreeNode root;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Trees of one benchmark thread: names thread, thread + 8, thread + 16, ...
+     */
+    @State(Scope.Thread)
+    public static class ThreadTrees {
+        int thread = -1;
+        int saves;
+
+        String next(GroupCommitBenchmark benchmark) {
+            if (thread < 0) {
+                thread = benchmark.threadCount.getAndIncrement();
+            }
+            int perThread = Math.max(1, benchmark.trees / THREADS);
+            return "T" + (thread + THREADS * (saves++ % perThread));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new EmbeddedTreeDatabase();
+        saver = new TreeSaverDB(database.pool);
+        groupSaver = new GroupCommitTreeSaver(saver, flushIntervalMillis, GroupCommitTreeSaver.DEFAULT_MAX_BATCH_TREES);
+        root = TreeShapes.build(TreeShape.RANDOM, size)[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        groupSaver.close();
+        if (groupSaver.getSaveCount() > 0) {
+            System.out.printf("%n%.3f commits per save%n",
+                    groupSaver.getFlushCount() / (double) groupSaver.getSaveCount());
+        }
+        database.close();
+    }
+
+    @Benchmark
+    public void saveDirect(ThreadTrees threadTrees) throws Exception {
+        saver.saveTree(threadTrees.next(this), root);
+    }
+
+    @Benchmark
+    public void saveGrouped(ThreadTrees threadTrees) throws Exception {
+        groupSaver.saveTree(threadTrees.next(this), root);
+    }
+}
@@ -0,0 +1,83 @@
+package structure;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saves and loads through LogTreeStore on the local disk
+ * saveConcurrent runs four savers, whose fsyncs are shared (group commit);
+ * the number of fsyncs per save is printed at the end of each trial
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LogTreeStoreBenchmark {
+    private static final String TREE_NAME = "bench";
+
+    @Param({"BALANCED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Path folder;
+    private LogTreeStore store;
+    private TreeNode root;
+    private long saves;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("treelog");
+        store = new LogTreeStore(folder.resolve("trees.log"));
+        root = TreeShapes.build(shape, size)[0];
+        store.saveTree(TREE_NAME, root);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%n%.3f fsyncs per save, %d compactions%n",
+                store.getSyncCount() / (double) Math.max(1, saves), store.getCompactionCount());
+        store.close();
+        Files.deleteIfExists(folder.resolve("trees.log.compact"));
+        Files.deleteIfExists(folder.resolve("trees.log"));
+        Files.delete(folder);
+    }
+
+    @Benchmark
+    public void save() throws Exception {
+        store.saveTree(TREE_NAME, root);
+        saves++;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void saveConcurrent() throws Exception {
+        store.saveTree(TREE_NAME + Thread.currentThread().getId() % 4, root);
+        synchronized (this) {
+            saves++;
+        }
+    }
+
+    @Benchmark
+    public TreeNode load() throws Exception {
+        return store.loadTree(TREE_NAME);
+    }
+}
@@ -0,0 +1,57 @@
+package structure;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode of the TreeCodec binary form, in memory
+ * The encoded size per node is printed once per trial
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreeCodecBenchmark {
+    @Param({"BALANCED", "SKEWED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private TreeNode root;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = TreeShapes.build(shape, size)[0];
+        encoded = TreeCodec.encode(root);
+        System.out.printf("%n%d bytes, %.2f bytes per node%n", encoded.length, encoded.length / (double) size);
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length);
+        TreeCodec.encode(root, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public TreeNode decode() throws Exception {
+        return TreeCodec.decode(new ByteArrayInputStream(encoded));
+    }
+}
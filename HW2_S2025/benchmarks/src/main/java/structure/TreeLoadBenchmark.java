@@ -0,0 +1,79 @@
+package structure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row-to-node build of TreeBuilderDB.loadTree without the database:
+ * feeds the rows a query would return into TreeRowAssembler
+ * Rows come in preorder (parents first) or reversed (every child link
+ * is a deferred fix-up), the two extremes of an unordered result set
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class TreeLoadBenchmark {
+    @Param({"BALANCED", "SKEWED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean parentsFirst;
+
+    private String[] rowNames;
+    private int[] rowWeights;
+    private String[] rowLefts;
+    private String[] rowRights;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TreeNode[] nodes = TreeShapes.build(shape, size);
+        rowNames = new String[size];
+        rowWeights = new int[size];
+        rowLefts = new String[size];
+        rowRights = new String[size];
+        // Creation order has every parent before its children
+        for (int i = 0; i < size; i++) {
+            int row = parentsFirst ? i : size - 1 - i;
+            TreeNode node = nodes[i];
+            rowNames[row] = node.nodeName;
+            rowWeights[row] = node.weight;
+            rowLefts[row] = node.left != null ? node.left.nodeName : null;
+            rowRights[row] = node.right != null ? node.right.nodeName : null;
+        }
+    }
+
+    @Benchmark
+    public TreeNode assembleRows() {
+        TreeRowAssembler assembler = new TreeRowAssembler();
+        for (int i = 0; i < rowNames.length; i++) {
+            assembler.addRow(rowNames[i], rowWeights[i], rowLefts[i], rowRights[i]);
+        }
+        return assembler.build();
+    }
+
+    @Benchmark
+    public CompactTree assembleCompactRows() {
+        CompactTree.Builder builder = new CompactTree.Builder();
+        for (int i = 0; i < rowNames.length; i++) {
+            builder.addNode(rowNames[i], rowWeights[i], rowLefts[i], rowRights[i]);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,114 @@
+package structure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Save and load through TreeSaverDB / TreeBuilderDB against an embedded
+ * H2 database
+ * Besides time per operation, the "rows" counter reports rows written
+ * or read per second
+ * insertChunkSize = 1 sends one row per statement, like the old batch path
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreePersistenceBenchmark {
+    private static final String TREE_NAME = "bench";
+
+    @Param({"BALANCED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"1", "1000"})
+    public int insertChunkSize;
+
+    private EmbeddedTreeDatabase database;
+    private TreeSaverDB saver;
+    private TreeSaverDB diffSaver;
+    private TreeBuilderDB loader;
+    private TreeNode[] nodes;
+
+    /**
+     * Rows moved per benchmark call, reported as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new EmbeddedTreeDatabase();
+        saver = new TreeSaverDB(database.pool);
+        saver.setInsertChunkSize(insertChunkSize);
+        diffSaver = new TreeSaverDB(database.pool);
+        diffSaver.setInsertChunkSize(insertChunkSize);
+        diffSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        loader = new TreeBuilderDB(database.pool, new MessageController());
+        nodes = TreeShapes.build(shape, size);
+        saver.saveTree(TREE_NAME, nodes[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public void saveReplace(RowCounter counter) throws Exception {
+        saver.saveTree(TREE_NAME, nodes[0]);
+        counter.rows += size;
+    }
+
+    @Benchmark
+    public void saveDiffOneWeight(RowCounter counter) throws Exception {
+        TreeNode changed = nodes[size / 2];
+        changed.weight++;
+        diffSaver.saveTree(TREE_NAME, nodes[0]);
+        counter.rows += 1;
+    }
+
+    @Benchmark
+    public TreeNode loadTree(RowCounter counter) throws Exception {
+        TreeNode root = loader.loadTree(TREE_NAME);
+        counter.rows += size;
+        return root;
+    }
+
+    /**
+     * Path length between the two last created nodes through a fresh
+     * LazyTree (cold cache): reads only their region instead of the tree
+     */
+    @Benchmark
+    public int lazyPathLength(RowCounter counter) throws Exception {
+        LazyTree lazyTree = loader.openLazyTree(TREE_NAME);
+        int pathLength = lazyTree.calculatePathLength(TreeShapes.nameOf(size - 1), TreeShapes.nameOf(size - 2));
+        counter.rows += lazyTree.getCachedNodeCount();
+        return pathLength;
+    }
+}
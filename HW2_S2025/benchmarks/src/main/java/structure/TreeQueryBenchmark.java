@@ -0,0 +1,117 @@
+package structure;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * In-memory query benchmarks on generated trees
+ * Each call queries the next name from a fixed random sequence,
+ * so all node depths are covered
+ * Trees of 10^7 nodes need a few GB of heap (see jvmArgsAppend)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g", "-Xss8m"})
+public class TreeQueryBenchmark {
+    private static final int QUERY_NAMES = 4096;
+
+    @Param({"BALANCED", "SKEWED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Tree tree;
+    private String[] names;
+    private int next = 0;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new Tree("bench", null, null, null);
+        tree.setRoot(TreeShapes.build(shape, size)[0]);
+        names = TreeShapes.queryNames(size, QUERY_NAMES);
+        // Build the lazy name index outside the measurement
+        tree.findNode(tree.getRoot(), names[0]);
+
+        // inorderTraversal prints every node; keep the output out of the results
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private String nextName() {
+        String name = names[next];
+        next = (next + 1) & (QUERY_NAMES - 1);
+        return name;
+    }
+
+    @Benchmark
+    public TreeNode findNode() {
+        return tree.findNode(tree.getRoot(), nextName());
+    }
+
+    @Benchmark
+    public TreeNode findLCA() {
+        return tree.findLCA(tree.getRoot(), nextName(), nextName());
+    }
+
+    @Benchmark
+    public int calculatePathLength() {
+        return tree.calculatePathLength(nextName(), nextName());
+    }
+
+    /**
+     * The first call builds the LCA and path weight indexes (during warmup)
+     */
+    @Benchmark
+    public long calculateWeightedPathLength() {
+        return tree.calculateWeightedPathLength(nextName(), nextName());
+    }
+
+    @Benchmark
+    public long findPathMaxWeight() {
+        return tree.findPathMaxWeight(nextName(), nextName());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void inorderTraversal() {
+        tree.inorderTraversal();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeAggregate aggregate() {
+        return tree.aggregate();
+    }
+}
@@ -0,0 +1,13 @@
+package structure;
+
+/**
+ * Shapes of the generated benchmark trees (see TreeShapes)
+ */
+public enum TreeShape {
+    /** Complete binary tree, height log2(n) */
+    BALANCED,
+    /** Left-leaning chain, height n - 1 */
+    SKEWED,
+    /** Each node hangs under a random node with a free slot, expected height O(log n) */
+    RANDOM
+}
@@ -0,0 +1,83 @@
+package structure;
+
+import java.util.Random;
+
+/**
+ * Generates benchmark trees of a given shape and size
+ * Nodes are named N0..N(size-1) in creation order; N0 is the root
+ * Generation is iterative, so skewed trees of any size can be built
+ */
+final class TreeShapes {
+    static final long SEED = 42;
+
+    private TreeShapes() {
+    }
+
+    static String nameOf(int i) {
+        return "N" + i;
+    }
+
+    /**
+     * @return all nodes of the tree, indexed by creation order (nodes[0] is the root)
+     */
+    static TreeNode[] build(TreeShape shape, int size) {
+        TreeNode[] nodes = new TreeNode[size];
+        Random random = new Random(SEED);
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new TreeNode(nameOf(i), random.nextInt(100));
+        }
+        switch (shape) {
+            case BALANCED:
+                for (int i = 1; i < size; i++) {
+                    TreeNode parent = nodes[(i - 1) / 2];
+                    if (i % 2 == 1) {
+                        parent.left = nodes[i];
+                    } else {
+                        parent.right = nodes[i];
+                    }
+                }
+                break;
+            case SKEWED:
+                for (int i = 1; i < size; i++) {
+                    nodes[i - 1].left = nodes[i];
+                }
+                break;
+            case RANDOM:
+                // Nodes that still have a free child slot
+                int[] open = new int[size];
+                int openCount = 0;
+                if (size > 0) {
+                    open[openCount++] = 0;
+                }
+                for (int i = 1; i < size; i++) {
+                    int slot = random.nextInt(openCount);
+                    TreeNode parent = nodes[open[slot]];
+                    if (parent.left == null && (parent.right != null || random.nextBoolean())) {
+                        parent.left = nodes[i];
+                    } else {
+                        parent.right = nodes[i];
+                    }
+                    if (parent.left != null && parent.right != null) {
+                        open[slot] = open[--openCount];
+                    }
+                    open[openCount++] = i;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        return nodes;
+    }
+
+    /**
+     * Random node names to query, drawn with a fixed seed so runs are comparable
+     */
+    static String[] queryNames(int size, int count) {
+        Random random = new Random(SEED + 1);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = nameOf(random.nextInt(size));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,100 @@
+package structure;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a synchronous ITreeLoader/ITreeSaver (e.g. TreeBuilderDB and
+ * TreeSaverDB) on an executor and exposes them as CompletableFutures
+ * The executor is configurable: on JDK 21+ pass
+ * Executors.newVirtualThreadPerTaskExecutor() to get one cheap thread per
+ * call; the connection pool still bounds how many queries run at once
+ */
+public class AsyncTreeAdapter implements IAsyncTreeLoader, IAsyncTreeSaver {
+    // Same as the default ConnectionPool size, more threads would only wait for connections
+    static final int DEFAULT_THREADS = 10;
+    private static ExecutorService defaultExecutor;
+    
+    private final ITreeLoader loader;
+    private final ITreeSaver saver;
+    private final Executor executor;
+    
+    /**
+     * @param loader synchronous loader to run in the background
+     * @param saver synchronous saver to run in the background (can be null for loading only)
+     * @param executor executor the database calls run on
+     */
+    public AsyncTreeAdapter(ITreeLoader loader, ITreeSaver saver, Executor executor) {
+        this.loader = loader;
+        this.saver = saver;
+        this.executor = executor;
+    }
+    
+    /**
+     * Constructor using the shared default executor
+     */
+    public AsyncTreeAdapter(ITreeLoader loader, ITreeSaver saver) {
+        this(loader, saver, defaultExecutor());
+    }
+    
+    /**
+     * Returns the shared executor used when none is given:
+     * a fixed pool of daemon threads, so it never keeps the JVM alive
+     */
+    static synchronized Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newFixedThreadPool(DEFAULT_THREADS, task -> {
+                Thread thread = new Thread(task, "tree-db-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+    
+    @Override
+    public CompletableFuture<TreeNode> loadTreeAsync(String treeName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.loadTree(treeName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> treeExistsAsync(String treeName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.treeExists(treeName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Saves a copy of the tree taken when this method is called, so the
+     * caller may keep editing its nodes while the save runs
+     */
+    @Override
+    public CompletableFuture<Void> saveTreeAsync(String treeName, TreeNode root) {
+        if (saver == null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new UnsupportedOperationException("No saver was given to this adapter"));
+            return failed;
+        }
+        TreeNode snapshot = TreeNode.copyOf(root);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                saver.saveTree(treeName, snapshot);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
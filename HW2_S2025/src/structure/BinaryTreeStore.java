@@ -0,0 +1,97 @@
+package structure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+/**
+ * File implementation of ITreeLoader and ITreeSaver
+ * Keeps one TreeCodec file per tree in a directory, e.g. as a hot-standby
+ * copy of the database that Tree can load from without a server
+ * A save writes a temporary file and renames it over the old one, so a
+ * load sees either the old or the new tree, never a partial one
+ * Tree names are matched case-insensitively, like the database does
+ */
+public class BinaryTreeStore implements ITreeLoader, ITreeSaver {
+    static final String EXTENSION = ".tree";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+
+    /**
+     * @param directory directory holding the tree files (created if missing)
+     */
+    public BinaryTreeStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Loads a tree from its file
+     * @param treeName the name of the tree to load
+     * @return the root TreeNode or null if no tree is stored under the name
+     */
+    @Override
+    public TreeNode loadTree(String treeName) throws Exception {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(fileOf(treeName)), BUFFER_SIZE)) {
+            return TreeCodec.decode(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean treeExists(String treeName) throws Exception {
+        return Files.exists(fileOf(treeName));
+    }
+
+    /**
+     * Saves a tree, replacing the stored one
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree (null deletes the stored tree,
+     *             as an empty tree has no rows in the database)
+     */
+    @Override
+    public void saveTree(String treeName, TreeNode root) throws Exception {
+        Path file = fileOf(treeName);
+        if (root == null) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                TreeCodec.encode(root, out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name cannot be a file name
+     */
+    Path fileOf(String treeName) {
+        if (treeName == null || treeName.isEmpty() || treeName.startsWith(".")
+                || treeName.indexOf('/') >= 0 || treeName.indexOf('\\') >= 0 || treeName.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Invalid tree name: " + treeName);
+        }
+        return directory.resolve(treeName.toLowerCase(Locale.ROOT) + EXTENSION);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,330 @@
+package structure;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache in front of an ITreeLoader
+ * Keeps the most recently used trees in memory (size bounded LRU with a
+ * time to live), keyed by tree name case-insensitively, like the database
+ * Also implements ITreeSaver: saves go to the wrapped saver and invalidate
+ * the cached tree, so a load after a save never returns the old tree
+ * Callers always get their own copy of a cached tree, because Tree edits
+ * the nodes it loaded (setLeftChild, index fields)
+ */
+public class CachingTreeLoader implements ITreeLoader, ITreeSaver {
+    private final ITreeLoader loader;
+    private final ITreeSaver saver;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedTree> cache;
+    // Bumped on every invalidation so a load that raced with a save is not cached
+    private long generation = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private volatile ITreeMetrics metrics = ITreeMetrics.NOOP;
+
+    /**
+     * @param loader loader to read trees from on a cache miss
+     * @param saver saver that writes are passed to (can be null for a read-only cache)
+     * @param maxEntries maximum number of cached trees
+     * @param ttlMillis how long a cached tree is served, 0 or less to keep until evicted
+     */
+    public CachingTreeLoader(ITreeLoader loader, ITreeSaver saver, int maxEntries, long ttlMillis) {
+        this(loader, saver, maxEntries, ttlMillis, System::nanoTime);
+    }
+
+    /**
+     * Constructor with an injectable clock (nanoseconds), used in testing
+     */
+    CachingTreeLoader(ITreeLoader loader, ITreeSaver saver, int maxEntries, long ttlMillis,
+                      LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.loader = loader;
+        this.saver = saver;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = (ttlMillis > 0) ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        this.clock = clock;
+        // Access order: iteration starts at the least recently used tree
+        this.cache = new LinkedHashMap<String, CachedTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTree> eldest) {
+                return size() > CachingTreeLoader.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the cached tree, loading it on a miss
+     * @param treeName the name of the tree to load
+     * @return the root TreeNode or null if the tree is empty
+     */
+    @Override
+    public TreeNode loadTree(String treeName) throws Exception {
+        ITreeMetrics metrics = this.metrics;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        long loadGeneration;
+        synchronized (this) {
+            CachedTree cached = getFresh(treeName);
+            if (cached != null) {
+                hitCount++;
+                TreeNode copy = TreeNode.copyOf(cached.root);
+                if (metrics.isEnabled()) {
+                    metrics.record(ITreeMetrics.Operation.CACHE_HIT, treeName, System.nanoTime() - start);
+                }
+                return copy;
+            }
+            missCount++;
+            loadGeneration = generation;
+        }
+
+        // Load outside the lock so other trees are served meanwhile
+        TreeNode loaded = loader.loadTree(treeName);
+        TreeNode cachedCopy = TreeNode.copyOf(loaded);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                cache.put(key(treeName), new CachedTree(cachedCopy, clock.getAsLong()));
+            }
+        }
+        if (metrics.isEnabled()) {
+            metrics.record(ITreeMetrics.Operation.CACHE_MISS, treeName, System.nanoTime() - start);
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns cached trees and loads all the others with one bulk call
+     * to the wrapped loader
+     * @param treeNames names of the trees to load
+     * @return copy of each tree per requested name, in request order
+     */
+    @Override
+    public Map<String, TreeNode> loadTrees(Collection<String> treeNames) throws Exception {
+        Map<String, TreeNode> trees = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (String treeName : new LinkedHashSet<>(treeNames)) {
+                CachedTree cached = getFresh(treeName);
+                if (cached != null) {
+                    hitCount++;
+                    trees.put(treeName, TreeNode.copyOf(cached.root));
+                } else {
+                    missCount++;
+                    trees.put(treeName, null);
+                    missing.add(treeName);
+                }
+            }
+            loadGeneration = generation;
+        }
+        if (missing.isEmpty()) {
+            return trees;
+        }
+
+        ITreeMetrics metrics = this.metrics;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Map<String, TreeNode> loaded = loader.loadTrees(missing);
+        synchronized (this) {
+            for (String treeName : missing) {
+                TreeNode root = loaded.get(treeName);
+                trees.put(treeName, root);
+                if (generation == loadGeneration) {
+                    cache.put(key(treeName), new CachedTree(TreeNode.copyOf(root), clock.getAsLong()));
+                }
+            }
+        }
+        if (metrics.isEnabled()) {
+            // One bulk load serves all misses
+            metrics.record(ITreeMetrics.Operation.CACHE_MISS, null, System.nanoTime() - start);
+        }
+        return trees;
+    }
+
+    /**
+     * Answers from the cache when the tree is cached, otherwise asks the loader
+     * An empty tree has no rows, so a cached empty tree does not exist
+     * @param treeName the name to check
+     * @return true if exists, false otherwise
+     */
+    @Override
+    public boolean treeExists(String treeName) throws Exception {
+        synchronized (this) {
+            CachedTree cached = getFresh(treeName);
+            if (cached != null) {
+                hitCount++;
+                return cached.root != null;
+            }
+            missCount++;
+        }
+        return loader.treeExists(treeName);
+    }
+
+    /**
+     * Answers from the cached tree when there is one, otherwise passes the
+     * query to the loader (which may answer it without loading the tree)
+     * Nothing is cached by a query
+     * @param treeName the name of the tree
+     * @return number of edges or -1 if the tree or a node was not found
+     */
+    @Override
+    public int queryPathLength(String treeName, String nodeX, String nodeY) throws Exception {
+        CachedTree cached;
+        synchronized (this) {
+            cached = getFresh(treeName);
+            if (cached == null) {
+                missCount++;
+            } else {
+                hitCount++;
+            }
+        }
+        if (cached == null) {
+            return loader.queryPathLength(treeName, nodeX, nodeY);
+        }
+        // Cached trees are never edited, so they can be read outside the lock
+        return (cached.root == null) ? -1 : cached.lcaIndex().pathLength(nodeX, nodeY);
+    }
+
+    /**
+     * Saves through the wrapped saver and invalidates the cached tree
+     * The tree is invalidated even if the save fails, since the stored
+     * state is then unknown
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree to save
+     */
+    @Override
+    public void saveTree(String treeName, TreeNode root) throws Exception {
+        if (saver == null) {
+            throw new UnsupportedOperationException("No saver was given to this cache");
+        }
+        try {
+            saver.saveTree(treeName, root);
+        } finally {
+            invalidate(treeName);
+        }
+    }
+
+    /**
+     * Saves the trees with one call to the wrapped saver (so a database
+     * saver writes them in one transaction) and invalidates them
+     * @param trees root per tree name
+     */
+    @Override
+    public void saveTrees(Map<String, TreeNode> trees) throws Exception {
+        if (saver == null) {
+            throw new UnsupportedOperationException("No saver was given to this cache");
+        }
+        try {
+            saver.saveTrees(trees);
+        } finally {
+            for (String treeName : trees.keySet()) {
+                invalidate(treeName);
+            }
+        }
+    }
+
+    /**
+     * Drops one tree from the cache
+     */
+    public synchronized void invalidate(String treeName) {
+        generation++;
+        cache.remove(key(treeName));
+    }
+
+    /**
+     * Drops every cached tree
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.clear();
+    }
+
+    /**
+     * Returns the cached entry if present and not expired (expired ones are removed)
+     */
+    private CachedTree getFresh(String treeName) {
+        String key = key(treeName);
+        CachedTree cached = cache.get(key);
+        if (cached != null && isExpired(cached, clock.getAsLong())) {
+            cache.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private static String key(String treeName) {
+        return treeName.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isExpired(CachedTree cached, long now) {
+        return ttlNanos > 0 && now - cached.loadedAt >= ttlNanos;
+    }
+
+    /**
+     * Removes expired trees (they are otherwise removed when next looked up)
+     */
+    public synchronized void evictExpired() {
+        long now = clock.getAsLong();
+        Iterator<CachedTree> it = cache.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Sets where single-tree hit/miss timings go, a bulk load is one
+     * CACHE_MISS (ITreeMetrics.NOOP, the default, disables them)
+     */
+    public void setMetrics(ITreeMetrics metrics) {
+        this.metrics = (metrics == null) ? ITreeMetrics.NOOP : metrics;
+    }
+    
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private static class CachedTree {
+        final TreeNode root;
+        final long loadedAt;
+        // Built by the first path query, then shared by later ones
+        private volatile LcaIndex lcaIndex;
+
+        CachedTree(TreeNode root, long loadedAt) {
+            this.root = root;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * Returns the LCA index of the cached tree (root must not be null)
+         * Two first queries may both build it; either index is correct
+         */
+        LcaIndex lcaIndex() {
+            LcaIndex index = lcaIndex;
+            if (index == null) {
+                index = new LcaIndex(root);
+                lcaIndex = index;
+            }
+            return index;
+        }
+    }
+}
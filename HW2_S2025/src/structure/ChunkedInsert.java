@@ -0,0 +1,131 @@
+package structure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Bulk writer for tree rows using multi-row INSERT statements
+ * Rows are buffered and sent chunkSize at a time as
+ * INSERT ... VALUES (...),(...),... so a chunk costs one round trip
+ * The full-chunk statement is prepared once and reused; the last,
+ * shorter chunk gets its own statement
+ */
+class ChunkedInsert implements AutoCloseable {
+    static final int COLUMNS = 5;
+    // MySQL allows at most 65535 placeholders per statement
+    static final int MAX_CHUNK_SIZE = 65535 / COLUMNS;
+
+    private final Connection connection;
+    private final String treeName;
+    private final int chunkSize;
+    private final String[] names;
+    private final int[] weights;
+    private final String[] leftNames;
+    private final String[] rightNames;
+    private PreparedStatement fullChunkStmt;
+    private int pending = 0;
+    private int inserted = 0;
+
+    /**
+     * @param connection connection to write with (transaction is up to the caller)
+     * @param treeName tree the rows belong to
+     * @param chunkSize rows per INSERT statement, 1 to MAX_CHUNK_SIZE
+     */
+    ChunkedInsert(Connection connection, String treeName, int chunkSize) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+        this.connection = connection;
+        this.treeName = treeName;
+        this.chunkSize = chunkSize;
+        this.names = new String[chunkSize];
+        this.weights = new int[chunkSize];
+        this.leftNames = new String[chunkSize];
+        this.rightNames = new String[chunkSize];
+    }
+
+    /**
+     * Buffers one row, sending a full chunk when the buffer is full
+     */
+    void add(String nodeName, int weight, String leftName, String rightName) throws SQLException {
+        names[pending] = nodeName;
+        weights[pending] = weight;
+        leftNames[pending] = leftName;
+        rightNames[pending] = rightName;
+        pending++;
+        if (pending == chunkSize) {
+            if (fullChunkStmt == null) {
+                fullChunkStmt = connection.prepareStatement(insertSql(chunkSize));
+            }
+            send(fullChunkStmt);
+        }
+    }
+
+    void add(TreeNode node) throws SQLException {
+        add(node.nodeName, node.weight,
+                node.left != null ? node.left.nodeName : null,
+                node.right != null ? node.right.nodeName : null);
+    }
+
+    /**
+     * Sends the rows still buffered
+     * @return number of rows inserted so far
+     */
+    int flush() throws SQLException {
+        if (pending > 0) {
+            try (PreparedStatement tailStmt = connection.prepareStatement(insertSql(pending))) {
+                send(tailStmt);
+            }
+        }
+        return inserted;
+    }
+
+    private void send(PreparedStatement stmt) throws SQLException {
+        int index = 1;
+        for (int i = 0; i < pending; i++) {
+            stmt.setString(index++, treeName);
+            stmt.setString(index++, names[i]);
+            stmt.setInt(index++, weights[i]);
+            setNullableString(stmt, index++, leftNames[i]);
+            setNullableString(stmt, index++, rightNames[i]);
+            names[i] = null;
+            leftNames[i] = null;
+            rightNames[i] = null;
+        }
+        stmt.executeUpdate();
+        inserted += pending;
+        pending = 0;
+    }
+
+    private static void setNullableString(PreparedStatement stmt, int index, String value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, Types.VARCHAR);
+        } else {
+            stmt.setString(index, value);
+        }
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(64 + rows * 18);
+        sql.append("INSERT INTO world.tree (treeName, nodename, weight, leftp, rightp) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Closes the reused statement; rows not flushed are dropped
+     */
+    @Override
+    public void close() throws SQLException {
+        if (fullChunkStmt != null) {
+            fullChunkStmt.close();
+        }
+    }
+}
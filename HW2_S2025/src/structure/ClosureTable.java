@@ -0,0 +1,217 @@
+package structure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Closure table of a stored tree: one (ancestor, descendant, depth) row
+ * for every node and each of its ancestors, itself included at depth 0
+ * (see world.tree_closure in treeDB.sql)
+ * The ancestor rows of two nodes give their nearest common ancestor and
+ * so the path length: a path query reads one row per ancestor instead of
+ * loading the whole tree
+ * Rows are only written by savers that maintain them, so a query checks
+ * each ancestor edge against world.tree and ignores rows that no longer
+ * match (see pathLength)
+ * A tree of n nodes has n + (sum of node depths) rows: about n log n for
+ * a balanced tree, but n^2 / 2 for a skewed one
+ */
+final class ClosureTable {
+    static final int COLUMNS = 4;
+    // MySQL allows at most 65535 placeholders per statement
+    static final int MAX_CHUNK_SIZE = 65535 / COLUMNS;
+
+    /**
+     * Ancestor rows of x and y, each with the world.tree row of the ancestor
+     * (NULLs if the node is no longer stored), nearest ancestor first
+     */
+    static final String CHAINS_QUERY = "SELECT c.descendant, c.ancestor, t.nodename, t.leftp, t.rightp"
+            + " FROM world.tree_closure c LEFT JOIN world.tree t ON t.treeName = c.treeName AND t.nodename = c.ancestor"
+            + " WHERE c.treeName = ? AND c.descendant IN (?, ?) ORDER BY c.depth";
+
+    static final String NODE_COUNT_QUERY = "SELECT COUNT(*) FROM world.tree WHERE treeName = ? AND nodename IN (?, ?)";
+
+    private ClosureTable() {
+    }
+
+    /**
+     * Replaces the closure rows of a tree with the rows of the tree under root
+     * Runs on the caller's connection, so it joins the caller's transaction
+     * @param root root of the tree (can be null to only delete)
+     * @param chunkSize rows per INSERT statement, 1 to MAX_CHUNK_SIZE
+     * @return number of rows inserted
+     */
+    static int rewrite(Connection connection, String treeName, TreeNode root, int chunkSize) throws SQLException {
+        try (PreparedStatement deleteStmt = connection.prepareStatement(
+                "DELETE FROM world.tree_closure WHERE treeName = ?")) {
+            deleteStmt.setString(1, treeName);
+            deleteStmt.executeUpdate();
+        }
+        if (root == null) {
+            return 0;
+        }
+
+        int rowsPerChunk = Math.min(chunkSize, MAX_CHUNK_SIZE);
+        List<Object[]> pending = new ArrayList<>(rowsPerChunk);
+        int inserted = 0;
+        PreparedStatement fullChunkStmt = null;
+        try {
+            // Iterative preorder; ancestors.get(d) is the node at depth d on the current path
+            List<String> ancestors = new ArrayList<>();
+            List<TreeNode> stack = new ArrayList<>();
+            List<Integer> depths = new ArrayList<>();
+            stack.add(root);
+            depths.add(0);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                TreeNode node = stack.remove(top);
+                int depth = depths.remove(top);
+                while (ancestors.size() > depth) {
+                    ancestors.remove(ancestors.size() - 1);
+                }
+                ancestors.add(node.nodeName);
+                for (int d = 0; d <= depth; d++) {
+                    pending.add(new Object[] {ancestors.get(d), node.nodeName, depth - d});
+                    if (pending.size() == rowsPerChunk) {
+                        if (fullChunkStmt == null) {
+                            fullChunkStmt = connection.prepareStatement(insertSql(rowsPerChunk));
+                        }
+                        inserted += send(fullChunkStmt, treeName, pending);
+                    }
+                }
+                if (node.right != null) {
+                    stack.add(node.right);
+                    depths.add(depth + 1);
+                }
+                if (node.left != null) {
+                    stack.add(node.left);
+                    depths.add(depth + 1);
+                }
+            }
+        } finally {
+            if (fullChunkStmt != null) {
+                fullChunkStmt.close();
+            }
+        }
+        if (!pending.isEmpty()) {
+            try (PreparedStatement tailStmt = connection.prepareStatement(insertSql(pending.size()))) {
+                inserted += send(tailStmt, treeName, pending);
+            }
+        }
+        return inserted;
+    }
+
+    private static int send(PreparedStatement stmt, String treeName, List<Object[]> rows) throws SQLException {
+        int index = 1;
+        for (Object[] row : rows) {
+            stmt.setString(index++, treeName);
+            stmt.setString(index++, (String) row[0]);
+            stmt.setString(index++, (String) row[1]);
+            stmt.setInt(index++, (Integer) row[2]);
+        }
+        stmt.executeUpdate();
+        int sent = rows.size();
+        rows.clear();
+        return sent;
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(80 + rows * 14);
+        sql.append("INSERT INTO world.tree_closure (treeName, ancestor, descendant, depth) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Answers a path length from the closure rows of x and y
+     * Every edge of both ancestor chains must still be a child link in
+     * world.tree; each node has one parent there, so a chain that passes is
+     * a true (possibly partial) ancestor path, and the first ancestor the
+     * chains share is the LCA even if the tree grew above the old root
+     * @return number of edges, or null if the rows cannot answer (a node has
+     *         no rows, the rows are stale, or the chains do not meet)
+     */
+    static Integer pathLength(Connection connection, String treeName, String nodeX, String nodeY) throws SQLException {
+        Map<String, List<String>> chains = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(CHAINS_QUERY)) {
+            stmt.setString(1, treeName);
+            stmt.setString(2, nodeX);
+            stmt.setString(3, nodeY);
+            try (ResultSet resultSet = stmt.executeQuery()) {
+                while (resultSet.next()) {
+                    List<String> chain = chains.computeIfAbsent(key(resultSet.getString(1)), k -> new ArrayList<>());
+                    String ancestor = resultSet.getString(2);
+                    if (resultSet.getString(3) == null) {
+                        return null; // the ancestor is no longer stored
+                    }
+                    if (!chain.isEmpty()
+                            && !isChildOf(chain.get(chain.size() - 1), resultSet.getString(4), resultSet.getString(5))) {
+                        return null; // the ancestor lost this child since the rows were written
+                    }
+                    chain.add(ancestor);
+                }
+            }
+        }
+        List<String> chainX = chains.get(key(nodeX));
+        List<String> chainY = chains.get(key(nodeY));
+        if (chainX == null || chainY == null) {
+            return null;
+        }
+        Map<String, Integer> depthsY = new HashMap<>();
+        for (int depth = 0; depth < chainY.size(); depth++) {
+            depthsY.put(key(chainY.get(depth)), depth);
+        }
+        for (int depth = 0; depth < chainX.size(); depth++) {
+            Integer depthY = depthsY.get(key(chainX.get(depth)));
+            if (depthY != null) {
+                return depth + depthY;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isChildOf(String child, String leftName, String rightName) {
+        return child.equalsIgnoreCase(leftName) || child.equalsIgnoreCase(rightName);
+    }
+
+    /**
+     * Names are matched case-insensitively, like the database does
+     */
+    private static String key(String nodeName) {
+        return nodeName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return true if the error is MySQL's "table doesn't exist"
+     */
+    static boolean isMissingTable(SQLException e) {
+        return "42S02".equals(e.getSQLState());
+    }
+
+    /**
+     * @return true if x or y is not stored in world.tree
+     */
+    static boolean isNodeMissing(Connection connection, String treeName, String nodeX, String nodeY) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(NODE_COUNT_QUERY)) {
+            stmt.setString(1, treeName);
+            stmt.setString(2, nodeX);
+            stmt.setString(3, nodeY);
+            try (ResultSet resultSet = stmt.executeQuery()) {
+                int expected = nodeX.equalsIgnoreCase(nodeY) ? 1 : 2;
+                return !resultSet.next() || resultSet.getInt(1) < expected;
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package structure;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structure-of-arrays binary tree, an alternative to TreeNode objects
+ * Every node is an int id; children, parent, weight and depth live in
+ * parallel int arrays and names are stored once in a UTF-8 byte table
+ * Ids are assigned in preorder, so every subtree occupies a contiguous
+ * id range and traversals scan the arrays sequentially
+ * Offers the same queries as Tree; instances are immutable once built
+ */
+public class CompactTree {
+    static final int NONE = -1;
+
+    private final int size;
+    private final int root;
+    private final int[] left;
+    private final int[] right;
+    private final int[] parent;
+    private final int[] weight;
+    private final int[] depth;
+
+    // Name table: bytes of node i are nameBytes[nameOffset[i] .. nameOffset[i + 1])
+    private final byte[] nameBytes;
+    private final int[] nameOffset;
+    private final int[] nameHash;
+
+    // Open addressing table of node id + 1 (0 = empty slot)
+    private final int[] slots;
+
+    private CompactTree(int size, int root, int[] left, int[] right, int[] parent, int[] weight,
+                        int[] depth, byte[] nameBytes, int[] nameOffset, int[] nameHash) {
+        this.size = size;
+        this.root = root;
+        this.left = left;
+        this.right = right;
+        this.parent = parent;
+        this.weight = weight;
+        this.depth = depth;
+        this.nameBytes = nameBytes;
+        this.nameOffset = nameOffset;
+        this.nameHash = nameHash;
+        this.slots = new int[tableSize(size)];
+        for (int id = 0; id < size; id++) {
+            int slot = nameHash[id] & (slots.length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int tableSize(int size) {
+        int tableSize = 2;
+        while (tableSize < size * 2) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    /**
+     * Converts a TreeNode graph into the compact representation
+     * @param root root node (can be null for an empty tree)
+     */
+    static CompactTree fromTreeNode(TreeNode root) {
+        Builder builder = new Builder();
+        TreeWalker walker = new TreeWalker();
+        walker.startPreorder(root);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            builder.addNode(node.nodeName, node.weight,
+                    node.left != null ? node.left.nodeName : null,
+                    node.right != null ? node.right.nodeName : null);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Materializes the tree as TreeNode objects
+     * @return root TreeNode or null for an empty tree
+     */
+    TreeNode toTreeNode() {
+        if (size == 0) {
+            return null;
+        }
+        TreeNode[] nodes = new TreeNode[size];
+        for (int id = 0; id < size; id++) {
+            nodes[id] = new TreeNode(nameOf(id), weight[id]);
+        }
+        for (int id = 0; id < size; id++) {
+            if (left[id] != NONE) {
+                nodes[id].left = nodes[left[id]];
+            }
+            if (right[id] != NONE) {
+                nodes[id].right = nodes[right[id]];
+            }
+        }
+        return nodes[root];
+    }
+
+    // ---- Queries (same operations as Tree) ----
+
+    /**
+     * Finds a node by name in O(1)
+     * @return node id or -1 if not found
+     */
+    public int findNode(String nodeName) {
+        if (size == 0 || nodeName == null) {
+            return NONE;
+        }
+        int hash = nodeName.hashCode();
+        int slot = hash & (slots.length - 1);
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (nameHash[id] == hash && nameEquals(id, nodeName)) {
+                return id;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return NONE;
+    }
+
+    /**
+     * Finds the Lowest Common Ancestor of two nodes by walking parent links
+     * Like Tree.findLCA, returns the found node if only one of them exists
+     * @return name of the LCA node or null if neither node was found
+     */
+    public String findLCA(String nodeX, String nodeY) {
+        int x = findNode(nodeX);
+        int y = findNode(nodeY);
+        if (x != NONE && y != NONE) {
+            return nameOf(lca(x, y));
+        }
+        if (x != NONE) {
+            return nameOf(x);
+        }
+        return (y != NONE) ? nameOf(y) : null;
+    }
+
+    /**
+     * Calculates distance from a node down to target
+     * @param current id of the starting node
+     * @param targetNode target node name
+     * @return distance or -1 if target is not under current
+     */
+    public int calculateDistance(int current, String targetNode) {
+        int target = findNode(targetNode);
+        if (current == NONE || target == NONE) {
+            return -1;
+        }
+        int steps = depth[target] - depth[current];
+        int ancestor = target;
+        for (int i = 0; i < steps; i++) {
+            ancestor = parent[ancestor];
+        }
+        return (ancestor == current) ? steps : -1;
+    }
+
+    /**
+     * Calculates the path length between two nodes (number of edges)
+     * @return number of edges or -1 if the tree is empty or a node was not found
+     */
+    public int calculatePathLength(String nodeX, String nodeY) {
+        int x = findNode(nodeX);
+        int y = findNode(nodeY);
+        if (x == NONE || y == NONE) {
+            return -1;
+        }
+        return depth[x] + depth[y] - 2 * depth[lca(x, y)];
+    }
+
+    /**
+     * Prints the nodes in inorder, same format as Tree.inorderTraversal
+     */
+    public void inorderTraversal() {
+        if (size == 0) {
+            System.out.println("The tree is empty.");
+            return;
+        }
+        int[] stack = new int[16];
+        int top = -1;
+        int current = root;
+        while (current != NONE || top >= 0) {
+            while (current != NONE) {
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top] = current;
+                current = left[current];
+            }
+            current = stack[top--];
+            System.out.println("Node: " + nameOf(current) + ", Weight: " + weight[current]);
+            current = right[current];
+        }
+    }
+
+    /**
+     * Walks both nodes up to their lowest common ancestor
+     */
+    int lca(int x, int y) {
+        while (depth[x] > depth[y]) {
+            x = parent[x];
+        }
+        while (depth[y] > depth[x]) {
+            y = parent[y];
+        }
+        while (x != y) {
+            x = parent[x];
+            y = parent[y];
+        }
+        return x;
+    }
+
+    // ---- Accessors ----
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return id of the root, or -1 for an empty tree
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    public String nameOf(int id) {
+        return new String(nameBytes, nameOffset[id], nameOffset[id + 1] - nameOffset[id], StandardCharsets.UTF_8);
+    }
+
+    public int weightOf(int id) {
+        return weight[id];
+    }
+
+    public int leftOf(int id) {
+        return left[id];
+    }
+
+    public int rightOf(int id) {
+        return right[id];
+    }
+
+    public int parentOf(int id) {
+        return parent[id];
+    }
+
+    public int depthOf(int id) {
+        return depth[id];
+    }
+
+    /**
+     * Compares a stored name with a String without decoding (ASCII fast path)
+     */
+    private boolean nameEquals(int id, String nodeName) {
+        int start = nameOffset[id];
+        int length = nameOffset[id + 1] - start;
+        if (length == nodeName.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                byte b = nameBytes[start + i];
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+                if (b != nodeName.charAt(i)) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        return nameOf(id).equals(nodeName);
+    }
+
+    /**
+     * Collects rows (node name, weight, child names) in any order and builds
+     * a CompactTree; child names may refer to rows that come later
+     * Links to names that never get their own row are dropped
+     */
+    static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private int[] weights = new int[16];
+        private int[] lefts = new int[16];
+        private int[] rights = new int[16];
+        private boolean[] hasRow = new boolean[16];
+        private boolean[] isChild = new boolean[16];
+        private int firstRow = NONE;
+
+        /**
+         * Adds one node row
+         * @param leftName name of the left child or null
+         * @param rightName name of the right child or null
+         */
+        void addNode(String nodeName, int weight, String leftName, String rightName) {
+            int id = intern(nodeName);
+            int leftId = (leftName != null) ? intern(leftName) : NONE;
+            int rightId = (rightName != null) ? intern(rightName) : NONE;
+            weights[id] = weight;
+            lefts[id] = leftId;
+            rights[id] = rightId;
+            hasRow[id] = true;
+            if (leftId != NONE) {
+                isChild[leftId] = true;
+            }
+            if (rightId != NONE) {
+                isChild[rightId] = true;
+            }
+            if (firstRow == NONE) {
+                firstRow = id;
+            }
+        }
+
+        private int intern(String nodeName) {
+            Integer id = ids.get(nodeName);
+            if (id != null) {
+                return id;
+            }
+            int newId = names.size();
+            names.add(nodeName);
+            ids.put(nodeName, newId);
+            if (newId == weights.length) {
+                int capacity = newId * 2;
+                weights = Arrays.copyOf(weights, capacity);
+                lefts = Arrays.copyOf(lefts, capacity);
+                rights = Arrays.copyOf(rights, capacity);
+                hasRow = Arrays.copyOf(hasRow, capacity);
+                isChild = Arrays.copyOf(isChild, capacity);
+            }
+            lefts[newId] = NONE;
+            rights[newId] = NONE;
+            return newId;
+        }
+
+        /**
+         * Picks the root (first row that is nobody's child) and renumbers
+         * the reachable nodes in preorder
+         */
+        CompactTree build() {
+            int count = names.size();
+            int rootId = firstRow;
+            for (int id = 0; id < count; id++) {
+                if (hasRow[id] && !isChild[id]) {
+                    rootId = id;
+                    break;
+                }
+            }
+            if (rootId == NONE) {
+                return new CompactTree(0, NONE, new int[0], new int[0], new int[0], new int[0],
+                        new int[0], new byte[0], new int[1], new int[0]);
+            }
+
+            int[] newId = new int[count];
+            Arrays.fill(newId, NONE);
+            int[] order = new int[count];
+            int[] depths = new int[count];
+            int size = 0;
+
+            // Iterative preorder from the root; a node is taken only once
+            int[] stack = new int[16];
+            int[] stackDepth = new int[16];
+            int top = 0;
+            stack[0] = rootId;
+            while (top >= 0) {
+                int id = stack[top];
+                int nodeDepth = stackDepth[top];
+                top--;
+                if (newId[id] != NONE) {
+                    continue;
+                }
+                newId[id] = size;
+                order[size] = id;
+                depths[size] = nodeDepth;
+                size++;
+                // Push right first so the left subtree gets the next ids
+                if (top + 2 >= stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    stackDepth = Arrays.copyOf(stackDepth, stack.length);
+                }
+                int rightChild = rights[id];
+                if (rightChild != NONE && hasRow[rightChild] && newId[rightChild] == NONE) {
+                    stack[++top] = rightChild;
+                    stackDepth[top] = nodeDepth + 1;
+                }
+                int leftChild = lefts[id];
+                if (leftChild != NONE && hasRow[leftChild] && newId[leftChild] == NONE) {
+                    stack[++top] = leftChild;
+                    stackDepth[top] = nodeDepth + 1;
+                }
+            }
+
+            int[] left = new int[size];
+            int[] right = new int[size];
+            int[] parent = new int[size];
+            int[] weight = new int[size];
+            int[] depth = Arrays.copyOf(depths, size);
+            int[] nameOffset = new int[size + 1];
+            int[] nameHash = new int[size];
+            byte[][] encoded = new byte[size][];
+            Arrays.fill(parent, NONE);
+
+            int totalBytes = 0;
+            for (int i = 0; i < size; i++) {
+                int old = order[i];
+                String name = names.get(old);
+                encoded[i] = name.getBytes(StandardCharsets.UTF_8);
+                nameHash[i] = name.hashCode();
+                totalBytes += encoded[i].length;
+                weight[i] = weights[old];
+            }
+            for (int i = 0; i < size; i++) {
+                int old = order[i];
+                left[i] = linkChild(i, childId(lefts[old], newId), parent, depth);
+                right[i] = linkChild(i, childId(rights[old], newId), parent, depth);
+            }
+
+            byte[] nameBytes = new byte[totalBytes];
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                nameOffset[i] = offset;
+                System.arraycopy(encoded[i], 0, nameBytes, offset, encoded[i].length);
+                offset += encoded[i].length;
+            }
+            nameOffset[size] = offset;
+
+            return new CompactTree(size, 0, left, right, parent, weight, depth, nameBytes, nameOffset, nameHash);
+        }
+
+        /**
+         * Maps an old child id to its preorder id (NONE for missing rows)
+         */
+        private static int childId(int oldChild, int[] newId) {
+            return (oldChild == NONE) ? NONE : newId[oldChild];
+        }
+
+        /**
+         * Keeps a child link only if it forms a proper tree edge; second links
+         * to a node that already has a parent (bad rows) are dropped
+         */
+        private static int linkChild(int node, int child, int[] parent, int[] depth) {
+            if (child == NONE || child == 0 || parent[child] != NONE || depth[child] != depth[node] + 1) {
+                return NONE;
+            }
+            parent[child] = node;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package structure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe tree for many concurrent readers and occasional writers
+ * Readers take the current Version, an immutable snapshot with its own
+ * copy of the nodes and a prebuilt LCA index; reading it needs no lock,
+ * so query throughput grows with the number of reader threads
+ * Writers (copy-on-write) edit a private copy through the normal Tree API
+ * under a writer lock and publish the result as a new Version with one
+ * atomic reference swap; readers still holding the old Version keep
+ * seeing it unchanged
+ * Every write copies the tree and rebuilds the index (O(n log n)), so this
+ * suits read-mostly workloads
+ */
+public class ConcurrentTree {
+    private final String treeName;
+    private final ITreeLoader treeLoader;
+    private final ITreeSaver treeSaver;
+    private final IMessageController messageController;
+    private final AtomicReference<Version> current;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Default constructor - uses the database loader and saver like Tree
+     */
+    public ConcurrentTree(String name) {
+        this(name, new TreeBuilderDB(ConnectionPool.shared(), new MessageController()),
+                new TreeSaverDB(ConnectionPool.shared()), new MessageController());
+    }
+
+    /**
+     * Constructor for dependency injection (used in testing)
+     */
+    public ConcurrentTree(String name, ITreeLoader loader, ITreeSaver saver,
+                          IMessageController messageController) {
+        this.treeName = name;
+        this.treeLoader = loader;
+        this.treeSaver = saver;
+        this.messageController = messageController;
+        this.current = new AtomicReference<>(new Version(null, 0));
+    }
+
+    /**
+     * Immutable snapshot of the tree; all queries on one Version see the same tree
+     */
+    public static final class Version {
+        private final TreeNode root;
+        private final long number;
+        private final LcaIndex lcaIndex;
+        // Built on first use; a race only builds the same index twice
+        private volatile PathWeightIndex pathWeightIndex;
+        private volatile TreeAggregate aggregate;
+
+        /**
+         * @param root nodes owned by this version (never changed afterwards)
+         */
+        Version(TreeNode root, long number) {
+            this.root = root;
+            this.number = number;
+            this.lcaIndex = (root == null) ? null : new LcaIndex(root);
+        }
+
+        /**
+         * @return version number, increased by every published write
+         */
+        public long getVersion() {
+            return number;
+        }
+
+        public boolean isEmpty() {
+            return root == null;
+        }
+
+        /**
+         * @return true if a node with this name exists
+         */
+        public boolean contains(String nodeName) {
+            return lcaIndex != null && lcaIndex.idOf(nodeName) != -1;
+        }
+
+        /**
+         * @return weight of the node or null if not found
+         */
+        public Integer getWeight(String nodeName) {
+            int id = (lcaIndex == null) ? -1 : lcaIndex.idOf(nodeName);
+            return (id == -1) ? null : lcaIndex.nodeAt(id).weight;
+        }
+
+        /**
+         * Finds the Lowest Common Ancestor of two nodes
+         * Like Tree.findLCA, returns the found node if only one of them exists
+         * @return name of the LCA node or null if neither node was found
+         */
+        public String findLCA(String nodeX, String nodeY) {
+            if (lcaIndex == null) {
+                return null;
+            }
+            int x = lcaIndex.idOf(nodeX);
+            int y = lcaIndex.idOf(nodeY);
+            if (x != -1 && y != -1) {
+                return lcaIndex.nodeAt(lcaIndex.lca(x, y)).nodeName;
+            }
+            if (x != -1) {
+                return nodeX;
+            }
+            return (y != -1) ? nodeY : null;
+        }
+
+        /**
+         * Calculates the path length between two nodes (number of edges)
+         * @return number of edges or -1 if the tree is empty or a node was not found
+         */
+        public int calculatePathLength(String nodeX, String nodeY) {
+            return (lcaIndex == null) ? -1 : lcaIndex.pathLength(nodeX, nodeY);
+        }
+
+        /**
+         * Sums the weights on the path between two nodes, both ends included
+         * @return weight sum or Tree.NO_PATH if a node was not found
+         */
+        public long calculateWeightedPathLength(String nodeX, String nodeY) {
+            PathWeightIndex index = pathWeightIndex();
+            int x = (index == null) ? -1 : lcaIndex.idOf(nodeX);
+            int y = (index == null) ? -1 : lcaIndex.idOf(nodeY);
+            return (x == -1 || y == -1) ? Tree.NO_PATH : index.pathWeight(x, y);
+        }
+
+        /**
+         * @return largest weight on the path or Tree.NO_PATH if a node was not found
+         */
+        public long findPathMaxWeight(String nodeX, String nodeY) {
+            PathWeightIndex index = pathWeightIndex();
+            int x = (index == null) ? -1 : lcaIndex.idOf(nodeX);
+            int y = (index == null) ? -1 : lcaIndex.idOf(nodeY);
+            return (x == -1 || y == -1) ? Tree.NO_PATH : index.pathMaxWeight(x, y);
+        }
+
+        /**
+         * @return smallest weight on the path or Tree.NO_PATH if a node was not found
+         */
+        public long findPathMinWeight(String nodeX, String nodeY) {
+            PathWeightIndex index = pathWeightIndex();
+            int x = (index == null) ? -1 : lcaIndex.idOf(nodeX);
+            int y = (index == null) ? -1 : lcaIndex.idOf(nodeY);
+            return (x == -1 || y == -1) ? Tree.NO_PATH : index.pathMinWeight(x, y);
+        }
+
+        /**
+         * @return size, height and weight statistics of this version
+         */
+        public TreeAggregate aggregate() {
+            TreeAggregate result = aggregate;
+            if (result == null) {
+                // Run in the pool, so large trees are split across its workers
+                result = (root == null) ? TreeAggregate.EMPTY
+                        : ForkJoinPool.commonPool().invoke(new SubtreeAggregator(root));
+                aggregate = result;
+            }
+            return result;
+        }
+
+        public int size() {
+            return (lcaIndex == null) ? 0 : lcaIndex.size();
+        }
+
+        private PathWeightIndex pathWeightIndex() {
+            PathWeightIndex index = pathWeightIndex;
+            if (index == null && lcaIndex != null) {
+                index = new PathWeightIndex(lcaIndex);
+                pathWeightIndex = index;
+            }
+            return index;
+        }
+
+        /**
+         * @return the nodes of this version; must not be modified
+         */
+        TreeNode getRoot() {
+            return root;
+        }
+    }
+
+    /**
+     * @return the latest published version (lock-free)
+     */
+    public Version current() {
+        return current.get();
+    }
+
+    /**
+     * Applies an edit to a private copy of the tree and publishes the result
+     * Writers are serialized; readers are never blocked
+     * The Tree passed to the edit must not be used after it returns
+     * @param edit changes to make, e.g. tree -> tree.updateWeight("B", 7)
+     * @return the published version
+     */
+    public Version update(Consumer<Tree> edit) {
+        writeLock.lock();
+        try {
+            Version base = current.get();
+            Tree working = new Tree(treeName, treeLoader, treeSaver, messageController);
+            working.setRoot(TreeNode.copyOf(base.getRoot()));
+            edit.accept(working);
+            // Copy again so nothing the edit kept a reference to can reach the published nodes
+            return publish(TreeNode.copyOf(working.getRoot()), base);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Changes the weight of a node (copy-on-write)
+     * @return true if the node was found
+     */
+    public boolean updateWeight(String nodeName, int weight) {
+        writeLock.lock();
+        try {
+            Version base = current.get();
+            if (!base.contains(nodeName)) {
+                return false;
+            }
+            // Same shape, so the new version's index can locate the copied node
+            // (its weight is set before the version is published)
+            Version next = new Version(TreeNode.copyOf(base.getRoot()), base.getVersion() + 1);
+            next.lcaIndex.nodeAt(next.lcaIndex.idOf(nodeName)).weight = weight;
+            current.set(next);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole tree; the nodes are copied
+     * @param root new root node (can be null for empty tree)
+     * @return the published version
+     */
+    public Version replaceRoot(TreeNode root) {
+        TreeNode copy = TreeNode.copyOf(root);
+        writeLock.lock();
+        try {
+            return publish(copy, current.get());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Version publish(TreeNode root, Version base) {
+        Version next = new Version(root, base.getVersion() + 1);
+        current.set(next);
+        return next;
+    }
+
+    /**
+     * Loads the tree from database and publishes a copy of it
+     * Readers keep using the previous version while the load runs
+     * @return true if the tree was loaded
+     */
+    public boolean buildTreeFromDatabase() {
+        try {
+            // Copied like replaceRoot: a loader may keep the nodes it returned (e.g. a cache)
+            TreeNode loaded = TreeNode.copyOf(treeLoader.loadTree(treeName));
+            writeLock.lock();
+            try {
+                publish(loaded, current.get());
+            } finally {
+                writeLock.unlock();
+            }
+            return true;
+        } catch (Exception e) {
+            messageController.sendWarning("Failed to build tree from database");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Saves the current version to database (readers and writers continue meanwhile)
+     * @param treeName name to save as
+     */
+    public void saveTreeInDatabase(String treeName) {
+        try {
+            treeSaver.saveTree(treeName, current.get().getRoot());
+        } catch (Exception e) {
+            messageController.sendWarning("Failed to save tree to database");
+            e.printStackTrace();
+        }
+    }
+
+    public String getTreeName() {
+        return treeName;
+    }
+}
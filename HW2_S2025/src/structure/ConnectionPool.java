@@ -0,0 +1,360 @@
+package structure;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Small JDBC connection pool shared by TreeBuilderDB and TreeSaverDB
+ * Registers the MySQL driver once, keeps warm connections for reuse,
+ * validates connections that were idle for a while and limits the number
+ * of open connections
+ * Connections handed out are proxies: close() returns them to the pool
+ * Prepared statements are cached per connection by Connector/J (cachePrepStmts)
+ * Prepares stay client-side: the multi-row INSERTs of ChunkedInsert have a
+ * different text for every tail chunk, which would cost a server prepare
+ * each; the SQL length limit is raised so full chunks are still cached
+ */
+public class ConnectionPool implements DataSource {
+    static final String DEFAULT_URL = "jdbc:mysql://localhost/world?serverTimezone=IST";
+    static final String DEFAULT_USER = "root";
+    static final String DEFAULT_PASSWORD = "Aa123456";
+    static final String DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
+
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30000;
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 5000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // Fits the INSERT of a default 1000-row chunk (~16 KB); Connector/J's default is 256
+    private static final int PREP_STMT_CACHE_SQL_LIMIT = 32768;
+
+    private static final ConcurrentMap<String, ConnectionPool> SHARED_POOLS = new ConcurrentHashMap<>();
+    private static volatile boolean driverRegistered = false;
+
+    private final String connectionUrl;
+    private final Properties connectionProperties;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed = false;
+    private PrintWriter logWriter;
+
+    /**
+     * Full constructor
+     * @param connectionUrl JDBC url
+     * @param username database user
+     * @param password database password
+     * @param maxSize maximum number of connections open at the same time
+     * @param borrowTimeoutMillis how long getConnection waits for a free connection
+     */
+    public ConnectionPool(String connectionUrl, String username, String password,
+                          int maxSize, long borrowTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.connectionUrl = connectionUrl;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.connectionProperties = new Properties();
+        connectionProperties.setProperty("user", username);
+        connectionProperties.setProperty("password", password);
+        if (isMySql()) {
+            // Let Connector/J keep parsed prepared statements per connection
+            connectionProperties.setProperty("cachePrepStmts", "true");
+            connectionProperties.setProperty("useServerPrepStmts", "false");
+            connectionProperties.setProperty("prepStmtCacheSize", "64");
+            connectionProperties.setProperty("prepStmtCacheSqlLimit", String.valueOf(PREP_STMT_CACHE_SQL_LIMIT));
+            // Send JDBC batches (diff updates/deletes) as multi-statement round trips
+            connectionProperties.setProperty("rewriteBatchedStatements", "true");
+        }
+    }
+
+    /**
+     * Constructor with default pool limits
+     */
+    public ConnectionPool(String connectionUrl, String username, String password) {
+        this(connectionUrl, username, password, DEFAULT_MAX_SIZE, DEFAULT_BORROW_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns the pool shared by every loader/saver using the same connection parameters
+     */
+    public static ConnectionPool shared(String connectionUrl, String username, String password) {
+        String key = connectionUrl + '\u0000' + username + '\u0000' + password;
+        return SHARED_POOLS.computeIfAbsent(key, k -> new ConnectionPool(connectionUrl, username, password));
+    }
+
+    /**
+     * Returns the shared pool for the default database parameters
+     */
+    public static ConnectionPool shared() {
+        return shared(DEFAULT_URL, DEFAULT_USER, DEFAULT_PASSWORD);
+    }
+
+    /**
+     * Other databases (e.g. an embedded one for benchmarks) get neither the
+     * Connector/J properties nor the MySQL driver
+     */
+    private boolean isMySql() {
+        return connectionUrl.startsWith("jdbc:mysql:");
+    }
+
+    /**
+     * Loads the MySQL driver class once per JVM
+     * @throws SQLException if the driver is not on the classpath
+     */
+    static void registerDriver() throws SQLException {
+        if (driverRegistered) {
+            return;
+        }
+        synchronized (ConnectionPool.class) {
+            if (!driverRegistered) {
+                try {
+                    Class.forName(DRIVER_CLASS);
+                } catch (ClassNotFoundException ex) {
+                    throw new SQLException("Driver definition failed", ex);
+                }
+                driverRegistered = true;
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection, reusing an idle one when possible
+     * Waits up to the borrow timeout when maxSize connections are in use
+     * @return pooled connection; close() returns it to the pool
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection (max " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                if (isMySql()) {
+                    registerDriver();
+                }
+                physical = DriverManager.getConnection(connectionUrl, connectionProperties);
+            }
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a usable idle connection, discarding those that fail validation
+     */
+    private Connection takeIdle() {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            long idleMillis = System.currentTimeMillis() - candidate.idleSince;
+            if (idleMillis < VALIDATE_AFTER_IDLE_MILLIS || isValid(candidate.connection)) {
+                return candidate.connection;
+            }
+            closeQuietly(candidate.connection);
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called when a borrowed connection is closed by its user
+     */
+    private void release(Connection physical) {
+        try {
+            boolean reusable = !closed && !physical.isClosed();
+            if (reusable && !physical.getAutoCommit()) {
+                // Never hand out a connection with an open transaction
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                synchronized (idle) {
+                    idle.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+                }
+            } else {
+                closeQuietly(physical);
+            }
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections; borrowed ones are closed when returned
+     */
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (IdleConnection connection : idle) {
+                closeQuietly(connection.connection);
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * @return number of idle connections kept for reuse
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // connection is being discarded anyway
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Forwards calls to the physical connection, except close()
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!returned) {
+                    returned = true;
+                    release(physical);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return returned || physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class IdleConnection {
+        final Connection connection;
+        final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    // ---- DataSource boilerplate ----
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the pool credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
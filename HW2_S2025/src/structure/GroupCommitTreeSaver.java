@@ -0,0 +1,245 @@
+package structure;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind ITreeSaver that groups saves made at about the same time
+ * Saves wait up to flushIntervalMillis, then all waiting trees are written
+ * with one saveTrees call - one transaction and one commit with TreeSaverDB
+ * A tree saved again while it waits is only written once, with the latest
+ * nodes; both callers are answered by that write
+ * saveTree blocks until the write is committed, so Tree.saveTreeInDatabase
+ * keeps its meaning while concurrent calls share commits; saveTreeAsync
+ * returns at once with a future for the commit
+ * Writes run one batch at a time on a single background thread; a failed
+ * batch is retried tree by tree, so each caller gets its own tree's result
+ * Tree names are matched case-insensitively, like the database does
+ */
+public class GroupCommitTreeSaver implements ITreeSaver, IAsyncTreeSaver, Closeable {
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    static final int DEFAULT_MAX_BATCH_TREES = 100;
+
+    private final ITreeSaver saver;
+    private final long flushIntervalMillis;
+    private final int maxBatchTrees;
+    private final ScheduledExecutorService flusher;
+    // Waiting saves by tree name key, in arrival order
+    private LinkedHashMap<String, PendingSave> pending = new LinkedHashMap<>();
+    private boolean closed = false;
+    private long saveCount = 0;
+    private long coalescedCount = 0;
+    private long flushCount = 0;
+
+    /**
+     * Latest waiting save of one tree
+     */
+    private static final class PendingSave {
+        String treeName;
+        TreeNode root;
+        final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        PendingSave(String treeName, TreeNode root) {
+            this.treeName = treeName;
+            this.root = root;
+        }
+    }
+
+    /**
+     * @param saver saver the grouped trees are written with (e.g. TreeSaverDB)
+     * @param flushIntervalMillis how long the first save of a batch waits for others
+     * @param maxBatchTrees number of waiting trees that starts a write at once
+     */
+    public GroupCommitTreeSaver(ITreeSaver saver, long flushIntervalMillis, int maxBatchTrees) {
+        if (flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must not be negative");
+        }
+        if (maxBatchTrees < 1) {
+            throw new IllegalArgumentException("maxBatchTrees must be at least 1");
+        }
+        this.saver = saver;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchTrees = maxBatchTrees;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "tree-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.flusher = executor;
+    }
+
+    /**
+     * Constructor with a 10 ms flush interval and up to 100 trees per write
+     */
+    public GroupCommitTreeSaver(ITreeSaver saver) {
+        this(saver, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_TREES);
+    }
+
+    /**
+     * Queues a copy of the tree taken when this method is called, so the
+     * caller may keep editing its nodes
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree to save (can be null for empty tree)
+     * @return future that completes when a write including this tree is
+     *         committed, or exceptionally if that write fails
+     */
+    @Override
+    public CompletableFuture<Void> saveTreeAsync(String treeName, TreeNode root) {
+        TreeNode snapshot = TreeNode.copyOf(root);
+        String key = treeName.toLowerCase(Locale.ROOT);
+        synchronized (this) {
+            if (closed) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("GroupCommitTreeSaver is closed"));
+                return failed;
+            }
+            saveCount++;
+            PendingSave save = pending.get(key);
+            if (save != null) {
+                // Not written yet: the latest tree replaces it
+                save.treeName = treeName;
+                save.root = snapshot;
+                coalescedCount++;
+                return save.committed;
+            }
+            save = new PendingSave(treeName, snapshot);
+            pending.put(key, save);
+            if (pending.size() == maxBatchTrees) {
+                flusher.execute(this::flush);
+            } else if (pending.size() == 1) {
+                flusher.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            return save.committed;
+        }
+    }
+
+    /**
+     * Saves a tree together with the other trees saved meanwhile,
+     * waiting until the write is committed
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree to save (can be null for empty tree)
+     * @throws Exception the error of the grouped write
+     */
+    @Override
+    public void saveTree(String treeName, TreeNode root) throws Exception {
+        await(saveTreeAsync(treeName, root));
+    }
+
+    /**
+     * Writes every waiting tree now, without waiting for the flush interval,
+     * and returns when the write is done (its errors go to the save futures)
+     */
+    public void flushNow() throws Exception {
+        await(CompletableFuture.runAsync(this::flush, flusher));
+    }
+
+    private static void await(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Writes the waiting trees in one saveTrees call (runs on the flusher thread)
+     * If that write fails, each tree is written again on its own, so one bad
+     * tree does not fail the saves of the others
+     * Saves arriving meanwhile wait for the next write
+     */
+    private void flush() {
+        LinkedHashMap<String, PendingSave> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushCount++;
+        }
+        Map<String, TreeNode> trees = new LinkedHashMap<>();
+        for (PendingSave save : batch.values()) {
+            trees.put(save.treeName, save.root);
+        }
+        Throwable batchError;
+        try {
+            saver.saveTrees(trees);
+            batchError = null;
+        } catch (Throwable e) {
+            // Throwable: an Error must not leave the callers waiting forever
+            batchError = e;
+        }
+        for (PendingSave save : batch.values()) {
+            if (batchError == null) {
+                save.committed.complete(null);
+            } else if (batch.size() == 1) {
+                save.committed.completeExceptionally(batchError);
+            } else {
+                saveAlone(save);
+            }
+        }
+    }
+
+    /**
+     * Writes one tree of a failed batch and answers its caller
+     */
+    private void saveAlone(PendingSave save) {
+        try {
+            saver.saveTree(save.treeName, save.root);
+            save.committed.complete(null);
+        } catch (Throwable e) {
+            save.committed.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return number of saves requested
+     */
+    public synchronized long getSaveCount() {
+        return saveCount;
+    }
+
+    /**
+     * @return number of saves replaced by a later save of the same tree
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return number of grouped writes (commits) started
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Writes the waiting trees and stops the background thread;
+     * later saves fail
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.execute(this::flush);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
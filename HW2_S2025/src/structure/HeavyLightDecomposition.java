@@ -0,0 +1,191 @@
+package structure;
+
+import java.util.Arrays;
+
+/**
+ * Heavy-light decomposition for path queries while weights change
+ * Every node continues the chain of its larger child subtree, so any
+ * root path crosses at most log n chains; chains are laid out contiguously
+ * over one segment tree holding sum, max and min of the weights
+ * Weight updates are O(log n), path sum/max/min queries O(log^2 n)
+ * Node ids, parents and depths come from the LcaIndex it is built on;
+ * the tree shape is a snapshot, only weights can change afterwards
+ */
+class HeavyLightDecomposition {
+    private final LcaIndex lcaIndex;
+    private final int size;
+    private final int[] head;
+    private final int[] position;
+    // Segment tree over positions, leaves at [size, 2 * size)
+    private final long[] sum;
+    private final int[] max;
+    private final int[] min;
+
+    /**
+     * Builds the decomposition in O(n), without recursion
+     * @param lcaIndex LCA index of the tree (ids are in preorder, parents first)
+     */
+    HeavyLightDecomposition(LcaIndex lcaIndex) {
+        this.lcaIndex = lcaIndex;
+        this.size = lcaIndex.size();
+
+        // Children from the parent ids
+        int[] firstChild = new int[size];
+        int[] secondChild = new int[size];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(secondChild, -1);
+        for (int id = 1; id < size; id++) {
+            int parent = lcaIndex.parentOf(id);
+            if (firstChild[parent] == -1) {
+                firstChild[parent] = id;
+            } else {
+                secondChild[parent] = id;
+            }
+        }
+
+        // Subtree sizes: children have larger ids than their parent
+        int[] subtreeSize = new int[size];
+        for (int id = size - 1; id >= 0; id--) {
+            subtreeSize[id]++;
+            if (id > 0) {
+                subtreeSize[lcaIndex.parentOf(id)] += subtreeSize[id];
+            }
+        }
+
+        // Walk each chain down its heavy children; light children start new chains
+        this.head = new int[size];
+        this.position = new int[size];
+        int[] pendingHeads = new int[size];
+        int pending = 0;
+        int nextPosition = 0;
+        if (size > 0) {
+            pendingHeads[pending++] = 0;
+        }
+        while (pending > 0) {
+            int chainHead = pendingHeads[--pending];
+            for (int node = chainHead; node != -1; ) {
+                head[node] = chainHead;
+                position[node] = nextPosition++;
+                int heavy = firstChild[node];
+                int light = secondChild[node];
+                if (light != -1 && subtreeSize[light] > subtreeSize[heavy]) {
+                    int tmp = heavy;
+                    heavy = light;
+                    light = tmp;
+                }
+                if (light != -1) {
+                    pendingHeads[pending++] = light;
+                }
+                node = heavy;
+            }
+        }
+
+        this.sum = new long[2 * size];
+        this.max = new int[2 * size];
+        this.min = new int[2 * size];
+        for (int id = 0; id < size; id++) {
+            int leaf = size + position[id];
+            int weight = lcaIndex.nodeAt(id).weight;
+            sum[leaf] = weight;
+            max[leaf] = weight;
+            min[leaf] = weight;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            pull(i);
+        }
+    }
+
+    private void pull(int i) {
+        sum[i] = sum[2 * i] + sum[2 * i + 1];
+        max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+        min[i] = Math.min(min[2 * i], min[2 * i + 1]);
+    }
+
+    /**
+     * Sets the weight of a node in O(log n)
+     * (the TreeNode field itself is left to the caller)
+     */
+    void update(int id, int weight) {
+        int i = size + position[id];
+        sum[i] = weight;
+        max[i] = weight;
+        min[i] = weight;
+        for (i >>= 1; i > 0; i >>= 1) {
+            pull(i);
+        }
+    }
+
+    /**
+     * @return sum of the weights on the path, both ends included
+     */
+    long pathSum(int x, int y) {
+        return queryPath(x, y)[0];
+    }
+
+    /**
+     * @return largest weight on the path, both ends included
+     */
+    int pathMax(int x, int y) {
+        return (int) queryPath(x, y)[1];
+    }
+
+    /**
+     * @return smallest weight on the path, both ends included
+     */
+    int pathMin(int x, int y) {
+        return (int) queryPath(x, y)[2];
+    }
+
+    /**
+     * Climbs chain by chain until both ends are on the same chain
+     * @return {sum, max, min} of the path
+     */
+    private long[] queryPath(int x, int y) {
+        long[] result = {0, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        while (head[x] != head[y]) {
+            if (lcaIndex.depthOf(head[x]) < lcaIndex.depthOf(head[y])) {
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+            queryRange(position[head[x]], position[x], result);
+            x = lcaIndex.parentOf(head[x]);
+        }
+        queryRange(Math.min(position[x], position[y]), Math.max(position[x], position[y]), result);
+        return result;
+    }
+
+    /**
+     * Folds positions [from, to] into result (bottom-up segment tree walk)
+     */
+    private void queryRange(int from, int to, long[] result) {
+        for (int lo = from + size, hi = to + size + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                fold(lo++, result);
+            }
+            if ((hi & 1) == 1) {
+                fold(--hi, result);
+            }
+        }
+    }
+
+    private void fold(int i, long[] result) {
+        result[0] += sum[i];
+        result[1] = Math.max(result[1], max[i]);
+        result[2] = Math.min(result[2], min[i]);
+    }
+
+    /**
+     * @return true if the node still has the weight the decomposition holds
+     */
+    boolean hasWeight(int id) {
+        return max[size + position[id]] == lcaIndex.nodeAt(id).weight;
+    }
+
+    /**
+     * @return the LCA index this decomposition was built on (used to detect stale ones)
+     */
+    LcaIndex getLcaIndex() {
+        return lcaIndex;
+    }
+}
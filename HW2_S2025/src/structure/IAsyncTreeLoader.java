@@ -0,0 +1,25 @@
+package structure;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of ITreeLoader
+ * Calls return at once; the database work runs on an executor, so callers
+ * can overlap the loading of many trees without blocking their own thread
+ */
+public interface IAsyncTreeLoader {
+    /**
+     * Loads a tree in the background
+     * @param treeName the name of the tree to load
+     * @return future of the root TreeNode (null if the tree is empty);
+     *         completes exceptionally if the database operation fails
+     */
+    CompletableFuture<TreeNode> loadTreeAsync(String treeName);
+    
+    /**
+     * Checks in the background if a tree exists
+     * @param treeName the name of the tree to check
+     * @return future of true if the tree exists
+     */
+    CompletableFuture<Boolean> treeExistsAsync(String treeName);
+}
@@ -0,0 +1,18 @@
+package structure;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of ITreeSaver
+ */
+public interface IAsyncTreeSaver {
+    /**
+     * Saves a tree in the background
+     * If the tree already exists, it will be replaced
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree to save (can be null for empty tree)
+     * @return future that completes when the save is committed,
+     *         or exceptionally if the database operation fails
+     */
+    CompletableFuture<Void> saveTreeAsync(String treeName, TreeNode root);
+}
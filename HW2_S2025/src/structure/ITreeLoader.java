@@ -1,5 +1,9 @@
 package structure;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Interface for isolating external dependencies when creating a tree from database
  * This interface allows the Tree class to be tested independently from the database
@@ -20,4 +24,35 @@ public interface ITreeLoader {
      * @throws Exception if database operation fails
      */
     boolean treeExists(String treeName) throws Exception;
-}
\ No newline at end of file
+    
+    /**
+     * Loads several trees at once
+     * The default loads them one by one; database loaders override it
+     * to fetch all trees in as few queries as possible
+     * @param treeNames names of the trees to load (duplicates are loaded once)
+     * @return root per requested name, in request order (null for an empty tree)
+     * @throws Exception if database operation fails
+     */
+    default Map<String, TreeNode> loadTrees(Collection<String> treeNames) throws Exception {
+        Map<String, TreeNode> trees = new LinkedHashMap<>();
+        for (String treeName : treeNames) {
+            if (!trees.containsKey(treeName)) {
+                trees.put(treeName, loadTree(treeName));
+            }
+        }
+        return trees;
+    }
+    
+    /**
+     * Calculates the path length between two nodes of a stored tree
+     * The default loads the whole tree; database loaders override it to
+     * answer with a query, without building the tree
+     * @param treeName the name of the tree
+     * @return number of edges or -1 if the tree or a node was not found
+     * @throws Exception if database operation fails
+     */
+    default int queryPathLength(String treeName, String nodeX, String nodeY) throws Exception {
+        TreeNode root = loadTree(treeName);
+        return (root == null) ? -1 : new LcaIndex(root).pathLength(nodeX, nodeY);
+    }
+}
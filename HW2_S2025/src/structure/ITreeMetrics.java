@@ -0,0 +1,53 @@
+package structure;
+
+/**
+ * Interface for instrumenting tree operations
+ * Loaders, savers, caches and Tree report timings and events here instead
+ * of printing them; the default NOOP does nothing, so the hot paths do
+ * no I/O and skip the clock reads
+ */
+public interface ITreeMetrics {
+    /**
+     * Operations that are timed
+     */
+    enum Operation {
+        LOAD, SAVE, QUERY, CACHE_HIT, CACHE_MISS
+    }
+
+    /**
+     * Disabled instrumentation (the default everywhere)
+     */
+    ITreeMetrics NOOP = new ITreeMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void record(Operation operation, String treeName, long nanos) {
+        }
+
+        @Override
+        public void event(String message) {
+        }
+    };
+
+    /**
+     * Callers skip timing (and messages that cost extra work) when false
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Records one completed operation
+     * @param treeName tree the operation was on (null for bulk operations)
+     * @param nanos how long it took
+     */
+    void record(Operation operation, String treeName, long nanos);
+
+    /**
+     * Reports something that used to be printed (e.g. "Inserted 7 nodes for tree: t1")
+     */
+    void event(String message);
+}
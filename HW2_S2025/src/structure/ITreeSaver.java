@@ -1,5 +1,7 @@
 package structure;
 
+import java.util.Map;
+
 /**
  * Interface for saving a binary tree in DB
  * This interface isolates the Tree class from database save operations
@@ -13,4 +15,17 @@ public interface ITreeSaver {
      * @throws Exception if database operation fails
      */
     void saveTree(String treeName, TreeNode root) throws Exception;
-}
\ No newline at end of file
+    
+    /**
+     * Saves several trees
+     * The default saves them one by one; database savers override it
+     * to write them all in one transaction
+     * @param trees root per tree name (a null root empties the tree)
+     * @throws Exception if database operation fails
+     */
+    default void saveTrees(Map<String, TreeNode> trees) throws Exception {
+        for (Map.Entry<String, TreeNode> entry : trees.entrySet()) {
+            saveTree(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package structure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+
+/**
+ * Persisted tree that is read on demand instead of loaded as a whole
+ * Rows are fetched by (nodename, treeName) - the primary key - and parents
+ * by (leftp, treeName) / (rightp, treeName) - see the indexes in treeDB.sql -
+ * in batched IN (...) queries, and kept in a per-tree node cache
+ * Path queries climb from both nodes towards their common ancestor, so
+ * their cost follows the length of the path, not the size of the tree
+ * Not thread-safe (like Tree); open one per thread or synchronize
+ * Created by TreeBuilderDB.openLazyTree
+ */
+public class LazyTree {
+    private final DataSource dataSource;
+    private final String treeName;
+    private final IMessageController messageController;
+    // Cached rows by node name
+    private final Map<String, Row> rows = new HashMap<>();
+    // Node names known not to exist
+    private final Set<String> missing = new HashSet<>();
+    // Parent name by child name, for every child of a cached row
+    private final Map<String, String> parents = new HashMap<>();
+    // Cached nodes known to have no parent
+    private final Set<String> roots = new HashSet<>();
+    private int queryCount = 0;
+
+    private static final class Row {
+        final String nodeName;
+        final int weight;
+        final String leftName;
+        final String rightName;
+
+        Row(String nodeName, int weight, String leftName, String rightName) {
+            this.nodeName = nodeName;
+            this.weight = weight;
+            this.leftName = leftName;
+            this.rightName = rightName;
+        }
+    }
+
+    /**
+     * Result of climbing from two nodes to their lowest common ancestor
+     */
+    private static final class Meeting {
+        final String lca;
+        final int distance;
+
+        Meeting(String lca, int distance) {
+            this.lca = lca;
+            this.distance = distance;
+        }
+    }
+
+    LazyTree(DataSource dataSource, String treeName, IMessageController messageController) {
+        this.dataSource = dataSource;
+        this.treeName = treeName;
+        this.messageController = messageController;
+    }
+
+    /**
+     * @return weight of the node or null if not found
+     */
+    public Integer getWeight(String nodeName) throws Exception {
+        fetchRows(Collections.singleton(nodeName));
+        Row row = rows.get(nodeName);
+        return (row == null) ? null : row.weight;
+    }
+
+    /**
+     * Calculates the path length between two nodes (number of edges)
+     * @return number of edges or -1 if a node was not found
+     */
+    public int calculatePathLength(String nodeX, String nodeY) throws Exception {
+        Meeting meeting = meet(nodeX, nodeY);
+        return (meeting == null) ? -1 : meeting.distance;
+    }
+
+    /**
+     * Finds the Lowest Common Ancestor of two nodes
+     * @return name of the LCA node or null if a node was not found
+     */
+    public String findLCA(String nodeX, String nodeY) throws Exception {
+        Meeting meeting = meet(nodeX, nodeY);
+        return (meeting == null) ? null : meeting.lca;
+    }
+
+    /**
+     * Climbs from both nodes one level per round, fetching the parents of
+     * both in one query, until one climb reaches a node the other has seen
+     * Both climbs stop within the path length of the LCA (the shorter one
+     * may pass it by as many levels as the longer one still needs)
+     */
+    private Meeting meet(String nodeX, String nodeY) throws Exception {
+        List<String> ends = new ArrayList<>();
+        ends.add(nodeX);
+        ends.add(nodeY);
+        fetchRows(ends);
+        if (!rows.containsKey(nodeX) || !rows.containsKey(nodeY)) {
+            return null;
+        }
+        if (nodeX.equals(nodeY)) {
+            return new Meeting(nodeX, 0);
+        }
+
+        // Distance from each start node to the ancestors seen so far
+        Map<String, Integer> seenX = new HashMap<>();
+        Map<String, Integer> seenY = new HashMap<>();
+        seenX.put(nodeX, 0);
+        seenY.put(nodeY, 0);
+        String frontierX = nodeX;
+        String frontierY = nodeY;
+        while (frontierX != null || frontierY != null) {
+            List<String> unknown = new ArrayList<>();
+            if (frontierX != null && !parentKnown(frontierX)) {
+                unknown.add(frontierX);
+            }
+            if (frontierY != null && !parentKnown(frontierY)) {
+                unknown.add(frontierY);
+            }
+            fetchParents(unknown);
+
+            if (frontierX != null) {
+                String parent = parents.get(frontierX);
+                if (parent != null) {
+                    int distance = seenX.get(frontierX) + 1;
+                    if (seenY.containsKey(parent)) {
+                        return new Meeting(parent, distance + seenY.get(parent));
+                    }
+                    seenX.put(parent, distance);
+                }
+                frontierX = parent;
+            }
+            if (frontierY != null) {
+                String parent = parents.get(frontierY);
+                if (parent != null) {
+                    int distance = seenY.get(frontierY) + 1;
+                    if (seenX.containsKey(parent)) {
+                        return new Meeting(parent, distance + seenX.get(parent));
+                    }
+                    seenY.put(parent, distance);
+                }
+                frontierY = parent;
+            }
+        }
+        // Both reached a root without meeting: the stored rows are not one tree
+        return null;
+    }
+
+    private boolean parentKnown(String nodeName) {
+        return parents.containsKey(nodeName) || roots.contains(nodeName);
+    }
+
+    /**
+     * Loads the subtree below a node, one batched query per level
+     * @param nodeName root of the subtree
+     * @param maxDepth levels below nodeName to load (0 loads only the node)
+     * @return root of the loaded subtree (parent pointers set) or null if not found
+     */
+    public TreeNode loadSubtree(String nodeName, int maxDepth) throws Exception {
+        fetchRows(Collections.singleton(nodeName));
+        Row rootRow = rows.get(nodeName);
+        if (rootRow == null) {
+            return null;
+        }
+        TreeNode subtreeRoot = new TreeNode(rootRow.nodeName, rootRow.weight);
+        List<TreeNode> level = new ArrayList<>();
+        level.add(subtreeRoot);
+        for (int depth = 0; depth < maxDepth && !level.isEmpty(); depth++) {
+            List<String> childNames = new ArrayList<>();
+            for (TreeNode node : level) {
+                Row row = rows.get(node.nodeName);
+                if (row.leftName != null) {
+                    childNames.add(row.leftName);
+                }
+                if (row.rightName != null) {
+                    childNames.add(row.rightName);
+                }
+            }
+            fetchRows(childNames);
+
+            List<TreeNode> next = new ArrayList<>();
+            for (TreeNode node : level) {
+                Row row = rows.get(node.nodeName);
+                node.left = childNode(row.leftName, node, next);
+                node.right = childNode(row.rightName, node, next);
+            }
+            level = next;
+        }
+        return subtreeRoot;
+    }
+
+    private TreeNode childNode(String childName, TreeNode parent, List<TreeNode> next) {
+        Row row = (childName == null) ? null : rows.get(childName);
+        if (row == null) {
+            return null; // dangling link, TreeRowAssembler drops these as well
+        }
+        TreeNode child = new TreeNode(row.nodeName, row.weight);
+        child.parent = parent;
+        next.add(child);
+        return child;
+    }
+
+    /**
+     * Fetches the rows of the named nodes that are not cached yet
+     */
+    private void fetchRows(Collection<String> nodeNames) throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (String nodeName : new LinkedHashSet<>(nodeNames)) {
+            if (nodeName != null && !rows.containsKey(nodeName) && !missing.contains(nodeName)) {
+                names.add(nodeName);
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        runQueries(names, 1);
+        for (String nodeName : names) {
+            if (!rows.containsKey(nodeName)) {
+                missing.add(nodeName);
+            }
+        }
+    }
+
+    /**
+     * Fetches the parent rows of the named (cached) nodes
+     * Nodes whose parent is still unknown afterwards are roots
+     */
+    private void fetchParents(Collection<String> childNames) throws SQLException {
+        if (childNames.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(childNames));
+        runQueries(names, 2);
+        for (String nodeName : names) {
+            if (!parents.containsKey(nodeName)) {
+                roots.add(nodeName);
+            }
+        }
+    }
+
+    /**
+     * Runs one query per TreeBuilderDB.IN_QUERY_PARTITION names and caches the rows
+     * @param lists 1 to fetch the named rows, 2 to fetch their parents
+     *              (tree and names are bound once for leftp and once for rightp)
+     */
+    private void runQueries(List<String> names, int lists) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < names.size(); from += TreeBuilderDB.IN_QUERY_PARTITION) {
+                List<String> partition = names.subList(from, Math.min(names.size(), from + TreeBuilderDB.IN_QUERY_PARTITION));
+                String query = (lists == 1) ? rowsQuery(partition.size()) : parentsQuery(partition.size());
+                try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                    int parameter = 1;
+                    for (int list = 0; list < lists; list++) {
+                        stmt.setString(parameter++, treeName);
+                        for (String name : partition) {
+                            stmt.setString(parameter++, name);
+                        }
+                    }
+                    queryCount++;
+                    try (ResultSet resultSet = stmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            cacheRow(resultSet.getString(1), resultSet.getInt(2),
+                                    resultSet.getString(3), resultSet.getString(4));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            messageController.sendWarning("A problem with Database was found");
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
+    private void cacheRow(String nodeName, int weight, String leftName, String rightName) {
+        if (rows.containsKey(nodeName)) {
+            return;
+        }
+        rows.put(nodeName, new Row(nodeName, weight, leftName, rightName));
+        missing.remove(nodeName);
+        if (leftName != null) {
+            parents.putIfAbsent(leftName, nodeName);
+        }
+        if (rightName != null) {
+            parents.putIfAbsent(rightName, nodeName);
+        }
+    }
+
+    static String rowsQuery(int names) {
+        return "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ? AND nodename IN ("
+                + placeholders(names) + ")";
+    }
+
+    /**
+     * Two halves instead of "leftp IN (...) OR rightp IN (...)", so each
+     * can use its (leftp, treeName) / (rightp, treeName) index
+     */
+    static String parentsQuery(int names) {
+        String list = placeholders(names);
+        return "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ? AND leftp IN (" + list + ")"
+                + " UNION ALL "
+                + "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ? AND rightp IN (" + list + ")";
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            list.append(i == 0 ? "?" : ", ?");
+        }
+        return list.toString();
+    }
+
+    /**
+     * Drops the node cache (e.g. after the stored tree was saved again)
+     */
+    public void invalidate() {
+        rows.clear();
+        missing.clear();
+        parents.clear();
+        roots.clear();
+    }
+
+    /**
+     * @return number of queries sent so far
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return number of node rows in the cache
+     */
+    public int getCachedNodeCount() {
+        return rows.size();
+    }
+
+    public String getTreeName() {
+        return treeName;
+    }
+}
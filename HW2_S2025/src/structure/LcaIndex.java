@@ -0,0 +1,219 @@
+package structure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed Lowest Common Ancestor index over a TreeNode graph
+ * Built once in O(n log n) from an Euler tour and a sparse table,
+ * after which LCA and path length queries are answered in O(1)
+ * The index is a snapshot: it does not observe later changes to the nodes
+ */
+class LcaIndex {
+    private final TreeNode root;
+    private final Map<String, Integer> idsByName;
+    private final TreeNode[] nodes;
+    private final int[] depth;
+    private final int[] parent;
+    private final int[] firstVisit;
+    private final int[] euler;
+    private final int[][] sparse;
+    private final int size;
+
+    /**
+     * Builds the index with an iterative Euler tour (safe for deep trees)
+     * @param root root of the tree to index (must not be null)
+     */
+    LcaIndex(TreeNode root) {
+        this.root = root;
+        this.idsByName = new HashMap<>();
+
+        TreeNode[] nodeArray = new TreeNode[16];
+        int[] depthArray = new int[16];
+        int[] parentArray = new int[16];
+        int[] firstArray = new int[16];
+        int[] tour = new int[32];
+        int count = 0;
+        int tourLength = 0;
+
+        // Explicit DFS stack: node, its id and how many children were already visited
+        TreeNode[] stackNode = new TreeNode[16];
+        int[] stackId = new int[16];
+        int[] stackState = new int[16];
+        int top = 0;
+        stackNode[0] = root;
+        stackState[0] = 0;
+
+        while (top >= 0) {
+            TreeNode node = stackNode[top];
+            int state = stackState[top];
+
+            if (state == 0) {
+                // First visit: assign an id and record the node in the tour
+                if (count == nodeArray.length) {
+                    nodeArray = Arrays.copyOf(nodeArray, count * 2);
+                    depthArray = Arrays.copyOf(depthArray, count * 2);
+                    parentArray = Arrays.copyOf(parentArray, count * 2);
+                    firstArray = Arrays.copyOf(firstArray, count * 2);
+                }
+                int id = count++;
+                nodeArray[id] = node;
+                depthArray[id] = top;
+                parentArray[id] = (top > 0) ? stackId[top - 1] : -1;
+                idsByName.putIfAbsent(node.nodeName, id);
+                if (tourLength == tour.length) {
+                    tour = Arrays.copyOf(tour, tourLength * 2);
+                }
+                firstArray[id] = tourLength;
+                tour[tourLength++] = id;
+                stackId[top] = id;
+            }
+
+            TreeNode child = null;
+            if (state == 0) {
+                child = node.left;
+                stackState[top] = 1;
+                if (child == null) {
+                    continue;
+                }
+            } else if (state == 1) {
+                child = node.right;
+                stackState[top] = 2;
+                if (child == null) {
+                    continue;
+                }
+            } else {
+                // Both children done: return to the parent and record it again
+                top--;
+                if (top >= 0) {
+                    if (tourLength == tour.length) {
+                        tour = Arrays.copyOf(tour, tourLength * 2);
+                    }
+                    tour[tourLength++] = stackId[top];
+                }
+                continue;
+            }
+
+            top++;
+            if (top == stackNode.length) {
+                stackNode = Arrays.copyOf(stackNode, top * 2);
+                stackId = Arrays.copyOf(stackId, top * 2);
+                stackState = Arrays.copyOf(stackState, top * 2);
+            }
+            stackNode[top] = child;
+            stackState[top] = 0;
+        }
+
+        this.size = count;
+        this.nodes = Arrays.copyOf(nodeArray, count);
+        this.depth = Arrays.copyOf(depthArray, count);
+        this.parent = Arrays.copyOf(parentArray, count);
+        this.firstVisit = Arrays.copyOf(firstArray, count);
+        this.euler = Arrays.copyOf(tour, tourLength);
+        this.sparse = buildSparseTable(euler, depth);
+    }
+
+    /**
+     * Builds a sparse table where sparse[k][i] is the shallowest node
+     * in euler[i .. i + 2^k - 1]
+     */
+    private static int[][] buildSparseTable(int[] euler, int[] depth) {
+        int length = euler.length;
+        int levels = 32 - Integer.numberOfLeadingZeros(length);
+        int[][] table = new int[levels][];
+        table[0] = euler;
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int rows = length - (1 << k) + 1;
+            int[] previous = table[k - 1];
+            int[] current = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                int a = previous[i];
+                int b = previous[i + half];
+                current[i] = depth[a] <= depth[b] ? a : b;
+            }
+            table[k] = current;
+        }
+        return table;
+    }
+
+    /**
+     * @param nodeName name of the node
+     * @return node id or -1 if the name is not in the index
+     */
+    int idOf(String nodeName) {
+        Integer id = idsByName.get(nodeName);
+        return id == null ? -1 : id;
+    }
+
+    TreeNode nodeAt(int id) {
+        return nodes[id];
+    }
+
+    int depthOf(int id) {
+        return depth[id];
+    }
+
+    /**
+     * @return id of the parent node, or -1 for the root
+     */
+    int parentOf(int id) {
+        return parent[id];
+    }
+
+    /**
+     * Checks a node's live link against the snapshot, like NodeIndex.isLinked
+     * @return true if the node is still a child of its indexed parent (or is the root)
+     */
+    boolean isLinked(int id) {
+        TreeNode node = nodes[id];
+        if (parent[id] == -1) {
+            return node == root;
+        }
+        TreeNode indexedParent = nodes[parent[id]];
+        return indexedParent.left == node || indexedParent.right == node;
+    }
+
+    /**
+     * Finds the lowest common ancestor of two node ids in O(1)
+     * @return id of the LCA node
+     */
+    int lca(int u, int v) {
+        int left = firstVisit[u];
+        int right = firstVisit[v];
+        if (left > right) {
+            int tmp = left;
+            left = right;
+            right = tmp;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(right - left + 1);
+        int a = sparse[k][left];
+        int b = sparse[k][right - (1 << k) + 1];
+        return depth[a] <= depth[b] ? a : b;
+    }
+
+    /**
+     * Calculates the number of edges between two named nodes
+     * @return number of edges or -1 if one of the nodes is not indexed
+     */
+    int pathLength(String nodeX, String nodeY) {
+        int x = idOf(nodeX);
+        int y = idOf(nodeY);
+        if (x == -1 || y == -1) {
+            return -1;
+        }
+        return depth[x] + depth[y] - 2 * depth[lca(x, y)];
+    }
+
+    /**
+     * @return the root this index was built from (used to detect a replaced root)
+     */
+    TreeNode getRoot() {
+        return root;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,523 @@
+package structure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded implementation of ITreeLoader and ITreeSaver for running without
+ * a database: every save is appended to one log file
+ * Record: body length and CRC32 (4 bytes each), then the body - a type
+ * byte (save or delete), the tree name and, for a save, the TreeCodec bytes
+ * An in-memory index holds the offset of the latest record per tree, so a
+ * load is one positioned read; it is rebuilt by scanning the log on open,
+ * where a torn last record (crash during an append) is cut off
+ * Saves return once their record is on disk; the fsync runs outside the
+ * lock, and saves that append meanwhile are made durable together by the
+ * next one (group commit)
+ * Records of overwritten and deleted trees are dropped by compaction, which
+ * copies the live records to a new file and renames it over the log; it runs
+ * on save once dead records outweigh live ones, or through compact()
+ * Tree names are matched case-insensitively, like the database does
+ * Safe to use from several threads; one store per file. A thread interrupted
+ * inside a read, write or fsync closes the shared channel: its own call fails,
+ * the log is reopened and the other threads retry
+ */
+public class LogTreeStore implements ITreeLoader, ITreeSaver, Closeable {
+    static final int HEADER_BYTES = 8;
+    static final byte SAVE = 1;
+    static final byte DELETE = 2;
+    // Compaction is not worth it for small logs
+    static final long DEFAULT_COMPACTION_MIN_BYTES = 1 << 20;
+
+    private final Path file;
+    private final long compactionMinBytes;
+    // Appends and compaction take the write lock, loads the read lock; fsync takes neither
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> index = new HashMap<>();
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+
+    // Group commit: appended counts records written, synced those on disk
+    private final Object syncMonitor = new Object();
+    private long appended;
+    private long synced;
+    private boolean syncing;
+    private long syncCount;
+    private long compactionCount;
+
+    /**
+     * Latest record of a tree
+     */
+    private static final class Entry {
+        long recordOffset;
+        final int recordLength;
+        final int payloadStart; // from the record offset
+
+        Entry(long recordOffset, int recordLength, int payloadStart) {
+            this.recordOffset = recordOffset;
+            this.recordLength = recordLength;
+            this.payloadStart = payloadStart;
+        }
+    }
+
+    /**
+     * Opens the log, creating it if missing
+     * @param file the log file
+     */
+    public LogTreeStore(Path file) throws IOException {
+        this(file, DEFAULT_COMPACTION_MIN_BYTES);
+    }
+
+    /**
+     * @param file the log file
+     * @param compactionMinBytes log size below which saves do not compact
+     */
+    public LogTreeStore(Path file, long compactionMinBytes) throws IOException {
+        this.file = file;
+        this.compactionMinBytes = compactionMinBytes;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean created = !Files.exists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (created) {
+            syncDirectory();
+        }
+        recover();
+    }
+
+    /**
+     * Rebuilds the index from the log, cutting off a damaged tail
+     */
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        while (position < fileSize) {
+            header.clear();
+            if (!readFully(channel, header, position)) {
+                break;
+            }
+            int bodyLength = header.getInt(0);
+            int crc = header.getInt(4);
+            if (bodyLength < 3 || bodyLength > fileSize - position - HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            if (!readFully(channel, body, position + HEADER_BYTES) || (int) crcOf(body.array(), 0, bodyLength) != crc) {
+                break;
+            }
+            int nameLength = body.getShort(1) & 0xFFFF;
+            if (3 + nameLength > bodyLength) {
+                break;
+            }
+            String treeName = new String(body.array(), 3, nameLength, StandardCharsets.UTF_8);
+            apply(body.get(0), treeName, position, HEADER_BYTES + bodyLength, HEADER_BYTES + 3 + nameLength);
+            position += HEADER_BYTES + bodyLength;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        size = position;
+    }
+
+    /**
+     * Updates the index with a record at the end of the log
+     */
+    private void apply(byte type, String treeName, long offset, int recordLength, int payloadStart) {
+        Entry old = (type == SAVE)
+                ? index.put(keyOf(treeName), new Entry(offset, recordLength, payloadStart))
+                : index.remove(keyOf(treeName));
+        if (old != null) {
+            liveBytes -= old.recordLength;
+        }
+        if (type == SAVE) {
+            liveBytes += recordLength;
+        }
+    }
+
+    /**
+     * Loads a tree with one read of its latest record
+     * @param treeName the name of the tree to load
+     * @return the root TreeNode or null if no tree is stored under the name
+     */
+    @Override
+    public TreeNode loadTree(String treeName) throws Exception {
+        while (true) {
+            ByteBuffer payload;
+            FileChannel source;
+            ClosedChannelException closed = null;
+            lock.readLock().lock();
+            try {
+                ensureOpen();
+                Entry entry = index.get(keyOf(treeName));
+                if (entry == null) {
+                    return null;
+                }
+                payload = ByteBuffer.allocate(entry.recordLength - entry.payloadStart);
+                source = channel;
+                try {
+                    if (!readFully(source, payload, entry.recordOffset + entry.payloadStart)) {
+                        throw new IOException("Tree log ended inside the record of " + treeName);
+                    }
+                } catch (ClosedChannelException e) {
+                    closed = e;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (closed == null) {
+                return TreeCodec.decode(payload.array());
+            }
+            // Reopening takes the write lock, so only after releasing the read lock
+            reopenAfterInterrupt(source, closed);
+        }
+    }
+
+    @Override
+    public boolean treeExists(String treeName) throws Exception {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return index.containsKey(keyOf(treeName));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the tree to the log and waits until it is on disk
+     * @param treeName the name to save the tree under
+     * @param root the root node of the tree (null deletes the stored tree,
+     *             as an empty tree has no rows in the database)
+     */
+    @Override
+    public void saveTree(String treeName, TreeNode root) throws Exception {
+        byte[] name = treeName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("Tree name too long: " + treeName);
+        }
+        // Encode outside the lock; the header is filled in afterwards
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[HEADER_BYTES]);
+        out.write(root != null ? SAVE : DELETE);
+        out.write(name.length >>> 8);
+        out.write(name.length);
+        out.write(name);
+        if (root != null) {
+            TreeCodec.encode(root, out);
+        }
+        byte[] record = out.toByteArray();
+        int bodyLength = record.length - HEADER_BYTES;
+        ByteBuffer.wrap(record).putInt(0, bodyLength).putInt(4, (int) crcOf(record, HEADER_BYTES, bodyLength));
+
+        long sequence;
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (root == null && !index.containsKey(keyOf(treeName))) {
+                return; // nothing stored, no tombstone needed
+            }
+            long offset = size;
+            while (true) {
+                FileChannel target = channel;
+                try {
+                    writeFully(target, ByteBuffer.wrap(record), offset);
+                    break;
+                } catch (ClosedChannelException e) {
+                    reopenAfterInterrupt(target, e);
+                }
+            }
+            size += record.length;
+            apply(record[HEADER_BYTES], treeName, offset, record.length, HEADER_BYTES + 3 + name.length);
+            synchronized (syncMonitor) {
+                sequence = ++appended;
+            }
+            compact = size >= compactionMinBytes && size - liveBytes > liveBytes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(sequence);
+        if (compact) {
+            compact();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk
+     * The first waiter runs the fsync for everything appended so far;
+     * the others wait for it and usually find their record covered
+     */
+    private void awaitDurable(long sequence) throws IOException {
+        synchronized (syncMonitor) {
+            while (synced < sequence && syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the tree log to sync", e);
+                }
+            }
+            if (synced >= sequence) {
+                return;
+            }
+            syncing = true;
+        }
+        long target = 0;
+        boolean forced = false;
+        try {
+            while (!forced) {
+                FileChannel syncChannel;
+                lock.readLock().lock();
+                try {
+                    ensureOpen();
+                    syncChannel = channel;
+                    // Records up to here are fully written, as appends hold the write lock
+                    synchronized (syncMonitor) {
+                        target = appended;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                try {
+                    syncChannel.force(false);
+                    forced = true;
+                } catch (ClosedChannelException e) {
+                    // Compaction swapped the channel or an interrupt closed it:
+                    // sync the current file instead
+                    reopenAfterInterrupt(syncChannel, e);
+                }
+            }
+        } finally {
+            synchronized (syncMonitor) {
+                syncing = false;
+                if (forced && target > synced) {
+                    synced = target;
+                    syncCount++;
+                }
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reopens the log if an interrupt closed the given channel
+     * FileChannel closes itself for every thread when one is interrupted in
+     * read, write or force; callers retry on the current channel afterwards
+     * Takes the write lock, so it must not be called holding the read lock
+     * @throws ClosedChannelException the given one if this thread was interrupted
+     */
+    private void reopenAfterInterrupt(FileChannel closedChannel, ClosedChannelException e) throws IOException {
+        lock.writeLock().lock();
+        try {
+            // Not after close() (channel is null) or compaction (channel was swapped)
+            if (channel == closedChannel && !channel.isOpen()) {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (e instanceof ClosedByInterruptException || Thread.currentThread().isInterrupted()) {
+            throw e; // the interrupt status stays set
+        }
+    }
+
+    /**
+     * Syncs the directory of the log, so its creation or rename survives a crash
+     * Skipped where directories cannot be opened (e.g. Windows)
+     */
+    private void syncDirectory() {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform; the log contents are still synced
+        }
+    }
+
+    /**
+     * Rewrites the log with only the latest record of each stored tree
+     * Saves and loads wait while it runs
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (size == liveBytes) {
+                return;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".compact");
+            long position;
+            while (true) {
+                FileChannel source = channel;
+                try {
+                    position = copyLiveRecords(source, temp);
+                    break;
+                } catch (ClosedChannelException e) {
+                    reopenAfterInterrupt(source, e);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory();
+            channel.close();
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // Same order as written above
+            long offset = 0;
+            for (Entry entry : index.values()) {
+                entry.recordOffset = offset;
+                offset += entry.recordLength;
+            }
+            size = position;
+            liveBytes = position;
+            compactionCount++;
+            synchronized (syncMonitor) {
+                synced = appended; // every live record is in the synced file
+                syncMonitor.notifyAll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the latest record of each tree to a new file, in index order
+     * @return bytes copied
+     */
+    private long copyLiveRecords(FileChannel source, Path temp) throws IOException {
+        long position = 0;
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Entry entry : index.values()) {
+                long copied = 0;
+                while (copied < entry.recordLength) {
+                    copied += source.transferTo(entry.recordOffset + copied, entry.recordLength - copied, target);
+                }
+                position += entry.recordLength;
+            }
+            target.force(true);
+        }
+        return position;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static long crcOf(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+
+    private static String keyOf(String treeName) {
+        return treeName.toLowerCase(Locale.ROOT);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("Tree log is closed: " + file);
+        }
+    }
+
+    /**
+     * @return size of the log file in bytes
+     */
+    public long getLogSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of the records compaction would keep
+     */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of fsyncs run for saves (at most one per save)
+     */
+    public long getSyncCount() {
+        synchronized (syncMonitor) {
+            return syncCount;
+        }
+    }
+
+    public long getCompactionCount() {
+        lock.readLock().lock();
+        try {
+            return compactionCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the log file; later calls fail
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
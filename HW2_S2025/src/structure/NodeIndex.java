@@ -0,0 +1,132 @@
+package structure;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Name to node index for a TreeNode graph
+ * Fills in the parent pointer and depth of every indexed node so that
+ * lookups are O(1) and ancestor walks touch O(depth) nodes
+ * Edits done through attach() keep the index up to date
+ */
+class NodeIndex {
+    private final Map<String, TreeNode> nodesByName;
+    private final TreeWalker walker;
+    private TreeNode root;
+
+    /**
+     * Builds the index for the given tree
+     * @param root root of the tree (can be null)
+     */
+    NodeIndex(TreeNode root) {
+        this.nodesByName = new HashMap<>();
+        this.walker = new TreeWalker();
+        this.root = root;
+        if (root != null) {
+            index(root, null, 0);
+        }
+    }
+
+    /**
+     * @param nodeName name to look up
+     * @return indexed node or null if not indexed
+     */
+    TreeNode get(String nodeName) {
+        return nodesByName.get(nodeName);
+    }
+
+    TreeNode getRoot() {
+        return root;
+    }
+
+    int size() {
+        return nodesByName.size();
+    }
+
+    /**
+     * Replaces a child of parent (or the root when parent is null) and
+     * updates the index for the removed and the added subtree
+     * @param parent parent node, or null to replace the root
+     * @param child new subtree (can be null to remove the old one)
+     * @param left true to replace the left child, false for the right child
+     */
+    void attach(TreeNode parent, TreeNode child, boolean left) {
+        TreeNode old;
+        if (parent == null) {
+            old = root;
+            root = child;
+        } else if (left) {
+            old = parent.left;
+            parent.left = child;
+        } else {
+            old = parent.right;
+            parent.right = child;
+        }
+        if (old != null) {
+            unindex(old);
+        }
+        if (child != null) {
+            index(child, parent, parent == null ? 0 : parent.depth + 1);
+        }
+    }
+
+    /**
+     * Checks that the parent link of node matches the current child fields
+     * Detects edits made directly on TreeNode fields after indexing
+     */
+    boolean isLinked(TreeNode node) {
+        TreeNode parent = node.parent;
+        if (parent == null) {
+            return node == root;
+        }
+        return parent.left == node || parent.right == node;
+    }
+
+    /**
+     * Walks from node up to the root checking every parent link
+     * @return true if node is still reachable from the root
+     */
+    boolean isAttached(TreeNode node) {
+        TreeNode current = node;
+        while (current.parent != null) {
+            if (!isLinked(current)) {
+                return false;
+            }
+            current = current.parent;
+        }
+        return current == root;
+    }
+
+    /**
+     * Indexes a subtree, setting parent pointers and depths
+     */
+    private void index(TreeNode subtreeRoot, TreeNode parent, int depth) {
+        subtreeRoot.parent = parent;
+        subtreeRoot.depth = depth;
+        walker.startPreorder(subtreeRoot);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            nodesByName.putIfAbsent(node.nodeName, node);
+            if (node.left != null) {
+                node.left.parent = node;
+                node.left.depth = node.depth + 1;
+            }
+            if (node.right != null) {
+                node.right.parent = node;
+                node.right.depth = node.depth + 1;
+            }
+        }
+    }
+
+    /**
+     * Removes a detached subtree from the index
+     */
+    private void unindex(TreeNode subtreeRoot) {
+        subtreeRoot.parent = null;
+        walker.startPreorder(subtreeRoot);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            nodesByName.remove(node.nodeName, node);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package structure;
+
+/**
+ * Precomputed weighted path queries on top of an LcaIndex
+ * Keeps root-to-node weight prefix sums, so the weight sum of any path is
+ * answered in O(1), and binary lifting tables of path maxima/minima,
+ * so the heaviest and lightest node of a path are found in O(log n)
+ * Paths include both end nodes; the weights are those at build time
+ */
+class PathWeightIndex {
+    private final LcaIndex lcaIndex;
+    private final int[] weight;
+    private final long[] prefixSum;
+    // up[k][v]: 2^k-th ancestor of v (-1 above the root)
+    private final int[][] up;
+    // maxUp[k][v] / minUp[k][v]: max/min weight of the 2^k nodes from v upwards
+    // (v included, up[k][v] excluded)
+    private final int[][] maxUp;
+    private final int[][] minUp;
+
+    /**
+     * Builds the index in O(n log n)
+     * @param lcaIndex LCA index of the tree (ids are in preorder, parents first)
+     */
+    PathWeightIndex(LcaIndex lcaIndex) {
+        this.lcaIndex = lcaIndex;
+        int size = lcaIndex.size();
+        this.weight = new int[size];
+        this.prefixSum = new long[size];
+        for (int id = 0; id < size; id++) {
+            weight[id] = lcaIndex.nodeAt(id).weight;
+            int parent = lcaIndex.parentOf(id);
+            prefixSum[id] = weight[id] + (parent == -1 ? 0 : prefixSum[parent]);
+        }
+
+        int maxDepth = 0;
+        for (int id = 0; id < size; id++) {
+            maxDepth = Math.max(maxDepth, lcaIndex.depthOf(id));
+        }
+        int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDepth));
+        this.up = new int[levels][size];
+        this.maxUp = new int[levels][size];
+        this.minUp = new int[levels][size];
+        for (int id = 0; id < size; id++) {
+            up[0][id] = lcaIndex.parentOf(id);
+            maxUp[0][id] = weight[id];
+            minUp[0][id] = weight[id];
+        }
+        for (int k = 1; k < levels; k++) {
+            for (int id = 0; id < size; id++) {
+                int middle = up[k - 1][id];
+                if (middle == -1) {
+                    up[k][id] = -1;
+                    maxUp[k][id] = maxUp[k - 1][id];
+                    minUp[k][id] = minUp[k - 1][id];
+                } else {
+                    up[k][id] = up[k - 1][middle];
+                    maxUp[k][id] = Math.max(maxUp[k - 1][id], maxUp[k - 1][middle]);
+                    minUp[k][id] = Math.min(minUp[k - 1][id], minUp[k - 1][middle]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return sum of the weights on the path, both ends included
+     */
+    long pathWeight(int x, int y) {
+        int lca = lcaIndex.lca(x, y);
+        return prefixSum[x] + prefixSum[y] - 2 * prefixSum[lca] + weight[lca];
+    }
+
+    /**
+     * @return largest weight on the path, both ends included
+     */
+    int pathMaxWeight(int x, int y) {
+        int lca = lcaIndex.lca(x, y);
+        return Math.max(weight[lca], Math.max(climbMax(x, lca), climbMax(y, lca)));
+    }
+
+    /**
+     * @return smallest weight on the path, both ends included
+     */
+    int pathMinWeight(int x, int y) {
+        int lca = lcaIndex.lca(x, y);
+        return Math.min(weight[lca], Math.min(climbMin(x, lca), climbMin(y, lca)));
+    }
+
+    /**
+     * Max weight from node up to (not including) its ancestor
+     */
+    private int climbMax(int node, int ancestor) {
+        int steps = lcaIndex.depthOf(node) - lcaIndex.depthOf(ancestor);
+        int result = Integer.MIN_VALUE;
+        for (int k = 0; steps > 0; k++, steps >>>= 1) {
+            if ((steps & 1) != 0) {
+                result = Math.max(result, maxUp[k][node]);
+                node = up[k][node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Min weight from node up to (not including) its ancestor
+     */
+    private int climbMin(int node, int ancestor) {
+        int steps = lcaIndex.depthOf(node) - lcaIndex.depthOf(ancestor);
+        int result = Integer.MAX_VALUE;
+        for (int k = 0; steps > 0; k++, steps >>>= 1) {
+            if ((steps & 1) != 0) {
+                result = Math.min(result, minUp[k][node]);
+                node = up[k][node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the node still has the weight the index was built with
+     */
+    boolean hasWeight(int id) {
+        return weight[id] == lcaIndex.nodeAt(id).weight;
+    }
+
+    /**
+     * @return the LCA index this index was built on (used to detect stale indexes)
+     */
+    LcaIndex getLcaIndex() {
+        return lcaIndex;
+    }
+}
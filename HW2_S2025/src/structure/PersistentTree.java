@@ -0,0 +1,393 @@
+package structure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable tree version with structural sharing
+ * An edit copies only the path from the root to the changed node (path
+ * copying); every untouched subtree is shared with the version it was
+ * derived from, so keeping a version costs O(1) and an edit allocates
+ * O(depth) nodes (finding the node by name is still a walk of the tree)
+ * Every node carries the stamp of the version that created it, so the
+ * rows a version adds since an earlier version are found without
+ * comparing whole trees (see TreeSaverDB.saveVersion)
+ * Versions are safe to share between threads
+ */
+public final class PersistentTree {
+    // Stamps are unique across all versions, so branches never reuse one
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    private final Node root;
+    private final long stamp;
+    // Stamps of this version and the versions it was derived from (newest first)
+    private final Lineage lineage;
+
+    /**
+     * Immutable node; children may be shared by several versions
+     */
+    static final class Node {
+        final String nodeName;
+        final int weight;
+        final Node left;
+        final Node right;
+        final long stamp;
+
+        Node(String nodeName, int weight, Node left, Node right, long stamp) {
+            this.nodeName = nodeName;
+            this.weight = weight;
+            this.left = left;
+            this.right = right;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class Lineage {
+        final long stamp;
+        final Lineage previous;
+
+        Lineage(long stamp, Lineage previous) {
+            this.stamp = stamp;
+            this.previous = previous;
+        }
+    }
+
+    private PersistentTree(Node root, long stamp, Lineage previous) {
+        this.root = root;
+        this.stamp = stamp;
+        this.lineage = new Lineage(stamp, previous);
+    }
+
+    /**
+     * @return an empty first version
+     */
+    public static PersistentTree empty() {
+        return new PersistentTree(null, STAMPS.incrementAndGet(), null);
+    }
+
+    /**
+     * Creates a first version from a mutable tree (the nodes are copied)
+     * @param root root of the tree (can be null for empty tree)
+     */
+    public static PersistentTree of(TreeNode root) {
+        long stamp = STAMPS.incrementAndGet();
+        return new PersistentTree(convert(root, stamp), stamp, null);
+    }
+
+    /**
+     * @return the version stamp, larger for later versions
+     */
+    public long getVersion() {
+        return stamp;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return true if a node with this name exists
+     */
+    public boolean contains(String nodeName) {
+        return pathTo(nodeName) != null;
+    }
+
+    /**
+     * @return weight of the node or null if not found
+     */
+    public Integer getWeight(String nodeName) {
+        List<Node> path = pathTo(nodeName);
+        return (path == null) ? null : path.get(path.size() - 1).weight;
+    }
+
+    /**
+     * Returns a version where the node has a new weight
+     * @return the new version, or this version if the node was not found
+     *         or already has this weight
+     */
+    public PersistentTree withWeight(String nodeName, int weight) {
+        List<Node> path = pathTo(nodeName);
+        if (path == null) {
+            return this;
+        }
+        Node node = path.get(path.size() - 1);
+        if (node.weight == weight) {
+            return this;
+        }
+        long nextStamp = STAMPS.incrementAndGet();
+        return derive(path, new Node(node.nodeName, weight, node.left, node.right, nextStamp), nextStamp);
+    }
+
+    /**
+     * Returns a version where the parent's left subtree is replaced
+     * Like Tree.setLeftChild, the nodes of child are copied
+     * @param child new left subtree (can be null to remove it)
+     * @return the new version, or this version if the parent was not found
+     */
+    public PersistentTree withLeftChild(String parentName, TreeNode child) {
+        List<Node> path = pathTo(parentName);
+        if (path == null) {
+            return this;
+        }
+        Node parent = path.get(path.size() - 1);
+        long nextStamp = STAMPS.incrementAndGet();
+        Node replacement = new Node(parent.nodeName, parent.weight, convert(child, nextStamp), parent.right, nextStamp);
+        return derive(path, replacement, nextStamp);
+    }
+
+    /**
+     * Returns a version where the parent's right subtree is replaced
+     * @param child new right subtree (can be null to remove it)
+     * @return the new version, or this version if the parent was not found
+     */
+    public PersistentTree withRightChild(String parentName, TreeNode child) {
+        List<Node> path = pathTo(parentName);
+        if (path == null) {
+            return this;
+        }
+        Node parent = path.get(path.size() - 1);
+        long nextStamp = STAMPS.incrementAndGet();
+        Node replacement = new Node(parent.nodeName, parent.weight, parent.left, convert(child, nextStamp), nextStamp);
+        return derive(path, replacement, nextStamp);
+    }
+
+    /**
+     * Returns a version holding a different tree, derived from this one
+     * (so changesSince still works across the replacement)
+     * @param root root of the new tree (can be null for empty tree)
+     */
+    public PersistentTree withRoot(TreeNode root) {
+        long nextStamp = STAMPS.incrementAndGet();
+        return new PersistentTree(convert(root, nextStamp), nextStamp, lineage);
+    }
+
+    /**
+     * Copies the path above the replaced node; everything else is shared
+     * @param path nodes from the root down to the replaced node
+     */
+    private PersistentTree derive(List<Node> path, Node replacement, long nextStamp) {
+        Node child = replacement;
+        for (int i = path.size() - 2; i >= 0; i--) {
+            Node parent = path.get(i);
+            if (parent.left == path.get(i + 1)) {
+                child = new Node(parent.nodeName, parent.weight, child, parent.right, nextStamp);
+            } else {
+                child = new Node(parent.nodeName, parent.weight, parent.left, child, nextStamp);
+            }
+        }
+        return new PersistentTree(child, nextStamp, lineage);
+    }
+
+    /**
+     * Finds the nodes from the root down to the named node (iterative preorder)
+     * @return the path, or null if the node was not found
+     */
+    private List<Node> pathTo(String nodeName) {
+        if (root == null) {
+            return null;
+        }
+        List<Node> path = new ArrayList<>();
+        // 0: node not visited yet, 1: walking its left subtree, 2: walking its right subtree
+        List<Integer> states = new ArrayList<>();
+        path.add(root);
+        states.add(0);
+        while (!path.isEmpty()) {
+            int top = path.size() - 1;
+            Node node = path.get(top);
+            int state = states.get(top);
+            if (state == 0) {
+                if (node.nodeName.equals(nodeName)) {
+                    return path;
+                }
+                states.set(top, 1);
+                if (node.left != null) {
+                    path.add(node.left);
+                    states.add(0);
+                }
+            } else if (state == 1) {
+                states.set(top, 2);
+                if (node.right != null) {
+                    path.add(node.right);
+                    states.add(0);
+                }
+            } else {
+                path.remove(top);
+                states.remove(top);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if this version is base or was derived from it
+     */
+    public boolean isDerivedFrom(PersistentTree base) {
+        for (Lineage l = lineage; l != null && l.stamp >= base.stamp; l = l.previous) {
+            if (l.stamp == base.stamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rows to write so that the stored base version becomes this version
+     * Only nodes created after base are visited, plus the base nodes that
+     * were replaced or removed; shared subtrees are skipped
+     * @param base earlier version this one was derived from
+     * @return inserts and changed rows in preorder, and the removed node names
+     * @throws IllegalArgumentException if this version was not derived from base
+     */
+    TreeDiff changesSince(PersistentTree base) {
+        if (!isDerivedFrom(base)) {
+            throw new IllegalArgumentException("Version " + stamp + " was not derived from version " + base.stamp);
+        }
+
+        // New nodes of this version, and the older (shared) nodes they point to
+        List<Node> added = new ArrayList<>();
+        Set<Node> shared = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        Deque<Node> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.stamp <= base.stamp) {
+                // Old nodes never point to newer ones, so the whole subtree is shared
+                shared.add(node);
+                continue;
+            }
+            added.add(node);
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+        }
+
+        // Base nodes that are no longer shared were replaced or removed
+        Map<String, Node> replaced = new HashMap<>();
+        if (base.root != null) {
+            stack.push(base.root);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (shared.contains(node)) {
+                continue;
+            }
+            replaced.putIfAbsent(node.nodeName, node);
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+        }
+
+        Set<String> addedNames = new HashSet<>();
+        List<TreeDiff.Row> inserts = new ArrayList<>();
+        List<TreeDiff.Row> updates = new ArrayList<>();
+        boolean linksChanged = false;
+        for (Node node : added) {
+            if (!addedNames.add(node.nodeName)) {
+                continue; // node name is the row key, so only the first one is kept
+            }
+            TreeDiff.Row row = rowOf(node);
+            Node old = replaced.get(node.nodeName);
+            if (old == null) {
+                inserts.add(row);
+            } else if (!rowOf(old).sameAs(row)) {
+                // Copied path nodes usually keep their row and are not written
+                updates.add(row);
+                linksChanged |= !rowOf(old).sameLinksAs(row);
+            }
+        }
+        List<String> deletes = new ArrayList<>();
+        for (String nodeName : replaced.keySet()) {
+            if (!addedNames.contains(nodeName)) {
+                deletes.add(nodeName);
+            }
+        }
+        return TreeDiff.of(inserts, updates, deletes, linksChanged);
+    }
+
+    private static TreeDiff.Row rowOf(Node node) {
+        return new TreeDiff.Row(node.nodeName, node.weight,
+                node.left != null ? node.left.nodeName : null,
+                node.right != null ? node.right.nodeName : null);
+    }
+
+    /**
+     * Copies this version into mutable nodes (e.g. for Tree.setRoot)
+     * Parent pointers of the copy are set, like TreeNode.copyOf
+     * @return root of the copy, or null for an empty tree
+     */
+    public TreeNode toTreeNode() {
+        if (root == null) {
+            return null;
+        }
+        TreeNode copyRoot = new TreeNode(root.nodeName, root.weight);
+        Deque<Node> sources = new ArrayDeque<>();
+        Deque<TreeNode> copies = new ArrayDeque<>();
+        sources.push(root);
+        copies.push(copyRoot);
+        while (!sources.isEmpty()) {
+            Node source = sources.pop();
+            TreeNode copy = copies.pop();
+            if (source.left != null) {
+                copy.left = new TreeNode(source.left.nodeName, source.left.weight);
+                copy.left.parent = copy;
+                sources.push(source.left);
+                copies.push(copy.left);
+            }
+            if (source.right != null) {
+                copy.right = new TreeNode(source.right.nodeName, source.right.weight);
+                copy.right.parent = copy;
+                sources.push(source.right);
+                copies.push(copy.right);
+            }
+        }
+        return copyRoot;
+    }
+
+    /**
+     * Copies a mutable tree into nodes with the given stamp
+     * Children are built before their parents (reverse preorder)
+     */
+    private static Node convert(TreeNode root, long stamp) {
+        if (root == null) {
+            return null;
+        }
+        List<TreeNode> preorder = new ArrayList<>();
+        TreeWalker walker = new TreeWalker();
+        walker.startPreorder(root);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            preorder.add(node);
+        }
+        IdentityHashMap<TreeNode, Node> converted = new IdentityHashMap<>();
+        for (int i = preorder.size() - 1; i >= 0; i--) {
+            TreeNode source = preorder.get(i);
+            converted.put(source, new Node(source.nodeName, source.weight,
+                    converted.get(source.left), converted.get(source.right), stamp));
+        }
+        return converted.get(root);
+    }
+
+    /**
+     * @return the root node (shared, never modified)
+     */
+    Node getRoot() {
+        return root;
+    }
+}
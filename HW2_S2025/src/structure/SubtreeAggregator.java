@@ -0,0 +1,88 @@
+package structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task that aggregates a subtree
+ * Each task walks its subtree with an explicit stack (safe for deep trees)
+ * A task that has already visited SPLIT_THRESHOLD nodes is working on a
+ * large subtree, so from then on it forks the right subtree of nodes with
+ * two children while the pool has few queued tasks; small subtrees are
+ * never split
+ */
+class SubtreeAggregator extends RecursiveTask<TreeAggregate> {
+    private static final long serialVersionUID = 1L;
+    static final int SPLIT_THRESHOLD = 4096;
+    // Stop forking while this many forked tasks are still waiting to be stolen
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private final TreeNode root;
+
+    SubtreeAggregator(TreeNode root) {
+        this.root = root;
+    }
+
+    @Override
+    protected TreeAggregate compute() {
+        if (root == null) {
+            return TreeAggregate.EMPTY;
+        }
+        int size = 0;
+        int height = 0;
+        long totalWeight = 0;
+        int maxWeight = Integer.MIN_VALUE;
+        int minWeight = Integer.MAX_VALUE;
+
+        List<SubtreeAggregator> forked = new ArrayList<>();
+        List<Integer> forkedDepths = new ArrayList<>();
+
+        TreeNode[] nodes = new TreeNode[16];
+        int[] depths = new int[16];
+        int top = 0;
+        nodes[0] = root;
+        depths[0] = 0;
+        while (top >= 0) {
+            TreeNode node = nodes[top];
+            int depth = depths[top];
+            top--;
+
+            size++;
+            totalWeight += node.weight;
+            maxWeight = Math.max(maxWeight, node.weight);
+            minWeight = Math.min(minWeight, node.weight);
+            height = Math.max(height, depth);
+
+            TreeNode right = node.right;
+            if (right != null && node.left != null && size >= SPLIT_THRESHOLD
+                    && getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+                SubtreeAggregator task = new SubtreeAggregator(right);
+                task.fork();
+                forked.add(task);
+                forkedDepths.add(depth + 1);
+                right = null;
+            }
+            if (top + 2 >= nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            if (right != null) {
+                nodes[++top] = right;
+                depths[top] = depth + 1;
+            }
+            if (node.left != null) {
+                nodes[++top] = node.left;
+                depths[top] = depth + 1;
+            }
+        }
+
+        TreeAggregate result = new TreeAggregate(size, height, totalWeight, maxWeight, minWeight);
+        // Join newest first, those are the most likely to still be in our own queue
+        for (int i = forked.size() - 1; i >= 0; i--) {
+            result = result.merge(forked.get(i).join(), forkedDepths.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,205 @@
+package structure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline Tarjan LCA for answering many path length queries at once
+ * All queries are answered during a single iterative traversal using
+ * union-find, so the total cost is O(n + q * alpha(n))
+ */
+final class TarjanLca {
+
+    private TarjanLca() {
+    }
+
+    /**
+     * Calculates the path length (number of edges) for every pair
+     * @param root root of the tree (can be null)
+     * @param pairs list of {nodeX, nodeY} name pairs
+     * @return path length per pair, -1 where a node was not found
+     */
+    static int[] pathLengths(TreeNode root, List<String[]> pairs) {
+        int queryCount = pairs.size();
+        int[] results = new int[queryCount];
+        Arrays.fill(results, -1);
+        if (root == null || queryCount == 0) {
+            return results;
+        }
+
+        // Group query endpoints by node name: slot -> linked list of query ends
+        Map<String, Integer> slots = new HashMap<>();
+        int[] slotHead = new int[16];
+        Arrays.fill(slotHead, -1);
+        int[] endNext = new int[2 * queryCount];
+        int[] endQuery = new int[2 * queryCount];
+        int[] endOtherSlot = new int[2 * queryCount];
+        int endCount = 0;
+
+        for (int q = 0; q < queryCount; q++) {
+            String[] pair = pairs.get(q);
+            if (pair == null || pair.length < 2 || pair[0] == null || pair[1] == null) {
+                continue;
+            }
+            int slotX = slotFor(slots, pair[0]);
+            int slotY = slotFor(slots, pair[1]);
+            if (slots.size() > slotHead.length) {
+                int oldLength = slotHead.length;
+                slotHead = Arrays.copyOf(slotHead, oldLength * 2);
+                Arrays.fill(slotHead, oldLength, slotHead.length, -1);
+            }
+            endQuery[endCount] = q;
+            endOtherSlot[endCount] = slotY;
+            endNext[endCount] = slotHead[slotX];
+            slotHead[slotX] = endCount++;
+
+            endQuery[endCount] = q;
+            endOtherSlot[endCount] = slotX;
+            endNext[endCount] = slotHead[slotY];
+            slotHead[slotY] = endCount++;
+        }
+        if (endCount == 0) {
+            return results;
+        }
+
+        int slotCount = slots.size();
+        int[] slotNode = new int[slotCount];
+        Arrays.fill(slotNode, -1);
+        boolean[] slotDone = new boolean[slotCount];
+
+        // Per node arrays, grown on demand since the tree size is not known
+        int capacity = 16;
+        int[] unionParent = new int[capacity];
+        int[] unionRank = new int[capacity];
+        int[] ancestor = new int[capacity];
+        int[] depth = new int[capacity];
+        int nodeCount = 0;
+
+        TreeNode[] stackNode = new TreeNode[16];
+        int[] stackId = new int[16];
+        int[] stackSlot = new int[16];
+        int[] stackState = new int[16];
+        int top = 0;
+        stackNode[0] = root;
+
+        while (top >= 0) {
+            TreeNode node = stackNode[top];
+            int state = stackState[top];
+            TreeNode child;
+
+            if (state == 0) {
+                if (nodeCount == capacity) {
+                    capacity *= 2;
+                    unionParent = Arrays.copyOf(unionParent, capacity);
+                    unionRank = Arrays.copyOf(unionRank, capacity);
+                    ancestor = Arrays.copyOf(ancestor, capacity);
+                    depth = Arrays.copyOf(depth, capacity);
+                }
+                int id = nodeCount++;
+                unionParent[id] = id;
+                ancestor[id] = id;
+                depth[id] = top;
+                stackId[top] = id;
+
+                // Only the first node with a queried name answers for that name
+                Integer slot = slots.get(node.nodeName);
+                if (slot != null && slotNode[slot] == -1) {
+                    slotNode[slot] = id;
+                    stackSlot[top] = slot;
+                } else {
+                    stackSlot[top] = -1;
+                }
+                child = node.left;
+                stackState[top] = 1;
+            } else if (state == 1) {
+                child = node.right;
+                stackState[top] = 2;
+            } else {
+                int id = stackId[top];
+                int slot = stackSlot[top];
+                if (slot != -1) {
+                    slotDone[slot] = true;
+                    for (int end = slotHead[slot]; end != -1; end = endNext[end]) {
+                        int other = endOtherSlot[end];
+                        if (slotDone[other]) {
+                            int otherId = slotNode[other];
+                            int lca = ancestor[find(unionParent, otherId)];
+                            results[endQuery[end]] = depth[id] + depth[otherId] - 2 * depth[lca];
+                        }
+                    }
+                }
+
+                top--;
+                if (top >= 0) {
+                    // Merge the finished subtree into its parent's set
+                    int parentId = stackId[top];
+                    int merged = union(unionParent, unionRank, parentId, id);
+                    ancestor[merged] = parentId;
+                }
+                continue;
+            }
+
+            if (child != null) {
+                top++;
+                if (top == stackNode.length) {
+                    stackNode = Arrays.copyOf(stackNode, top * 2);
+                    stackId = Arrays.copyOf(stackId, top * 2);
+                    stackSlot = Arrays.copyOf(stackSlot, top * 2);
+                    stackState = Arrays.copyOf(stackState, top * 2);
+                }
+                stackNode[top] = child;
+                stackState[top] = 0;
+            }
+        }
+
+        return results;
+    }
+
+    private static int slotFor(Map<String, Integer> slots, String nodeName) {
+        Integer slot = slots.get(nodeName);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(nodeName, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Iterative find with path compression
+     */
+    private static int find(int[] parent, int x) {
+        int rootId = x;
+        while (parent[rootId] != rootId) {
+            rootId = parent[rootId];
+        }
+        while (parent[x] != rootId) {
+            int next = parent[x];
+            parent[x] = rootId;
+            x = next;
+        }
+        return rootId;
+    }
+
+    /**
+     * Union by rank
+     * @return the representative of the merged set
+     */
+    private static int union(int[] parent, int[] rank, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) {
+            return rootA;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+            return rootB;
+        }
+        if (rank[rootA] == rank[rootB]) {
+            rank[rootA]++;
+        }
+        parent[rootB] = rootA;
+        return rootA;
+    }
+}
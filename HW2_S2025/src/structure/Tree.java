@@ -1,27 +1,50 @@
 package structure;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Binary tree data structure with database persistence
  * Uses dependency injection for external dependencies
  */
 public class Tree {
+    /** Returned by weighted path queries when a node was not found */
+    public static final long NO_PATH = Long.MIN_VALUE;
+    private static final int PATH_SUM = 0;
+    private static final int STALE_ENDPOINT = -2;
+    private static final int PATH_MAX = 1;
+    private static final int PATH_MIN = 2;
+    
     String treeName;
     TreeNode root;
     private IMessageController messageController;
     private ITreeLoader treeLoader;
     private ITreeSaver treeSaver;
+    private LcaIndex lcaIndex;
+    private NodeIndex nodeIndex;
+    private PathWeightIndex pathWeightIndex;
+    private HeavyLightDecomposition heavyLight;
+    private AsyncTreeAdapter asyncAdapter;
+    private ITreeMetrics metrics = ITreeMetrics.NOOP;
+    // One reusable walker per thread, so concurrent readers do not share a stack
+    private static final ThreadLocal<TreeWalker> WALKERS = ThreadLocal.withInitial(TreeWalker::new);
 
     /**
      * Default constructor - uses real implementations
      * Creates TreeBuilderDB with message controller for proper dependency injection
+     * Loader and saver share one connection pool, so repeated operations reuse connections
      */
     public Tree(String name) {
         this.treeName = name;
         this.root = null;
         this.messageController = new MessageController();
+        ConnectionPool pool = ConnectionPool.shared();
         // Pass message controller to TreeBuilderDB
-        this.treeLoader = new TreeBuilderDB(messageController);
-        this.treeSaver = new TreeSaverDB();
+        this.treeLoader = new TreeBuilderDB(pool, messageController);
+        this.treeSaver = new TreeSaverDB(pool);
     }
     
     /**
@@ -38,7 +61,9 @@ public class Tree {
     }
 
     /**
-     * Finds a node by name using recursive search
+     * Finds a node by name
+     * Uses the name index when the node lies under current,
+     * otherwise falls back to an iterative preorder search
      * @param current starting node for search
      * @param nodeName name to search for
      * @return found node or null
@@ -47,19 +72,37 @@ public class Tree {
         if (current == null) {
             return null;
         }
-        if (current.nodeName.equals(nodeName)) {
-            return current;
+        TreeNode indexed = lookupNode(nodeName);
+        if (indexed != null && distanceFromAncestor(current, indexed) != -1) {
+            return indexed;
         }
-        TreeNode leftSearch = findNode(current.left, nodeName);
-        if (leftSearch != null) {
-            return leftSearch;
+        TreeNode found = searchNode(current, nodeName);
+        if (found != null && indexed == null && current == root) {
+            // Node added by a direct field edit, rebuild the index on next lookup
+            nodeIndex = null;
+        }
+        return found;
+    }
+
+    /**
+     * Preorder search used when the name index cannot answer
+     */
+    private TreeNode searchNode(TreeNode current, String nodeName) {
+        TreeWalker walker = WALKERS.get();
+        walker.startPreorder(current);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            if (node.nodeName.equals(nodeName)) {
+                walker.clear(); // the walker outlives this tree: drop its nodes
+                return node;
+            }
         }
-        return findNode(current.right, nodeName);
+        return null;
     }
 
     /**
      * Finds the Lowest Common Ancestor (LCA) of two nodes
-     * @param current current node in recursion
+     * @param current node to start the search from
      * @param nodeX first node name
      * @param nodeY second node name
      * @return LCA node or null if not found
@@ -68,21 +111,90 @@ public class Tree {
         if (current == null) {
             return null;
         }
-        if (current.nodeName.equals(nodeX) || current.nodeName.equals(nodeY)) {
-            return current;
+        if (current == root) {
+            LcaIndex index = currentLcaIndex();
+            if (index != null) {
+                return findLCAWithIndex(index, nodeX, nodeY);
+            }
+            TreeNode x = lookupNode(nodeX);
+            TreeNode y = lookupNode(nodeY);
+            if (x != null && y != null) {
+                TreeNode lca = walkToLCA(x, y);
+                if (lca != null) {
+                    return lca;
+                }
+            }
         }
+        return searchLCA(current, nodeX, nodeY);
+    }
+
+    /**
+     * Searches the LCA with explicit stack frames instead of recursion
+     * Frame state: 0 = entered, 1 = left subtree done, 2 = right subtree done;
+     * the left subtree result is kept in the frame until the right one returns
+     */
+    private TreeNode searchLCA(TreeNode current, String nodeX, String nodeY) {
+        TreeWalker walker = WALKERS.get();
+        walker.clear();
+        walker.push(current, 0);
+        TreeNode returned = null;
 
-        TreeNode leftLCA = findLCA(current.left, nodeX, nodeY);
-        TreeNode rightLCA = findLCA(current.right, nodeX, nodeY);
+        while (!walker.isEmpty()) {
+            TreeNode node = walker.peekNode();
+            int state = walker.peekValue();
 
-        if (leftLCA != null && rightLCA != null) {
-            return current;
+            if (state == 0) {
+                if (node.nodeName.equals(nodeX) || node.nodeName.equals(nodeY)) {
+                    returned = node;
+                    walker.pop();
+                    continue;
+                }
+                walker.setValue(1);
+                returned = null;
+                if (node.left != null) {
+                    walker.push(node.left, 0);
+                }
+            } else if (state == 1) {
+                walker.setResult(returned);
+                walker.setValue(2);
+                returned = null;
+                if (node.right != null) {
+                    walker.push(node.right, 0);
+                }
+            } else {
+                TreeNode leftLCA = walker.peekResult();
+                TreeNode rightLCA = returned;
+                walker.pop();
+                if (leftLCA != null && rightLCA != null) {
+                    returned = node;
+                } else {
+                    returned = (leftLCA != null) ? leftLCA : rightLCA;
+                }
+            }
+        }
+        return returned;
+    }
+
+    /**
+     * Answers findLCA from the precomputed index
+     * Keeps the recursive semantics: if only one node exists, that node is returned
+     */
+    private TreeNode findLCAWithIndex(LcaIndex index, String nodeX, String nodeY) {
+        int x = index.idOf(nodeX);
+        int y = index.idOf(nodeY);
+        if (x != -1 && y != -1) {
+            return index.nodeAt(index.lca(x, y));
         }
-        return (leftLCA != null) ? leftLCA : rightLCA;
+        if (x != -1) {
+            return index.nodeAt(x);
+        }
+        return (y != -1) ? index.nodeAt(y) : null;
     }
 
     /**
      * Calculates distance from a node to target
+     * Uses the name index when the target lies under current,
+     * otherwise falls back to an iterative preorder search
      * @param current starting node
      * @param targetNode target node name
      * @param distance current distance
@@ -92,33 +204,78 @@ public class Tree {
         if (current == null) {
             return -1;
         }
-        if (current.nodeName.equals(targetNode)) {
-            return distance;
+        TreeNode indexed = lookupNode(targetNode);
+        if (indexed != null) {
+            int steps = distanceFromAncestor(current, indexed);
+            if (steps != -1) {
+                return distance + steps;
+            }
         }
+        return searchDistance(current, targetNode, distance);
+    }
 
-        int leftDistance = calculateDistance(current.left, targetNode, distance + 1);
-        if (leftDistance != -1) {
-            return leftDistance;
+    /**
+     * Preorder distance search used when the name index cannot answer
+     */
+    private int searchDistance(TreeNode current, String targetNode, int distance) {
+        TreeWalker walker = WALKERS.get();
+        walker.startPreorder(current);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            if (node.nodeName.equals(targetNode)) {
+                int found = distance + walker.depth();
+                walker.clear(); // the walker outlives this tree: drop its nodes
+                return found;
+            }
         }
-
-        return calculateDistance(current.right, targetNode, distance  + 1);
+        return -1;
     }
 
     /**
      * Calculates the path length between two nodes (number of edges)
+     * Timed as a QUERY when metrics are enabled (see setMetrics)
      * @param nodeX first node name
      * @param nodeY second node name
      * @return number of edges or -1 if error
      */
     public int calculatePathLength(String nodeX, String nodeY) {
+        if (!metrics.isEnabled()) {
+            return pathLength(nodeX, nodeY);
+        }
+        long start = System.nanoTime();
+        int pathLength = pathLength(nodeX, nodeY);
+        metrics.record(ITreeMetrics.Operation.QUERY, treeName, System.nanoTime() - start);
+        return pathLength;
+    }
+
+    private int pathLength(String nodeX, String nodeY) {
         if (root == null) {
-            System.out.println("The tree is empty.");
+            metrics.event("The tree is empty.");
             return -1;
         }
 
+        LcaIndex index = currentLcaIndex();
+        if (index != null) {
+            int pathLength = index.pathLength(nodeX, nodeY);
+            if (pathLength == -1) {
+                metrics.event("One or both of the nodes were not found.");
+            }
+            return pathLength;
+        }
+
+        // Walk up from both endpoints using parent pointers: O(depth)
+        TreeNode x = lookupNode(nodeX);
+        TreeNode y = lookupNode(nodeY);
+        if (x != null && y != null) {
+            TreeNode walkedLCA = walkToLCA(x, y);
+            if (walkedLCA != null) {
+                return x.depth + y.depth - 2 * walkedLCA.depth;
+            }
+        }
+
         TreeNode lca = findLCA(root, nodeX, nodeY);
         if (lca == null) {
-            System.out.println("One or both of the nodes were not found.");
+            metrics.event("One or both of the nodes were not found.");
             return -1;
         }
 
@@ -126,22 +283,49 @@ public class Tree {
         int distanceToY = calculateDistance(lca, nodeY, 0);
 
         if (distanceToX == -1 || distanceToY == -1) {
-            System.out.println("One or both of the nodes were not found.");
+            metrics.event("One or both of the nodes were not found.");
             return -1;
         }
 
         return distanceToX + distanceToY;
     }
 
+    /**
+     * Calculates the path length for many node pairs at once
+     * Answers all pairs in one traversal (offline Tarjan LCA) instead of
+     * one full search per pair, and does not print anything per pair
+     * @param pairs list of {nodeX, nodeY} name pairs
+     * @return path length per pair (same order), -1 where a node was not found
+     */
+    public int[] calculatePathLengths(List<String[]> pairs) {
+        LcaIndex index = currentLcaIndex();
+        if (index == null) {
+            return TarjanLca.pathLengths(root, pairs);
+        }
+
+        int[] results = new int[pairs.size()];
+        for (int i = 0; i < results.length; i++) {
+            String[] pair = pairs.get(i);
+            boolean valid = pair != null && pair.length >= 2 && pair[0] != null && pair[1] != null;
+            results[i] = valid ? index.pathLength(pair[0], pair[1]) : -1;
+        }
+        return results;
+    }
+
     /**
      * Builds the tree from database using injected loader
      * Delegates to ITreeLoader implementation
      */
     public void buildTreeFromDatabase() {
         try {
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
             this.root = treeLoader.loadTree(this.treeName);
+            invalidateIndexes();
+            if (metrics.isEnabled()) {
+                metrics.record(ITreeMetrics.Operation.LOAD, treeName, System.nanoTime() - start);
+            }
             if (this.root == null) {
-                System.out.println("No tree found with name: " + this.treeName);
+                metrics.event("No tree found with name: " + this.treeName);
             }
         } catch (Exception e) {
             messageController.sendWarning("Failed to build tree from database");
@@ -156,17 +340,24 @@ public class Tree {
      */
     public void saveTreeInDatabase(String treeName) {
         try {
-            // Check if tree exists for logging purposes
+            if (!metrics.isEnabled()) {
+                treeSaver.saveTree(treeName, this.root);
+                return;
+            }
+            
+            // Check if tree exists for logging purposes (an extra query, so only with metrics)
             boolean exists = treeLoader.treeExists(treeName);
             
             // Save the tree (will overwrite if exists)
+            long start = System.nanoTime();
             treeSaver.saveTree(treeName, this.root);
+            metrics.record(ITreeMetrics.Operation.SAVE, treeName, System.nanoTime() - start);
             
             // Log appropriate message
             if (exists) {
-                System.out.println("Updated existing tree: " + treeName);
+                metrics.event("Updated existing tree: " + treeName);
             } else {
-                System.out.println("Created new tree: " + treeName);
+                metrics.event("Created new tree: " + treeName);
             }
         } catch (Exception e) {
             messageController.sendWarning("Failed to save tree to database");
@@ -189,15 +380,86 @@ public class Tree {
         }
     }
     
+    /**
+     * Builds the tree from database without blocking the calling thread
+     * The loader runs on the async executor (see setAsyncExecutor); the root
+     * is replaced when the load completes, so do not use this tree from
+     * other threads until the returned future is done
+     * @return future that completes when the root is set, or exceptionally
+     *         (after a warning) if the load fails
+     */
+    public CompletableFuture<Void> buildTreeFromDatabaseAsync() {
+        return asyncAdapter().loadTreeAsync(this.treeName).handle((loaded, error) -> {
+            if (error != null) {
+                messageController.sendWarning("Failed to build tree from database");
+                throw (error instanceof CompletionException) ? (CompletionException) error : new CompletionException(error);
+            }
+            this.root = loaded;
+            invalidateIndexes();
+            if (loaded == null) {
+                metrics.event("No tree found with name: " + this.treeName);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Saves the tree to database without blocking the calling thread
+     * A copy of the current nodes is saved, so the tree can be edited
+     * while the save runs; unlike saveTreeInDatabase no existence check
+     * is made for logging
+     * @param treeName name to save as
+     * @return future that completes when the save is committed, or
+     *         exceptionally (after a warning) if it fails
+     */
+    public CompletableFuture<Void> saveTreeInDatabaseAsync(String treeName) {
+        return asyncAdapter().saveTreeAsync(treeName, this.root).whenComplete((ignored, error) -> {
+            if (error != null) {
+                messageController.sendWarning("Failed to save tree to database");
+            }
+        });
+    }
+    
+    /**
+     * Sets the executor used by the async database methods
+     * e.g. Executors.newVirtualThreadPerTaskExecutor() on JDK 21+;
+     * by default a small shared pool of daemon threads is used
+     */
+    public void setAsyncExecutor(Executor executor) {
+        this.asyncAdapter = new AsyncTreeAdapter(treeLoader, treeSaver, executor);
+    }
+    
+    /**
+     * Sets where timings and messages of this tree go
+     * (path length, weighted path, load and save operations)
+     * @param metrics e.g. a TreeMetrics; ITreeMetrics.NOOP (the default) disables them
+     */
+    public void setMetrics(ITreeMetrics metrics) {
+        this.metrics = (metrics == null) ? ITreeMetrics.NOOP : metrics;
+    }
+    
+    public ITreeMetrics getMetrics() {
+        return metrics;
+    }
+    
+    private AsyncTreeAdapter asyncAdapter() {
+        if (asyncAdapter == null) {
+            asyncAdapter = new AsyncTreeAdapter(treeLoader, treeSaver);
+        }
+        return asyncAdapter;
+    }
+    
     /**
      * Performs inorder traversal of the tree
+     * Uses an explicit stack, so deep trees do not overflow the call stack
      * @param node starting node
      */
     public void inorderTraversal(TreeNode node) {
-        if (node != null) {
-            inorderTraversal(node.left);
-            System.out.println("Node: " + node.nodeName + ", Weight: " + node.weight);
-            inorderTraversal(node.right);
+        TreeWalker walker = WALKERS.get();
+        walker.startInorder(node);
+        TreeNode current;
+        while ((current = walker.nextInorder()) != null) {
+            System.out.println("Node: " + current.nodeName + ", Weight: " + current.weight);
         }
     }
     
@@ -212,6 +474,394 @@ public class Tree {
         }
     }
     
+    /**
+     * Sums the weights of all nodes on the path between two nodes,
+     * both end nodes included (a node with itself gives its own weight)
+     * Answered in O(1) from root-to-node prefix sums; the first weighted
+     * query builds the LCA and path weight indexes
+     * After updateWeight, answered in O(log^2 n) by the heavy-light decomposition
+     * Both endpoints are checked against the live nodes (link and weight) and a
+     * stale index is rebuilt; after editing interior nodes of a path directly
+     * call invalidateIndexes()
+     * @param nodeX first node name
+     * @param nodeY second node name
+     * @return weight sum or NO_PATH if the tree is empty or a node was not found
+     */
+    public long calculateWeightedPathLength(String nodeX, String nodeY) {
+        return weightedPathQuery(nodeX, nodeY, PATH_SUM);
+    }
+    
+    /**
+     * Finds the largest weight on the path between two nodes (ends included)
+     * O(log n) per query after the indexes are built, O(log^2 n) after updateWeight
+     * @return max weight or NO_PATH if the tree is empty or a node was not found
+     */
+    public long findPathMaxWeight(String nodeX, String nodeY) {
+        return weightedPathQuery(nodeX, nodeY, PATH_MAX);
+    }
+    
+    /**
+     * Finds the smallest weight on the path between two nodes (ends included)
+     * O(log n) per query after the indexes are built, O(log^2 n) after updateWeight
+     * @return min weight or NO_PATH if the tree is empty or a node was not found
+     */
+    public long findPathMinWeight(String nodeX, String nodeY) {
+        return weightedPathQuery(nodeX, nodeY, PATH_MIN);
+    }
+    
+    /**
+     * Answers a weighted path query from the heavy-light decomposition if
+     * weights were updated, otherwise from the prefix sum index
+     */
+    private long weightedPathQuery(String nodeX, String nodeY, int query) {
+        if (!metrics.isEnabled()) {
+            return answerWeightedPathQuery(nodeX, nodeY, query);
+        }
+        long start = System.nanoTime();
+        long result = answerWeightedPathQuery(nodeX, nodeY, query);
+        metrics.record(ITreeMetrics.Operation.QUERY, treeName, System.nanoTime() - start);
+        return result;
+    }
+    
+    private long answerWeightedPathQuery(String nodeX, String nodeY, int query) {
+        if (root == null) {
+            return NO_PATH;
+        }
+        HeavyLightDecomposition heavyLight = currentHeavyLight();
+        if (heavyLight != null) {
+            LcaIndex ids = heavyLight.getLcaIndex();
+            int x = endpointId(ids, nodeX);
+            int y = endpointId(ids, nodeY);
+            if (x == STALE_ENDPOINT || y == STALE_ENDPOINT) {
+                if (lcaIndex == ids) {
+                    lcaIndex = null;
+                }
+                this.heavyLight = null;
+            } else if ((x >= 0 && !heavyLight.hasWeight(x)) || (y >= 0 && !heavyLight.hasWeight(y))) {
+                this.heavyLight = null;
+            } else if (x < 0 || y < 0) {
+                return NO_PATH;
+            } else if (query == PATH_SUM) {
+                return heavyLight.pathSum(x, y);
+            } else {
+                return (query == PATH_MAX) ? heavyLight.pathMax(x, y) : heavyLight.pathMin(x, y);
+            }
+            // Edited directly: updateWeight also wrote the nodes, so
+            // rebuilt prefix sums answer until the next updateWeight
+        }
+        
+        PathWeightIndex index = currentPathWeightIndex();
+        LcaIndex ids = index.getLcaIndex();
+        int x = endpointId(ids, nodeX);
+        int y = endpointId(ids, nodeY);
+        if (x == STALE_ENDPOINT || y == STALE_ENDPOINT) {
+            // Relinked by a direct field edit: the shared LCA index is stale too
+            if (lcaIndex == ids) {
+                lcaIndex = null;
+            }
+            pathWeightIndex = null;
+        } else if ((x >= 0 && !index.hasWeight(x)) || (y >= 0 && !index.hasWeight(y))) {
+            pathWeightIndex = null;
+        }
+        if (pathWeightIndex == null) {
+            index = currentPathWeightIndex();
+            x = index.getLcaIndex().idOf(nodeX);
+            y = index.getLcaIndex().idOf(nodeY);
+        }
+        if (x < 0 || y < 0) {
+            return NO_PATH;
+        }
+        if (query == PATH_SUM) {
+            return index.pathWeight(x, y);
+        }
+        return (query == PATH_MAX) ? index.pathMaxWeight(x, y) : index.pathMinWeight(x, y);
+    }
+    
+    /**
+     * Looks an endpoint up in the ids of a weighted index, checking its link
+     * the way NodeIndex does; a name only the live tree knows was added by a
+     * direct field edit, so the index is stale as well
+     * @return node id, -1 if the tree has no such node, or STALE_ENDPOINT
+     */
+    private int endpointId(LcaIndex ids, String nodeName) {
+        int id = ids.idOf(nodeName);
+        if (id == -1) {
+            return (findNode(root, nodeName) == null) ? -1 : STALE_ENDPOINT;
+        }
+        return ids.isLinked(id) ? id : STALE_ENDPOINT;
+    }
+    
+    /**
+     * Changes the weight of a node
+     * The TreeNode itself is updated, so saveTreeInDatabase persists the
+     * new weight; weighted path queries switch to a heavy-light decomposition
+     * that takes each update in O(log n) instead of rebuilding prefix sums
+     * @param nodeName name of the node
+     * @param weight new weight
+     * @return true if the node was found
+     */
+    public boolean updateWeight(String nodeName, int weight) {
+        if (root == null) {
+            return false;
+        }
+        HeavyLightDecomposition heavyLight = currentHeavyLight();
+        if (heavyLight != null && endpointId(heavyLight.getLcaIndex(), nodeName) == STALE_ENDPOINT) {
+            // Relinked by a direct field edit, decompose the live tree again
+            if (lcaIndex == heavyLight.getLcaIndex()) {
+                lcaIndex = null;
+            }
+            heavyLight = null;
+        }
+        if (heavyLight == null) {
+            LcaIndex index = currentLcaIndex();
+            heavyLight = new HeavyLightDecomposition((index != null) ? index : new LcaIndex(root));
+            this.heavyLight = heavyLight;
+        }
+        int id = heavyLight.getLcaIndex().idOf(nodeName);
+        if (id == -1) {
+            return false;
+        }
+        heavyLight.getLcaIndex().nodeAt(id).weight = weight;
+        heavyLight.update(id, weight);
+        // Prefix sums no longer match the weights
+        this.pathWeightIndex = null;
+        return true;
+    }
+    
+    /**
+     * Returns the heavy-light decomposition only if it matches the current root
+     * Like the prefix sum index it keeps its LCA index private; queries and
+     * updates also check their endpoints and drop it on a direct edit
+     */
+    private HeavyLightDecomposition currentHeavyLight() {
+        if (heavyLight != null && heavyLight.getLcaIndex().getRoot() != root) {
+            heavyLight = null;
+        }
+        return heavyLight;
+    }
+    
+    /**
+     * Returns the path weight index for the current root, building it if needed
+     * Its LCA index is kept private to it: the weighted query must not make
+     * calculatePathLength and findLCA trust links edited directly afterwards
+     * (root must not be null)
+     */
+    private PathWeightIndex currentPathWeightIndex() {
+        if (pathWeightIndex == null || pathWeightIndex.getLcaIndex().getRoot() != root) {
+            LcaIndex index = currentLcaIndex();
+            pathWeightIndex = new PathWeightIndex((index != null) ? index : new LcaIndex(root));
+        }
+        return pathWeightIndex;
+    }
+    
+    /**
+     * Computes size, height and weight statistics of the whole tree
+     * Large subtrees are split across the common fork-join pool
+     * @return aggregates of the tree (TreeAggregate with size 0 if empty)
+     */
+    public TreeAggregate aggregate() {
+        return aggregate(this.root);
+    }
+    
+    private static TreeAggregate aggregate(TreeNode node) {
+        if (node == null) {
+            return TreeAggregate.EMPTY;
+        }
+        return ForkJoinPool.commonPool().invoke(new SubtreeAggregator(node));
+    }
+    
+    /**
+     * @return number of nodes in the tree
+     */
+    public int size() {
+        return aggregate().getSize();
+    }
+    
+    /**
+     * @return number of edges on the longest root-to-leaf path, -1 if empty
+     */
+    public int height() {
+        return aggregate().getHeight();
+    }
+    
+    /**
+     * @return sum of all node weights
+     */
+    public long totalWeight() {
+        return aggregate().getTotalWeight();
+    }
+    
+    /**
+     * Aggregates the subtree under the named node
+     * @param nodeName root of the subtree
+     * @return aggregates of the subtree or null if the node was not found
+     */
+    public TreeAggregate aggregateSubtree(String nodeName) {
+        TreeNode node = findNode(this.root, nodeName);
+        return (node == null) ? null : aggregate(node);
+    }
+    
+    /**
+     * Sums the weights of the named node and all its descendants
+     * @param nodeName root of the subtree
+     * @return weight sum or -1 if the node was not found
+     */
+    public long subtreeWeightSum(String nodeName) {
+        TreeAggregate subtree = aggregateSubtree(nodeName);
+        return (subtree == null) ? -1 : subtree.getTotalWeight();
+    }
+    
+    /**
+     * Looks a name up in the name index, building the index if needed
+     * @return indexed node or null if the name is not indexed
+     */
+    private TreeNode lookupNode(String nodeName) {
+        NodeIndex index = currentNodeIndex();
+        return (index == null) ? null : index.get(nodeName);
+    }
+
+    /**
+     * Returns the name index for the current root, rebuilding it if the root changed
+     */
+    private NodeIndex currentNodeIndex() {
+        if (root == null) {
+            nodeIndex = null;
+        } else if (nodeIndex == null || nodeIndex.getRoot() != root) {
+            nodeIndex = new NodeIndex(root);
+        }
+        return nodeIndex;
+    }
+
+    /**
+     * Counts the edges from ancestor down to node by following parent pointers
+     * Every link is checked; a stale link drops the name index
+     * @return number of edges, or -1 if node is not under ancestor
+     */
+    private int distanceFromAncestor(TreeNode ancestor, TreeNode node) {
+        int steps = 0;
+        TreeNode current = node;
+        while (current != ancestor) {
+            if (!nodeIndex.isLinked(current)) {
+                nodeIndex = null;
+                return -1;
+            }
+            if (current.parent == null) {
+                return -1;
+            }
+            current = current.parent;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Finds the LCA of two indexed nodes by walking up from both endpoints
+     * @return LCA node, or null if a stale link was found (the index is dropped)
+     */
+    private TreeNode walkToLCA(TreeNode x, TreeNode y) {
+        NodeIndex index = nodeIndex;
+        while (x != y) {
+            if (x.depth >= y.depth) {
+                if (x.parent == null || !index.isLinked(x)) {
+                    nodeIndex = null;
+                    return null;
+                }
+                x = x.parent;
+            } else {
+                if (y.parent == null || !index.isLinked(y)) {
+                    nodeIndex = null;
+                    return null;
+                }
+                y = y.parent;
+            }
+        }
+        if (!index.isAttached(x)) {
+            nodeIndex = null;
+            return null;
+        }
+        return x;
+    }
+
+    /**
+     * Replaces the left child of the named node, keeping the name index up to date
+     * @param parentName name of the parent node
+     * @param child new left subtree (null removes the current one)
+     * @return true if the parent was found
+     */
+    public boolean setLeftChild(String parentName, TreeNode child) {
+        return setChild(parentName, child, true);
+    }
+
+    /**
+     * Replaces the right child of the named node, keeping the name index up to date
+     * @param parentName name of the parent node
+     * @param child new right subtree (null removes the current one)
+     * @return true if the parent was found
+     */
+    public boolean setRightChild(String parentName, TreeNode child) {
+        return setChild(parentName, child, false);
+    }
+
+    private boolean setChild(String parentName, TreeNode child, boolean left) {
+        TreeNode parent = findNode(root, parentName);
+        if (parent == null) {
+            return false;
+        }
+        currentNodeIndex().attach(parent, child, left);
+        this.lcaIndex = null;
+        this.pathWeightIndex = null;
+        this.heavyLight = null;
+        return true;
+    }
+
+    /**
+     * Builds the optional LCA index from the current root
+     * Afterwards findLCA (from root) and calculatePathLength answer in O(1)
+     * The index is dropped by any mutation done through Tree; after editing
+     * TreeNode fields directly call invalidateIndexes()
+     */
+    public void buildLcaIndex() {
+        this.lcaIndex = (this.root == null) ? null : new LcaIndex(this.root);
+    }
+
+    /**
+     * Drops all precomputed indexes
+     * The name index is rebuilt on the next lookup, the LCA index on request
+     * or by the next weighted path query
+     */
+    public void invalidateIndexes() {
+        this.lcaIndex = null;
+        this.nodeIndex = null;
+        this.pathWeightIndex = null;
+        this.heavyLight = null;
+    }
+
+    /**
+     * @return true if an LCA index is built and matches the current root
+     */
+    public boolean hasLcaIndex() {
+        return currentLcaIndex() != null;
+    }
+
+    /**
+     * Returns the LCA index only if it was built for the current root
+     */
+    private LcaIndex currentLcaIndex() {
+        if (lcaIndex != null && lcaIndex.getRoot() != root) {
+            lcaIndex = null;
+        }
+        return lcaIndex;
+    }
+
+    /**
+     * Replaces the root of the tree and drops precomputed indexes
+     * @param root new root node (can be null for empty tree)
+     */
+    public void setRoot(TreeNode root) {
+        this.root = root;
+        invalidateIndexes();
+    }
+
     // Getter methods
     public TreeNode getRoot() {
         return this.root;
@@ -0,0 +1,79 @@
+package structure;
+
+/**
+ * Whole-subtree aggregates computed in one pass (see Tree.aggregate)
+ * Immutable; an empty tree has size 0, height -1 and total weight 0
+ */
+public final class TreeAggregate {
+    static final TreeAggregate EMPTY = new TreeAggregate(0, -1, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    private final int size;
+    private final int height;
+    private final long totalWeight;
+    private final int maxWeight;
+    private final int minWeight;
+
+    TreeAggregate(int size, int height, long totalWeight, int maxWeight, int minWeight) {
+        this.size = size;
+        this.height = height;
+        this.totalWeight = totalWeight;
+        this.maxWeight = maxWeight;
+        this.minWeight = minWeight;
+    }
+
+    /**
+     * Combines with the aggregate of a subtree whose root lies depthOffset
+     * edges below the root of this one
+     */
+    TreeAggregate merge(TreeAggregate subtree, int depthOffset) {
+        if (subtree.size == 0) {
+            return this;
+        }
+        return new TreeAggregate(size + subtree.size,
+                Math.max(height, depthOffset + subtree.height),
+                totalWeight + subtree.totalWeight,
+                Math.max(maxWeight, subtree.maxWeight),
+                Math.min(minWeight, subtree.minWeight));
+    }
+
+    /**
+     * @return number of nodes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of edges on the longest root-to-leaf path, -1 if empty
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return sum of all weights (as long, so large trees do not overflow)
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return largest weight, Integer.MIN_VALUE if empty
+     */
+    public int getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return smallest weight, Integer.MAX_VALUE if empty
+     */
+    public int getMinWeight() {
+        return minWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeAggregate[size=" + size + ", height=" + height + ", totalWeight=" + totalWeight
+                + ", maxWeight=" + maxWeight + ", minWeight=" + minWeight + "]";
+    }
+}
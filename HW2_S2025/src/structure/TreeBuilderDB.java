@@ -1,99 +1,153 @@
 package structure;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import javax.sql.DataSource;
 
 /**
  * Real implementation of ITreeLoader for database operations
  * Loads tree structures from MySQL database
  * Receives IMessageController through constructor injection
+ * Connections come from a DataSource (by default the shared ConnectionPool)
  */
 public class TreeBuilderDB implements ITreeLoader {
-    private String connectionUrl;
-    private String username;
-    private String password;
+    // Tree names per IN (...) query, keeps statements well below packet limits
+    static final int IN_QUERY_PARTITION = 500;
+    
+    private DataSource dataSource;
     private IMessageController messageController;
+    private ITreeMetrics metrics = ITreeMetrics.NOOP;
+    // Set once a query finds no world.tree_closure table (a database older than it)
+    private volatile boolean closureTableMissing = false;
+    
+    /**
+     * Constructor with a DataSource (e.g. a ConnectionPool shared with TreeSaverDB)
+     */
+    public TreeBuilderDB(DataSource dataSource, IMessageController messageController) {
+        this.dataSource = dataSource;
+        this.messageController = messageController;
+    }
     
     /**
      * Full constructor with all parameters including message controller
+     * Uses the pool shared by all loaders/savers with the same parameters
      */
     public TreeBuilderDB(String connectionUrl, String username, String password, 
                         IMessageController messageController) {
-        this.connectionUrl = connectionUrl;
-        this.username = username;
-        this.password = password;
-        this.messageController = messageController;
+        this(ConnectionPool.shared(connectionUrl, username, password), messageController);
     }
     
     /**
      * Constructor with message controller (uses default connection parameters)
      */
     public TreeBuilderDB(IMessageController messageController) {
-        this("jdbc:mysql://localhost/world?serverTimezone=IST", 
-             "root", "Aa123456", messageController);
+        this(ConnectionPool.shared(), messageController);
+    }
+    
+    /**
+     * Sets where load timings go (ITreeMetrics.NOOP, the default, disables them)
+     */
+    public void setMetrics(ITreeMetrics metrics) {
+        this.metrics = (metrics == null) ? ITreeMetrics.NOOP : metrics;
     }
     
     /**
      * Loads a tree from the database
+     * Reads the rows in a single forward-only streaming pass; child links
+     * to rows that arrive later are resolved after the last row
      * @param treeName the name of the tree to load
      * @return the root TreeNode or null if empty/error
      */
     @Override
     public TreeNode loadTree(String treeName) throws Exception {
-        Map<String, TreeNode> nodeMap = new HashMap<>();
-        TreeNode root = null;
-        
-        // Load JDBC driver
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver").newInstance();
-            System.out.println("Driver definition succeed");
-        } catch (Exception ex) {
-            System.out.println("Driver definition failed");
-            messageController.sendWarning("Database driver initialization failed");
-            throw new Exception("Driver definition failed", ex);
-        }
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        TreeRowAssembler assembler = new TreeRowAssembler();
         
-        // Connect and query database
-        try (Connection connection = DriverManager.getConnection(connectionUrl, username, password)) {
+        // Borrow a pooled connection (driver is registered once by the pool)
+        try (Connection connection = dataSource.getConnection()) {
             
             // Using PreparedStatement for better security (prevents SQL injection)
-            String query = "SELECT * FROM world.tree WHERE treeName = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            String query = "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ?";
+            try (PreparedStatement stmt = prepareStreaming(connection, query)) {
                 stmt.setString(1, treeName);
                 
                 try (ResultSet resultSet = stmt.executeQuery()) {
-                    // First pass: Create all nodes
+                    // Single pass: each column is read once per row
                     while (resultSet.next()) {
-                        String nodeName = resultSet.getString("nodename");
-                        int weight = resultSet.getInt("weight");
-                        nodeMap.put(nodeName, new TreeNode(nodeName, weight));
+                        assembler.addRow(resultSet.getString(1), resultSet.getInt(2),
+                                resultSet.getString(3), resultSet.getString(4));
                     }
-                    
-                    // Reset cursor for second pass
-                    resultSet.beforeFirst();
-                    
-                    // Second pass: Link nodes based on relationships
-                    while (resultSet.next()) {
-                        String nodeName = resultSet.getString("nodename");
-                        String leftName = resultSet.getString("leftp");
-                        String rightName = resultSet.getString("rightp");
-                        
-                        TreeNode currentNode = nodeMap.get(nodeName);
-                        
-                        // Link left child
-                        if (leftName != null && nodeMap.containsKey(leftName)) {
-                            currentNode.left = nodeMap.get(leftName);
-                        }
-                        
-                        // Link right child
-                        if (rightName != null && nodeMap.containsKey(rightName)) {
-                            currentNode.right = nodeMap.get(rightName);
-                        }
-                        
-                        // Set root (first node encountered)
-                        if (root == null) {
-                            root = currentNode;
+                }
+            }
+        } catch (SQLException e) {
+            messageController.sendWarning("A problem with Database was found");
+            e.printStackTrace();
+            throw e;
+        }
+        
+        // Resolve deferred child links and find the root
+        TreeNode root = assembler.build();
+        if (metrics.isEnabled()) {
+            metrics.record(ITreeMetrics.Operation.LOAD, treeName, System.nanoTime() - start);
+        }
+        return root;
+    }
+    
+    /**
+     * Loads many trees with one query per IN_QUERY_PARTITION names
+     * (a single round trip for up to that many trees) on one connection
+     * Rows of all trees come in one streaming pass and are sorted into one
+     * TreeRowAssembler per tree, so the cost follows the number of rows,
+     * not the number of trees
+     * Tree names are matched like the database does (case-insensitive)
+     * @param treeNames names of the trees to load
+     * @return root per requested name, in request order (null if no rows were found)
+     */
+    @Override
+    public Map<String, TreeNode> loadTrees(Collection<String> treeNames) throws Exception {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(treeNames));
+        if (names.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Map<String, TreeRowAssembler> assemblers = new HashMap<>();
+        // One name per match key: case variants in different partitions
+        // would otherwise feed the same assembler twice
+        List<String> queryNames = new ArrayList<>();
+        for (String treeName : names) {
+            if (assemblers.putIfAbsent(matchKey(treeName), new TreeRowAssembler()) == null) {
+                queryNames.add(treeName);
+            }
+        }
+        
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < queryNames.size(); from += IN_QUERY_PARTITION) {
+                List<String> partition = queryNames.subList(from, Math.min(queryNames.size(), from + IN_QUERY_PARTITION));
+                try (PreparedStatement stmt = prepareStreaming(connection, inQuery(partition.size()))) {
+                    for (int i = 0; i < partition.size(); i++) {
+                        stmt.setString(i + 1, partition.get(i));
+                    }
+                    try (ResultSet resultSet = stmt.executeQuery()) {
+                        String currentTree = null;
+                        TreeRowAssembler current = null;
+                        while (resultSet.next()) {
+                            String treeName = resultSet.getString(1);
+                            // Rows of one tree usually come together, look up only on change
+                            if (!treeName.equals(currentTree)) {
+                                currentTree = treeName;
+                                current = assemblers.get(matchKey(treeName));
+                            }
+                            if (current != null) {
+                                current.addRow(resultSet.getString(2), resultSet.getInt(3),
+                                        resultSet.getString(4), resultSet.getString(5));
+                            }
                         }
                     }
                 }
@@ -104,7 +158,136 @@ public class TreeBuilderDB implements ITreeLoader {
             throw e;
         }
         
-        return root;
+        Map<String, TreeNode> roots = new HashMap<>();
+        for (Map.Entry<String, TreeRowAssembler> entry : assemblers.entrySet()) {
+            roots.put(entry.getKey(), entry.getValue().build());
+        }
+        Map<String, TreeNode> trees = new LinkedHashMap<>();
+        for (String treeName : names) {
+            trees.put(treeName, roots.get(matchKey(treeName)));
+        }
+        if (metrics.isEnabled()) {
+            metrics.record(ITreeMetrics.Operation.LOAD, null, System.nanoTime() - start);
+        }
+        return trees;
+    }
+    
+    private static String matchKey(String treeName) {
+        return treeName.toLowerCase(Locale.ROOT);
+    }
+    
+    static String inQuery(int names) {
+        StringBuilder query = new StringBuilder(
+                "SELECT treeName, nodename, weight, leftp, rightp FROM world.tree WHERE treeName IN (");
+        for (int i = 0; i < names; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        return query.append(')').toString();
+    }
+    
+    /**
+     * Prepares a forward-only, read-only statement that streams rows
+     * MySQL Connector/J streams row by row only with fetch size Integer.MIN_VALUE;
+     * other drivers get a regular fetch size hint
+     */
+    static PreparedStatement prepareStreaming(Connection connection, String query) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            if ("MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            } else {
+                stmt.setFetchSize(1000);
+            }
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        return stmt;
+    }
+    
+    /**
+     * Calculates a path length with one query on world.tree_closure
+     * (a primary key lookup per ancestor of either node, see ClosureTable)
+     * Trees without closure rows (TreeSaverDB.setMaintainClosureTable), or
+     * whose rows no longer match world.tree, are loaded and answered in
+     * memory instead; so are all trees if world.tree_closure does not exist
+     * (checked by the first query)
+     * @param treeName the name of the tree
+     * @return number of edges or -1 if the tree or a node was not found
+     */
+    @Override
+    public int queryPathLength(String treeName, String nodeX, String nodeY) throws Exception {
+        if (closureTableMissing) {
+            return ITreeLoader.super.queryPathLength(treeName, nodeX, nodeY);
+        }
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        try (Connection connection = dataSource.getConnection()) {
+            Integer pathLength;
+            try {
+                pathLength = ClosureTable.pathLength(connection, treeName, nodeX, nodeY);
+            } catch (SQLException e) {
+                if (!ClosureTable.isMissingTable(e)) {
+                    throw e;
+                }
+                closureTableMissing = true;
+                return ITreeLoader.super.queryPathLength(treeName, nodeX, nodeY);
+            }
+            if (pathLength == null && ClosureTable.isNodeMissing(connection, treeName, nodeX, nodeY)) {
+                pathLength = -1; // no need to load the tree
+            }
+            if (pathLength != null) {
+                if (metrics.isEnabled()) {
+                    metrics.record(ITreeMetrics.Operation.QUERY, treeName, System.nanoTime() - start);
+                }
+                return pathLength;
+            }
+        } catch (SQLException e) {
+            messageController.sendWarning("A problem with Database was found");
+            e.printStackTrace();
+            throw e;
+        }
+        return ITreeLoader.super.queryPathLength(treeName, nodeX, nodeY);
+    }
+    
+    /**
+     * Opens a tree for on-demand reading: nothing is loaded until a query
+     * needs it, so path queries on a small region of a huge tree read only
+     * the rows they visit
+     * @param treeName the name of the tree
+     * @return lazy view of the tree, sharing this loader's connections
+     */
+    public LazyTree openLazyTree(String treeName) {
+        return new LazyTree(dataSource, treeName, messageController);
+    }
+    
+    /**
+     * Loads a tree from the database directly into the compact
+     * structure-of-arrays representation, without creating TreeNode objects
+     * Rows are read in a single forward pass; child names are resolved by id
+     * @param treeName the name of the tree to load
+     * @return the loaded tree (empty if no rows were found)
+     */
+    public CompactTree loadCompactTree(String treeName) throws Exception {
+        CompactTree.Builder builder = new CompactTree.Builder();
+        try (Connection connection = dataSource.getConnection()) {
+            String query = "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ?";
+            try (PreparedStatement stmt = prepareStreaming(connection, query)) {
+                stmt.setString(1, treeName);
+                try (ResultSet resultSet = stmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        builder.addNode(resultSet.getString(1), resultSet.getInt(2),
+                                resultSet.getString(3), resultSet.getString(4));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            messageController.sendWarning("A problem with Database was found");
+            e.printStackTrace();
+            throw e;
+        }
+        
+        return builder.build();
     }
     
     /**
@@ -114,14 +297,7 @@ public class TreeBuilderDB implements ITreeLoader {
      */
     @Override
     public boolean treeExists(String treeName) throws Exception {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver").newInstance();
-        } catch (Exception ex) {
-            messageController.sendWarning("Database driver initialization failed");
-            throw new Exception("Driver definition failed", ex);
-        }
-        
-        try (Connection connection = DriverManager.getConnection(connectionUrl, username, password)) {
+        try (Connection connection = dataSource.getConnection()) {
             String query = "SELECT COUNT(*) FROM world.tree WHERE treeName = ?";
             try (PreparedStatement stmt = connection.prepareStatement(query)) {
                 stmt.setString(1, treeName);
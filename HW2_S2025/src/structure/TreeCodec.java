@@ -0,0 +1,231 @@
+package structure;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a tree, written and read as a stream
+ * Layout: the magic bytes 'T' 'B', a version byte, then the nodes in preorder
+ * Each node is a tag byte (has left, has right, new name), its name and
+ * its weight as a zigzag varint
+ * A name is written once, as a varint length and UTF-8 bytes; later nodes
+ * with the same name refer to it by a varint dictionary id
+ * The tags give the shape, so no child names or counts are stored, and
+ * decoding stops right after the last node (trees can follow each other)
+ * Streams are used byte by byte: pass buffered streams
+ */
+public final class TreeCodec {
+    static final int MAGIC_0 = 'T';
+    static final int MAGIC_1 = 'B';
+    static final int VERSION = 1;
+    static final int MAX_VARINT_BYTES = 5;
+    // Name buffers grow from this size as bytes arrive, so a corrupt length cannot allocate much
+    static final int NAME_CHUNK_BYTES = 8192;
+
+    static final int HAS_LEFT = 1;
+    static final int HAS_RIGHT = 2;
+    static final int NEW_NAME = 4;
+    // Root tag of an empty tree
+    static final int EMPTY = 8;
+
+    private TreeCodec() {
+    }
+
+    /**
+     * Writes a tree (iterative, so skewed trees do not overflow the call stack)
+     * @param root root of the tree (can be null for empty tree)
+     * @param out stream to write to (not closed)
+     */
+    public static void encode(TreeNode root, OutputStream out) throws IOException {
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        if (root == null) {
+            out.write(EMPTY);
+            return;
+        }
+        Map<String, Integer> dictionary = new HashMap<>();
+        // Tag, name length or id, and weight: one write call per node instead of per byte
+        byte[] scratch = new byte[1 + 2 * MAX_VARINT_BYTES];
+        TreeWalker walker = new TreeWalker();
+        walker.startPreorder(root);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            Integer id = dictionary.get(node.nodeName);
+            int tag = (node.left != null ? HAS_LEFT : 0) | (node.right != null ? HAS_RIGHT : 0);
+            int end;
+            if (id == null) {
+                byte[] name = node.nodeName.getBytes(StandardCharsets.UTF_8);
+                scratch[0] = (byte) (tag | NEW_NAME);
+                out.write(scratch, 0, putVarint(scratch, 1, name.length));
+                out.write(name);
+                dictionary.put(node.nodeName, dictionary.size());
+                end = 0;
+            } else {
+                scratch[0] = (byte) tag;
+                end = putVarint(scratch, 1, id);
+            }
+            end = putVarint(scratch, end, (node.weight << 1) ^ (node.weight >> 31));
+            out.write(scratch, 0, end);
+        }
+    }
+
+    /**
+     * Reads one tree, leaving the stream right after it
+     * Parent pointers of the decoded nodes are set
+     * @param in stream to read from (not closed)
+     * @return root of the tree or null for an empty tree
+     * @throws IOException if the stream ends early or is not a tree
+     */
+    public static TreeNode decode(InputStream in) throws IOException {
+        if (readByte(in) != MAGIC_0 || readByte(in) != MAGIC_1) {
+            throw new IOException("Not a tree stream");
+        }
+        int version = readByte(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported tree stream version: " + version);
+        }
+        List<String> dictionary = new ArrayList<>();
+        int rootTag = readByte(in);
+        if (rootTag == EMPTY) {
+            return null;
+        }
+        TreeNode root = readNode(in, rootTag, dictionary);
+
+        // Nodes still waiting for children, with the children still to read
+        List<TreeNode> open = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        open.add(root);
+        pending.add(rootTag & (HAS_LEFT | HAS_RIGHT));
+        while (!open.isEmpty()) {
+            int top = open.size() - 1;
+            TreeNode parent = open.get(top);
+            int children = pending.get(top);
+            if (children == 0) {
+                open.remove(top);
+                pending.remove(top);
+                continue;
+            }
+            int tag = readByte(in);
+            TreeNode child = readNode(in, tag, dictionary);
+            child.parent = parent;
+            if ((children & HAS_LEFT) != 0) {
+                parent.left = child;
+                pending.set(top, children & ~HAS_LEFT);
+            } else {
+                parent.right = child;
+                pending.set(top, 0);
+            }
+            open.add(child);
+            pending.add(tag & (HAS_LEFT | HAS_RIGHT));
+        }
+        return root;
+    }
+
+    private static TreeNode readNode(InputStream in, int tag, List<String> dictionary) throws IOException {
+        if ((tag & ~(HAS_LEFT | HAS_RIGHT | NEW_NAME)) != 0) {
+            throw new IOException("Corrupt tree stream: bad tag " + tag);
+        }
+        String name;
+        if ((tag & NEW_NAME) != 0) {
+            int length = readVarint(in);
+            if (length < 0) {
+                throw new IOException("Corrupt tree stream: bad name length");
+            }
+            name = new String(readName(in, length), StandardCharsets.UTF_8);
+            dictionary.add(name);
+        } else {
+            int id = readVarint(in);
+            if (id < 0 || id >= dictionary.size()) {
+                throw new IOException("Corrupt tree stream: unknown name id " + id);
+            }
+            name = dictionary.get(id);
+        }
+        int zigzag = readVarint(in);
+        return new TreeNode(name, (zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    /**
+     * Reads a name of the given length, never allocating more than twice
+     * the bytes actually read (the length may come from a corrupt stream)
+     */
+    private static byte[] readName(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, NAME_CHUNK_BYTES)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+            }
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                throw new EOFException("Tree stream ended inside a node name");
+            }
+            read += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the tree in its binary form
+     */
+    public static byte[] encode(TreeNode root) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encode(root, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by ByteArrayOutputStream
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return root of the tree in bytes (null for an empty tree)
+     * @throws IOException if the bytes are not a tree
+     */
+    public static TreeNode decode(byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Puts an unsigned 32-bit value, 7 bits per byte, low bits first
+     * @return position after the value
+     */
+    static int putVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt tree stream: varint too long");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Tree stream ended early");
+        }
+        return b;
+    }
+}
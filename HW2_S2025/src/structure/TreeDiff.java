@@ -0,0 +1,138 @@
+package structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Difference between the persisted rows of a tree and an in-memory tree
+ * Lists the rows to insert, the rows to update and the node names to delete,
+ * so a save only writes what changed
+ */
+final class TreeDiff {
+    final List<Row> inserts = new ArrayList<>();
+    final List<Row> updates = new ArrayList<>();
+    final List<String> deletes = new ArrayList<>();
+    // True if an update moves a child link (weight-only updates keep the shape)
+    private boolean linksChanged = false;
+
+    private TreeDiff() {
+    }
+
+    /**
+     * One row of the tree table (without the tree name)
+     */
+    static final class Row {
+        final String nodeName;
+        final Integer weight;
+        final String leftName;
+        final String rightName;
+
+        Row(String nodeName, Integer weight, String leftName, String rightName) {
+            this.nodeName = nodeName;
+            this.weight = weight;
+            this.leftName = leftName;
+            this.rightName = rightName;
+        }
+
+        static Row of(TreeNode node) {
+            return new Row(node.nodeName, node.weight,
+                    node.left != null ? node.left.nodeName : null,
+                    node.right != null ? node.right.nodeName : null);
+        }
+
+        boolean sameAs(Row other) {
+            return Objects.equals(weight, other.weight) && sameLinksAs(other);
+        }
+
+        boolean sameLinksAs(Row other) {
+            return Objects.equals(leftName, other.leftName)
+                    && Objects.equals(rightName, other.rightName);
+        }
+    }
+
+    /**
+     * Compares the persisted rows with the tree under root
+     * Nodes are visited in preorder, so inserts keep the order of a full save
+     * @param persisted rows currently stored, by node name
+     * @param root root of the in-memory tree (can be null to delete everything)
+     * @return the statements needed to make the stored rows match the tree
+     */
+    static TreeDiff compute(Map<String, Row> persisted, TreeNode root) {
+        TreeDiff diff = new TreeDiff();
+        Set<String> seen = new HashSet<>();
+        TreeWalker walker = new TreeWalker();
+        walker.startPreorder(root);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            if (!seen.add(node.nodeName)) {
+                continue; // node name is the row key, so only the first one is kept
+            }
+            Row current = Row.of(node);
+            Row stored = persisted.get(node.nodeName);
+            if (stored == null) {
+                diff.inserts.add(current);
+            } else if (!stored.sameAs(current)) {
+                diff.updates.add(current);
+                diff.linksChanged |= !stored.sameLinksAs(current);
+            }
+        }
+        for (String storedName : persisted.keySet()) {
+            if (!seen.contains(storedName)) {
+                diff.deletes.add(storedName);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Compares against the rows another tree would be stored as
+     * (e.g. a copy kept from the last load)
+     */
+    static TreeDiff compute(TreeNode persistedRoot, TreeNode root) {
+        Map<String, Row> persisted = new HashMap<>();
+        TreeWalker walker = new TreeWalker();
+        walker.startPreorder(persistedRoot);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            persisted.putIfAbsent(node.nodeName, Row.of(node));
+        }
+        return compute(persisted, root);
+    }
+
+    /**
+     * Wraps changes that were found some other way (e.g. PersistentTree.changesSince)
+     * @param linksChanged true if an update moves a child link
+     */
+    static TreeDiff of(List<Row> inserts, List<Row> updates, List<String> deletes, boolean linksChanged) {
+        TreeDiff diff = new TreeDiff();
+        diff.inserts.addAll(inserts);
+        diff.updates.addAll(updates);
+        diff.deletes.addAll(deletes);
+        diff.linksChanged = linksChanged;
+        return diff;
+    }
+
+    boolean isEmpty() {
+        return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * @return true if the diff adds, removes or moves nodes, i.e. changes
+     *         the ancestors of some node (false for weight-only changes)
+     */
+    boolean changesShape() {
+        return !inserts.isEmpty() || !deletes.isEmpty() || linksChanged;
+    }
+
+    /**
+     * @return number of rows the diff writes
+     */
+    int changeCount() {
+        return inserts.size() + updates.size() + deletes.size();
+    }
+}
@@ -0,0 +1,138 @@
+package structure;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of ITreeMetrics
+ * Keeps a count, total time and latency histogram per operation; the
+ * histogram has one bucket per power of two nanoseconds, so percentiles
+ * are upper bounds within a factor of two
+ * Recording is lock-free and safe from any thread
+ * Events are counted and passed to an optional listener,
+ * e.g. new TreeMetrics(messageController::sendWarning)
+ */
+public class TreeMetrics implements ITreeMetrics {
+    private static final int BUCKETS = 64;
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final LongAdder[] counts = new LongAdder[OPERATIONS];
+    private final LongAdder[] totalNanos = new LongAdder[OPERATIONS];
+    private final LongAccumulator[] maxNanos = new LongAccumulator[OPERATIONS];
+    // Bucket b of operation o at o * BUCKETS + b holds times in [2^(b-1), 2^b)
+    private final AtomicLongArray histogram = new AtomicLongArray(OPERATIONS * BUCKETS);
+    private final LongAdder eventCount = new LongAdder();
+    private final Consumer<String> eventListener;
+
+    /**
+     * Collects timings; events are only counted
+     */
+    public TreeMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param eventListener receives every event message (can be null)
+     */
+    public TreeMetrics(Consumer<String> eventListener) {
+        this.eventListener = eventListener;
+        for (int i = 0; i < OPERATIONS; i++) {
+            counts[i] = new LongAdder();
+            totalNanos[i] = new LongAdder();
+            maxNanos[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    @Override
+    public void record(Operation operation, String treeName, long nanos) {
+        int o = operation.ordinal();
+        long time = Math.max(0, nanos);
+        counts[o].increment();
+        totalNanos[o].add(time);
+        maxNanos[o].accumulate(time);
+        histogram.incrementAndGet(o * BUCKETS + bucketOf(time));
+    }
+
+    @Override
+    public void event(String message) {
+        eventCount.increment();
+        if (eventListener != null) {
+            eventListener.accept(message);
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public long getTotalNanos(Operation operation) {
+        return totalNanos[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return average time or 0 if nothing was recorded
+     */
+    public long getMeanNanos(Operation operation) {
+        long count = getCount(operation);
+        return (count == 0) ? 0 : getTotalNanos(operation) / count;
+    }
+
+    public long getMaxNanos(Operation operation) {
+        return maxNanos[operation.ordinal()].get();
+    }
+
+    /**
+     * Estimates a latency percentile from the histogram
+     * @param percentile between 0 and 100, e.g. 99
+     * @return upper bound of the bucket holding the percentile
+     *         (never above the maximum), 0 if nothing was recorded
+     */
+    public long getPercentileNanos(Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        int o = operation.ordinal();
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            total += histogram.get(o * BUCKETS + b);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram.get(o * BUCKETS + b);
+            if (seen >= rank) {
+                long upperBound = (b >= 63) ? Long.MAX_VALUE : (1L << b) - 1;
+                return Math.min(upperBound, getMaxNanos(operation));
+            }
+        }
+        return getMaxNanos(operation);
+    }
+
+    public long getEventCount() {
+        return eventCount.sum();
+    }
+
+    /**
+     * Clears all counters (e.g. after a warm-up)
+     */
+    public void reset() {
+        for (int i = 0; i < OPERATIONS; i++) {
+            counts[i].reset();
+            totalNanos[i].reset();
+            maxNanos[i].reset();
+        }
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0);
+        }
+        eventCount.reset();
+    }
+}
@@ -1,5 +1,8 @@
 package structure;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * Node structure for binary tree
  * Package-private access for better encapsulation
@@ -9,6 +12,9 @@ class TreeNode {
     int weight;
     TreeNode left;
     TreeNode right;
+    // Maintained by NodeIndex, not by direct field edits
+    TreeNode parent;
+    int depth;
     
     TreeNode(String value, int weight) {
         this.nodeName = value;
@@ -16,4 +22,38 @@ class TreeNode {
         this.left = null;
         this.right = null;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Copies a whole tree (iteratively, so deep trees are safe)
+     * Parent pointers of the copy are set, depths are left to NodeIndex
+     * @param root root of the tree to copy (can be null)
+     * @return root of the copy, or null for an empty tree
+     */
+    static TreeNode copyOf(TreeNode root) {
+        if (root == null) {
+            return null;
+        }
+        TreeNode copyRoot = new TreeNode(root.nodeName, root.weight);
+        Deque<TreeNode> sources = new ArrayDeque<>();
+        Deque<TreeNode> copies = new ArrayDeque<>();
+        sources.push(root);
+        copies.push(copyRoot);
+        while (!sources.isEmpty()) {
+            TreeNode source = sources.pop();
+            TreeNode copy = copies.pop();
+            if (source.left != null) {
+                copy.left = new TreeNode(source.left.nodeName, source.left.weight);
+                copy.left.parent = copy;
+                sources.push(source.left);
+                copies.push(copy.left);
+            }
+            if (source.right != null) {
+                copy.right = new TreeNode(source.right.nodeName, source.right.weight);
+                copy.right.parent = copy;
+                sources.push(source.right);
+                copies.push(copy.right);
+            }
+        }
+        return copyRoot;
+    }
+}
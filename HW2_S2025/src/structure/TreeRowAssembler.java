@@ -0,0 +1,94 @@
+package structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a TreeNode graph from database rows read in a single forward pass
+ * Children that were already read are linked immediately; references to
+ * rows that come later are kept as deferred fix-ups and resolved in build()
+ * Memory stays bounded by the tree itself (no buffered result set)
+ */
+class TreeRowAssembler {
+    private final Map<String, TreeNode> nodeMap = new HashMap<>();
+    private final List<TreeNode> fixupParents = new ArrayList<>();
+    private final List<String> fixupChildren = new ArrayList<>();
+    private final List<Boolean> fixupIsLeft = new ArrayList<>();
+    private TreeNode firstNode;
+
+    /**
+     * Adds one row of the tree table
+     * @param nodeName name of the node
+     * @param weight weight of the node
+     * @param leftName name of the left child or null
+     * @param rightName name of the right child or null
+     */
+    void addRow(String nodeName, int weight, String leftName, String rightName) {
+        TreeNode node = new TreeNode(nodeName, weight);
+        nodeMap.put(nodeName, node);
+        if (firstNode == null) {
+            firstNode = node;
+        }
+        if (leftName != null) {
+            link(node, leftName, true);
+        }
+        if (rightName != null) {
+            link(node, rightName, false);
+        }
+    }
+
+    private void link(TreeNode parent, String childName, boolean isLeft) {
+        TreeNode child = nodeMap.get(childName);
+        if (child == null) {
+            // Child row not read yet - resolve after the last row
+            fixupParents.add(parent);
+            fixupChildren.add(childName);
+            fixupIsLeft.add(isLeft);
+            return;
+        }
+        setChild(parent, child, isLeft);
+    }
+
+    private static void setChild(TreeNode parent, TreeNode child, boolean isLeft) {
+        if (isLeft) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        child.parent = parent;
+    }
+
+    /**
+     * Resolves deferred links and finds the root
+     * Links to names without a row of their own are dropped
+     * @return the root (top ancestor of the first row), or null if no rows were added
+     */
+    TreeNode build() {
+        for (int i = 0; i < fixupParents.size(); i++) {
+            TreeNode child = nodeMap.get(fixupChildren.get(i));
+            if (child != null) {
+                setChild(fixupParents.get(i), child, fixupIsLeft.get(i));
+            }
+        }
+        fixupParents.clear();
+        fixupChildren.clear();
+        fixupIsLeft.clear();
+
+        if (firstNode == null) {
+            return null;
+        }
+        // Climb from the first row to its top ancestor (bounded in case of bad cyclic rows)
+        TreeNode root = firstNode;
+        int steps = nodeMap.size();
+        while (root.parent != null && steps-- > 0) {
+            root = root.parent;
+        }
+        return root;
+    }
+
+    int size() {
+        return nodeMap.size();
+    }
+}
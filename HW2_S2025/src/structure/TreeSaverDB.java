@@ -1,70 +1,224 @@
 package structure;
 
 import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
 
 /**
  * Real implementation of ITreeSaver
- * Saves trees to database using delete and insert approach
+ * Saves trees to database using delete and insert approach,
+ * or in DIFF mode by writing only the rows that changed
  * Works directly with TreeNode without intermediate objects
+ * Connections come from a DataSource (by default the shared ConnectionPool)
  */
 public class TreeSaverDB implements ITreeSaver {
-    private String connectionUrl;
-    private String username;
-    private String password;
+    /**
+     * How saveTree writes a tree that may already be stored
+     */
+    public enum SaveMode {
+        /** Delete all rows of the tree and insert every node */
+        REPLACE,
+        /** Read the stored rows and insert/update/delete only what differs */
+        DIFF
+    }
+    
+    static final int DEFAULT_INSERT_CHUNK_SIZE = 1000;
+    
+    private DataSource dataSource;
+    private SaveMode saveMode = SaveMode.REPLACE;
+    private int insertChunkSize = DEFAULT_INSERT_CHUNK_SIZE;
+    private ITreeMetrics metrics = ITreeMetrics.NOOP;
+    private boolean maintainClosureTable = false;
+    
+    /**
+     * Constructor with a DataSource (e.g. a ConnectionPool shared with TreeBuilderDB)
+     */
+    public TreeSaverDB(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
     
     /**
      * Full constructor with connection parameters
+     * Uses the pool shared by all loaders/savers with the same parameters
      */
     public TreeSaverDB(String connectionUrl, String username, String password) {
-        this.connectionUrl = connectionUrl;
-        this.username = username;
-        this.password = password;
+        this(ConnectionPool.shared(connectionUrl, username, password));
     }
     
     /**
      * Default constructor with standard connection parameters
      */
     public TreeSaverDB() {
-        this("jdbc:mysql://localhost/world?serverTimezone=IST", "root", "Aa123456");
+        this(ConnectionPool.shared());
+    }
+    
+    public SaveMode getSaveMode() {
+        return saveMode;
+    }
+    
+    /**
+     * Sets how later saves are written
+     * DIFF costs one extra read but writes rows in proportion to the change
+     */
+    public void setSaveMode(SaveMode saveMode) {
+        this.saveMode = saveMode;
+    }
+    
+    public int getInsertChunkSize() {
+        return insertChunkSize;
+    }
+    
+    /**
+     * Sets how many rows each multi-row INSERT carries
+     * Larger chunks mean fewer round trips but bigger statements
+     * (bounded by max_allowed_packet on the server)
+     * @param insertChunkSize rows per statement, 1 to 13107
+     */
+    public void setInsertChunkSize(int insertChunkSize) {
+        if (insertChunkSize < 1 || insertChunkSize > ChunkedInsert.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("insertChunkSize must be between 1 and " + ChunkedInsert.MAX_CHUNK_SIZE);
+        }
+        this.insertChunkSize = insertChunkSize;
+    }
+    
+    /**
+     * Sets where save timings and row counts go
+     * (ITreeMetrics.NOOP, the default, disables them)
+     */
+    public void setMetrics(ITreeMetrics metrics) {
+        this.metrics = (metrics == null) ? ITreeMetrics.NOOP : metrics;
+    }
+    
+    public boolean isMaintainClosureTable() {
+        return maintainClosureTable;
+    }
+    
+    /**
+     * Sets whether saves also write world.tree_closure, which lets
+     * TreeBuilderDB.queryPathLength answer in the database
+     * The closure rows are rewritten in the same transaction whenever a
+     * save adds, removes or moves nodes; weight-only DIFF saves skip them
+     * When off, world.tree_closure is never touched (it need not exist);
+     * rows left by an earlier save are checked against world.tree by the
+     * query, so a shape change made meanwhile is not answered from them
+     */
+    public void setMaintainClosureTable(boolean maintainClosureTable) {
+        this.maintainClosureTable = maintainClosureTable;
     }
     
     /**
      * Saves or updates a tree in the database
-     * Uses transaction for atomic operation (delete + insert)
+     * Uses transaction for atomic operation (delete + insert, or the diff)
      * @param treeName the name to save the tree under
      * @param root the root node of the tree (can be null)
      */
     @Override
     public void saveTree(String treeName, TreeNode root) throws Exception {
-        // Initialize driver
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver").newInstance();
-        } catch (Exception ex) {
-            throw new Exception("Driver definition failed", ex);
+        inTransaction(treeName, connection -> writeTree(connection, treeName, root));
+    }
+    
+    /**
+     * Saves several trees in one transaction, so they share one commit
+     * (and one connection); either all of them are saved or none
+     * The commit is timed as one SAVE without a tree name
+     * @param trees root per tree name (a null root empties the tree)
+     */
+    @Override
+    public void saveTrees(Map<String, TreeNode> trees) throws Exception {
+        if (trees.isEmpty()) {
+            return;
+        }
+        inTransaction(null, connection -> {
+            for (Map.Entry<String, TreeNode> entry : trees.entrySet()) {
+                writeTree(connection, entry.getKey(), entry.getValue());
+            }
+        });
+    }
+    
+    /**
+     * Writes one tree in the current save mode
+     */
+    private void writeTree(Connection connection, String treeName, TreeNode root) throws SQLException {
+        if (saveMode == SaveMode.DIFF) {
+            saveDiff(connection, treeName, root);
+            return;
         }
         
+        // Step 1: Delete existing tree data
+        String deleteSQL = "DELETE FROM world.tree WHERE treeName = ?";
+        try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSQL)) {
+            deleteStmt.setString(1, treeName);
+            int deletedRows = deleteStmt.executeUpdate();
+            if (metrics.isEnabled()) {
+                metrics.event("Deleted " + deletedRows + " existing records for tree: " + treeName);
+            }
+        }
+        
+        // Step 2: Insert new tree data if not empty
+        if (root != null) {
+            insertTreeNodes(connection, root, treeName);
+        }
+        if (maintainClosureTable) {
+            ClosureTable.rewrite(connection, treeName, root, insertChunkSize);
+        }
+    }
+    
+    /**
+     * Saves a tree version when an earlier version is already stored
+     * Writes only the nodes the version added since the stored one and
+     * deletes the nodes it removed; shared subtrees are not visited
+     * @param treeName the name the stored version was saved under
+     * @param version the version to save
+     * @param stored the version currently stored under treeName
+     *               (null if nothing is stored yet: every node is written)
+     */
+    public void saveVersion(String treeName, PersistentTree version, PersistentTree stored) throws Exception {
+        if (stored == null) {
+            saveTree(treeName, version.toTreeNode());
+            return;
+        }
+        TreeDiff diff = version.isDerivedFrom(stored)
+                ? version.changesSince(stored)
+                // Unrelated versions: fall back to comparing the whole trees
+                : TreeDiff.compute(stored.toTreeNode(), version.toTreeNode());
+        if (diff.isEmpty()) {
+            return;
+        }
+        inTransaction(treeName, connection -> {
+            writeDiff(connection, treeName, diff);
+            if (maintainClosureTable && diff.changesShape()) {
+                ClosureTable.rewrite(connection, treeName, version.toTreeNode(), insertChunkSize);
+            }
+        });
+    }
+    
+    /**
+     * Statements that run in one transaction
+     */
+    private interface TransactionWork {
+        void run(Connection connection) throws SQLException;
+    }
+    
+    /**
+     * Runs the work in a transaction, rolling back if it fails
+     * A committed transaction is timed as a SAVE of treeName (null for several trees)
+     */
+    private void inTransaction(String treeName, TransactionWork work) throws Exception {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
         Connection connection = null;
         try {
-            connection = DriverManager.getConnection(connectionUrl, username, password);
+            connection = dataSource.getConnection();
             
             // Use transaction for atomic operation
             connection.setAutoCommit(false);
-            
-            // Step 1: Delete existing tree data
-            String deleteSQL = "DELETE FROM world.tree WHERE treeName = ?";
-            try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSQL)) {
-                deleteStmt.setString(1, treeName);
-                int deletedRows = deleteStmt.executeUpdate();
-                System.out.println("Deleted " + deletedRows + " existing records for tree: " + treeName);
-            }
-            
-            // Step 2: Insert new tree data if not empty
-            if (root != null) {
-                insertTreeNodes(connection, root, treeName);
-            }
+            work.run(connection);
             
             // Commit transaction
             connection.commit();
+            if (metrics.isEnabled()) {
+                metrics.record(ITreeMetrics.Operation.SAVE, treeName, System.nanoTime() - start);
+            }
             
         } catch (Exception e) {
             // Rollback on error
@@ -77,7 +231,7 @@ public class TreeSaverDB implements ITreeSaver {
             }
             throw new Exception("Failed to save tree: " + e.getMessage(), e);
         } finally {
-            // Restore auto-commit and close connection
+            // Restore auto-commit and return the connection to the pool
             if (connection != null) {
                 try {
                     connection.setAutoCommit(true);
@@ -90,43 +244,98 @@ public class TreeSaverDB implements ITreeSaver {
     }
     
     /**
-     * Recursively inserts tree nodes into database
-     * Similar to reference but with batch processing for efficiency
+     * Writes only the rows that differ from the stored ones
+     * The stored rows are locked while reading, so no other save interleaves
      */
-    private void insertTreeNodes(Connection connection, TreeNode node, String treeName) throws SQLException {
-        String insertSQL = "INSERT INTO world.tree (treeName, nodename, weight, leftp, rightp) VALUES (?, ?, ?, ?, ?)";
+    private void saveDiff(Connection connection, String treeName, TreeNode root) throws SQLException {
+        TreeDiff diff = TreeDiff.compute(readRows(connection, treeName), root);
+        if (!diff.isEmpty()) {
+            writeDiff(connection, treeName, diff);
+        }
+        if (maintainClosureTable && diff.changesShape()) {
+            ClosureTable.rewrite(connection, treeName, root, insertChunkSize);
+        }
+    }
+    
+    /**
+     * Runs the deletes, updates and inserts of a diff
+     */
+    private void writeDiff(Connection connection, String treeName, TreeDiff diff) throws SQLException {
+        String updateSQL = "UPDATE world.tree SET weight = ?, leftp = ?, rightp = ? WHERE treeName = ? AND nodename = ?";
+        String deleteSQL = "DELETE FROM world.tree WHERE treeName = ? AND nodename = ?";
         
-        try (PreparedStatement insertStmt = connection.prepareStatement(insertSQL)) {
-            // Use batch processing for efficiency
-            insertNodeBatch(insertStmt, node, treeName);
-            
-            // Execute all inserts at once
-            int[] results = insertStmt.executeBatch();
-            System.out.println("Inserted " + results.length + " nodes for tree: " + treeName);
+        if (!diff.deletes.isEmpty()) {
+            try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSQL)) {
+                for (String nodeName : diff.deletes) {
+                    deleteStmt.setString(1, treeName);
+                    deleteStmt.setString(2, nodeName);
+                    deleteStmt.addBatch();
+                }
+                deleteStmt.executeBatch();
+            }
+        }
+        if (!diff.updates.isEmpty()) {
+            try (PreparedStatement updateStmt = connection.prepareStatement(updateSQL)) {
+                for (TreeDiff.Row row : diff.updates) {
+                    updateStmt.setInt(1, row.weight);
+                    updateStmt.setString(2, row.leftName);
+                    updateStmt.setString(3, row.rightName);
+                    updateStmt.setString(4, treeName);
+                    updateStmt.setString(5, row.nodeName);
+                    updateStmt.addBatch();
+                }
+                updateStmt.executeBatch();
+            }
+        }
+        if (!diff.inserts.isEmpty()) {
+            try (ChunkedInsert insert = new ChunkedInsert(connection, treeName, insertChunkSize)) {
+                for (TreeDiff.Row row : diff.inserts) {
+                    insert.add(row.nodeName, row.weight, row.leftName, row.rightName);
+                }
+                insert.flush();
+            }
         }
     }
     
     /**
-     * Adds nodes to batch using pre-order traversal (root, left, right)
-     * Different from reference's approach but achieves same result
+     * Reads the stored rows of a tree, locking them until the transaction ends
      */
-    private void insertNodeBatch(PreparedStatement stmt, TreeNode node, String treeName) throws SQLException {
-        if (node == null) {
-            return;
+    private Map<String, TreeDiff.Row> readRows(Connection connection, String treeName) throws SQLException {
+        Map<String, TreeDiff.Row> rows = new HashMap<>();
+        String query = "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ? FOR UPDATE";
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setString(1, treeName);
+            try (ResultSet resultSet = stmt.executeQuery()) {
+                while (resultSet.next()) {
+                    String nodeName = resultSet.getString(1);
+                    int weight = resultSet.getInt(2);
+                    Integer storedWeight = resultSet.wasNull() ? null : weight;
+                    rows.put(nodeName, new TreeDiff.Row(nodeName, storedWeight,
+                            resultSet.getString(3), resultSet.getString(4)));
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Inserts tree nodes into database
+     * Nodes are sent in pre-order (root, left, right) as multi-row INSERT
+     * statements of insertChunkSize rows, one round trip per chunk
+     * Iterative, so skewed trees do not overflow the call stack
+     */
+    private void insertTreeNodes(Connection connection, TreeNode root, String treeName) throws SQLException {
+        try (ChunkedInsert insert = new ChunkedInsert(connection, treeName, insertChunkSize)) {
+            TreeWalker walker = new TreeWalker();
+            walker.startPreorder(root);
+            TreeNode node;
+            while ((node = walker.nextPreorder()) != null) {
+                insert.add(node);
+            }
+            int inserted = insert.flush();
+            if (metrics.isEnabled()) {
+                metrics.event("Inserted " + inserted + " nodes for tree: " + treeName);
+            }
         }
-        
-        // Add current node to batch
-        stmt.setString(1, treeName);
-        stmt.setString(2, node.nodeName);
-        stmt.setInt(3, node.weight);
-        stmt.setString(4, node.left != null ? node.left.nodeName : null);
-        stmt.setString(5, node.right != null ? node.right.nodeName : null);
-        stmt.addBatch();
-        
-        // Recursively add left subtree
-        insertNodeBatch(stmt, node.left, treeName);
-        
-        // Recursively add right subtree
-        insertNodeBatch(stmt, node.right, treeName);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,377 @@
+package structure;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only tree backed by a memory-mapped binary snapshot file
+ * Opening a snapshot maps the file and reads nothing else: every query
+ * reads the node records and the string table straight from the mapping,
+ * so startup does not need a database round trip and several processes
+ * can share the same pages through the OS page cache
+ *
+ * File layout (big endian):
+ *   header   magic, version, node count, root id, hash slot count, reserved,
+ *            string table offset (long)                               32 bytes
+ *   records  per node: left, right, parent, weight, depth,
+ *            name offset, name length, name hash                      32 bytes each
+ *   hash     open addressing table of node id + 1 (0 = empty)         4 bytes per slot
+ *   strings  UTF-8 node names
+ * Node ids are in preorder (see CompactTree), -1 means no node
+ */
+public class TreeSnapshot {
+    static final int MAGIC = 0x54534E50; // "TSNP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 32;
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 4;
+    private static final int PARENT = 8;
+    private static final int WEIGHT = 12;
+    private static final int DEPTH = 16;
+    private static final int NAME_OFFSET = 20;
+    private static final int NAME_LENGTH = 24;
+    private static final int NAME_HASH = 28;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int root;
+    private final int hashSlots;
+    private final int hashOffset;
+    private final int stringOffset;
+
+    private TreeSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tree snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tree snapshot version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.root = buffer.getInt(12);
+        this.hashSlots = buffer.getInt(16);
+        this.hashOffset = HEADER_SIZE + size * RECORD_SIZE;
+        this.stringOffset = (int) buffer.getLong(24);
+        if (stringOffset != hashOffset + hashSlots * 4 || stringOffset > buffer.capacity()) {
+            throw new IOException("Corrupted tree snapshot header");
+        }
+    }
+
+    /**
+     * Writes the tree of a loaded Tree as a snapshot file
+     * The file is written next to the target and moved into place,
+     * so readers never map a half written snapshot
+     * @param tree tree to write (an empty tree gives an empty snapshot)
+     * @param file target file
+     */
+    public static void write(Tree tree, Path file) throws IOException {
+        write(tree.getRoot(), file);
+    }
+
+    /**
+     * Writes a TreeNode graph as a snapshot file
+     * @param root root node (can be null for an empty tree)
+     * @param file target file
+     */
+    static void write(TreeNode root, Path file) throws IOException {
+        CompactTree compact = CompactTree.fromTreeNode(root);
+        int size = compact.size();
+
+        byte[][] names = new byte[size][];
+        int[] hashes = new int[size];
+        long stringBytes = 0;
+        for (int id = 0; id < size; id++) {
+            String name = compact.nameOf(id);
+            names[id] = name.getBytes(StandardCharsets.UTF_8);
+            hashes[id] = name.hashCode();
+            stringBytes += names[id].length;
+        }
+
+        int hashSlots = 2;
+        while (hashSlots < size * 2) {
+            hashSlots <<= 1;
+        }
+        long stringOffset = HEADER_SIZE + (long) size * RECORD_SIZE + hashSlots * 4L;
+        if (stringOffset + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Tree is too large for a single snapshot mapping");
+        }
+
+        int[] slots = new int[hashSlots];
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & (hashSlots - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (hashSlots - 1);
+            }
+            slots[slot] = id + 1;
+        }
+
+        // A unique temp name, so concurrent writers of one snapshot do not share a file
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(size);
+                out.writeInt(compact.getRoot());
+                out.writeInt(hashSlots);
+                out.writeInt(0);
+                out.writeLong(stringOffset);
+
+                int nameOffset = 0;
+                for (int id = 0; id < size; id++) {
+                    out.writeInt(compact.leftOf(id));
+                    out.writeInt(compact.rightOf(id));
+                    out.writeInt(compact.parentOf(id));
+                    out.writeInt(compact.weightOf(id));
+                    out.writeInt(compact.depthOf(id));
+                    out.writeInt(nameOffset);
+                    out.writeInt(names[id].length);
+                    out.writeInt(hashes[id]);
+                    nameOffset += names[id].length;
+                }
+                for (int slot : slots) {
+                    out.writeInt(slot);
+                }
+                for (byte[] name : names) {
+                    out.write(name);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Maps a snapshot file read-only; no data is copied or decoded
+     * @param file snapshot file written by write()
+     * @return read-only tree backed by the mapping
+     */
+    public static TreeSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TreeSnapshot(mapped);
+        }
+    }
+
+    // ---- Queries (same operations as Tree) ----
+
+    /**
+     * Finds a node by name through the mapped hash table
+     * @return node id or -1 if not found
+     */
+    public int findNode(String nodeName) {
+        if (size == 0 || nodeName == null) {
+            return CompactTree.NONE;
+        }
+        int hash = nodeName.hashCode();
+        int slot = hash & (hashSlots - 1);
+        int entry;
+        while ((entry = buffer.getInt(hashOffset + slot * 4)) != 0) {
+            int id = entry - 1;
+            if (field(id, NAME_HASH) == hash && nameEquals(id, nodeName)) {
+                return id;
+            }
+            slot = (slot + 1) & (hashSlots - 1);
+        }
+        return CompactTree.NONE;
+    }
+
+    /**
+     * Finds the Lowest Common Ancestor of two nodes
+     * Like Tree.findLCA, returns the found node if only one of them exists
+     * @return name of the LCA node or null if neither node was found
+     */
+    public String findLCA(String nodeX, String nodeY) {
+        int x = findNode(nodeX);
+        int y = findNode(nodeY);
+        if (x != CompactTree.NONE && y != CompactTree.NONE) {
+            return nameOf(lca(x, y));
+        }
+        if (x != CompactTree.NONE) {
+            return nameOf(x);
+        }
+        return (y != CompactTree.NONE) ? nameOf(y) : null;
+    }
+
+    /**
+     * Calculates distance from a node down to target
+     * @param current id of the starting node
+     * @param targetNode target node name
+     * @return distance or -1 if target is not under current
+     */
+    public int calculateDistance(int current, String targetNode) {
+        int target = findNode(targetNode);
+        if (current == CompactTree.NONE || target == CompactTree.NONE) {
+            return -1;
+        }
+        int steps = depthOf(target) - depthOf(current);
+        int ancestor = target;
+        for (int i = 0; i < steps; i++) {
+            ancestor = parentOf(ancestor);
+        }
+        return (ancestor == current) ? steps : -1;
+    }
+
+    /**
+     * Calculates the path length between two nodes (number of edges)
+     * @return number of edges or -1 if the tree is empty or a node was not found
+     */
+    public int calculatePathLength(String nodeX, String nodeY) {
+        int x = findNode(nodeX);
+        int y = findNode(nodeY);
+        if (x == CompactTree.NONE || y == CompactTree.NONE) {
+            return -1;
+        }
+        return depthOf(x) + depthOf(y) - 2 * depthOf(lca(x, y));
+    }
+
+    /**
+     * Prints the nodes in inorder, same format as Tree.inorderTraversal
+     */
+    public void inorderTraversal() {
+        if (size == 0) {
+            System.out.println("The tree is empty.");
+            return;
+        }
+        int[] stack = new int[16];
+        int top = -1;
+        int current = root;
+        while (current != CompactTree.NONE || top >= 0) {
+            while (current != CompactTree.NONE) {
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top] = current;
+                current = leftOf(current);
+            }
+            current = stack[top--];
+            System.out.println("Node: " + nameOf(current) + ", Weight: " + weightOf(current));
+            current = rightOf(current);
+        }
+    }
+
+    /**
+     * Copies the snapshot into TreeNode objects (e.g. to edit it)
+     * @return root TreeNode or null for an empty snapshot
+     */
+    TreeNode toTreeNode() {
+        if (size == 0) {
+            return null;
+        }
+        TreeNode[] nodes = new TreeNode[size];
+        for (int id = 0; id < size; id++) {
+            nodes[id] = new TreeNode(nameOf(id), weightOf(id));
+        }
+        for (int id = 0; id < size; id++) {
+            if (leftOf(id) != CompactTree.NONE) {
+                nodes[id].left = nodes[leftOf(id)];
+            }
+            if (rightOf(id) != CompactTree.NONE) {
+                nodes[id].right = nodes[rightOf(id)];
+            }
+        }
+        return nodes[root];
+    }
+
+    private int lca(int x, int y) {
+        while (depthOf(x) > depthOf(y)) {
+            x = parentOf(x);
+        }
+        while (depthOf(y) > depthOf(x)) {
+            y = parentOf(y);
+        }
+        while (x != y) {
+            x = parentOf(x);
+            y = parentOf(y);
+        }
+        return x;
+    }
+
+    // ---- Accessors ----
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return id of the root, or -1 for an empty snapshot
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    public String nameOf(int id) {
+        byte[] bytes = new byte[field(id, NAME_LENGTH)];
+        int start = stringOffset + field(id, NAME_OFFSET);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int weightOf(int id) {
+        return field(id, WEIGHT);
+    }
+
+    public int leftOf(int id) {
+        return field(id, LEFT);
+    }
+
+    public int rightOf(int id) {
+        return field(id, RIGHT);
+    }
+
+    public int parentOf(int id) {
+        return field(id, PARENT);
+    }
+
+    public int depthOf(int id) {
+        return field(id, DEPTH);
+    }
+
+    private int field(int id, int fieldOffset) {
+        return buffer.getInt(HEADER_SIZE + id * RECORD_SIZE + fieldOffset);
+    }
+
+    /**
+     * Compares a mapped name with a String without decoding (ASCII fast path)
+     */
+    private boolean nameEquals(int id, String nodeName) {
+        int length = field(id, NAME_LENGTH);
+        int start = stringOffset + field(id, NAME_OFFSET);
+        if (length == nodeName.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(start + i);
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+                if (b != nodeName.charAt(i)) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        return nameOf(id).equals(nodeName);
+    }
+}
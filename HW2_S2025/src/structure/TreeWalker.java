@@ -0,0 +1,167 @@
+package structure;
+
+import java.util.Arrays;
+
+/**
+ * Explicit-stack traversal engine for TreeNode graphs
+ * Replaces one-frame-per-level recursion so that degenerate (list shaped)
+ * trees run in constant native stack space
+ * The stack arrays are reused between traversals and only grow, so a
+ * walker kept per thread does not allocate per call
+ * Not thread-safe or reentrant: use one walker per thread, and clear() it
+ * after an early exit so it does not keep the tree reachable
+ */
+final class TreeWalker {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private TreeNode[] nodes;
+    private int[] values;
+    private TreeNode[] results;
+    private int top;
+
+    // Cursor state for preorder / inorder iteration
+    private TreeNode inorderNext;
+    private int inorderNextDepth;
+    private int lastDepth;
+
+    TreeWalker() {
+        this.nodes = new TreeNode[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+        this.results = new TreeNode[INITIAL_CAPACITY];
+        this.top = -1;
+    }
+
+    // ---- Frame stack primitives ----
+
+    /**
+     * Pushes a frame holding a node and an int (state or depth)
+     */
+    void push(TreeNode node, int value) {
+        top++;
+        if (top == nodes.length) {
+            int capacity = nodes.length * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        nodes[top] = node;
+        values[top] = value;
+        results[top] = null;
+    }
+
+    void pop() {
+        nodes[top] = null;
+        results[top] = null;
+        top--;
+    }
+
+    boolean isEmpty() {
+        return top < 0;
+    }
+
+    TreeNode peekNode() {
+        return nodes[top];
+    }
+
+    int peekValue() {
+        return values[top];
+    }
+
+    void setValue(int value) {
+        values[top] = value;
+    }
+
+    /**
+     * Partial result kept with the top frame (e.g. the result of the left subtree)
+     */
+    TreeNode peekResult() {
+        return results[top];
+    }
+
+    void setResult(TreeNode result) {
+        results[top] = result;
+    }
+
+    /**
+     * Drops all frames left over from an abandoned traversal
+     */
+    void clear() {
+        while (top >= 0) {
+            pop();
+        }
+        inorderNext = null;
+    }
+
+    // ---- Preorder cursor (node, left, right) ----
+
+    /**
+     * Starts a preorder iteration, read nodes with nextPreorder()
+     * @param start first node (can be null for an empty iteration)
+     */
+    void startPreorder(TreeNode start) {
+        clear();
+        if (start != null) {
+            push(start, 0);
+        }
+    }
+
+    /**
+     * @return next node in preorder, or null when the iteration is finished
+     */
+    TreeNode nextPreorder() {
+        if (top < 0) {
+            return null;
+        }
+        TreeNode node = nodes[top];
+        int depth = values[top];
+        pop();
+        if (node.right != null) {
+            push(node.right, depth + 1);
+        }
+        if (node.left != null) {
+            push(node.left, depth + 1);
+        }
+        lastDepth = depth;
+        return node;
+    }
+
+    // ---- Inorder cursor (left, node, right) ----
+
+    /**
+     * Starts an inorder iteration, read nodes with nextInorder()
+     * @param start subtree root (can be null for an empty iteration)
+     */
+    void startInorder(TreeNode start) {
+        clear();
+        inorderNext = start;
+        inorderNextDepth = 0;
+    }
+
+    /**
+     * @return next node in inorder, or null when the iteration is finished
+     */
+    TreeNode nextInorder() {
+        while (inorderNext != null) {
+            push(inorderNext, inorderNextDepth);
+            inorderNext = inorderNext.left;
+            inorderNextDepth++;
+        }
+        if (top < 0) {
+            return null;
+        }
+        TreeNode node = nodes[top];
+        int depth = values[top];
+        pop();
+        inorderNext = node.right;
+        inorderNextDepth = depth + 1;
+        lastDepth = depth;
+        return node;
+    }
+
+    /**
+     * @return depth of the node last returned by a cursor, relative to its start node
+     */
+    int depth() {
+        return lastDepth;
+    }
+}
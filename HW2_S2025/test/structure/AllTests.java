@@ -5,7 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TreeTest.class, TreeSaveTest.class })
+@SuiteClasses({ TreeTest.class, TreeSaveTest.class, LcaIndexTest.class, TarjanLcaTest.class, NodeIndexTest.class, TreeWalkerTest.class, CompactTreeTest.class, TreeSnapshotTest.class, TreeRowAssemblerTest.class, ConnectionPoolTest.class, CachingTreeLoaderTest.class, TreeDiffTest.class, ChunkedInsertTest.class, SubtreeAggregatorTest.class, PathWeightIndexTest.class, HeavyLightDecompositionTest.class, AsyncTreeAdapterTest.class, TreeBuilderDBBulkLoadTest.class, ConcurrentTreeTest.class, PersistentTreeTest.class, TreeSaverDBVersionTest.class, TreeMetricsTest.class, LazyTreeTest.class, ClosureTableTest.class, TreeCodecTest.class, BinaryTreeStoreTest.class, LogTreeStoreTest.class, GroupCommitTreeSaverTest.class })
 public class AllTests {
     // This class remains empty, it is used only as a holder for the above annotations
 }
\ No newline at end of file
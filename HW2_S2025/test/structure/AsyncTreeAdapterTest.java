@@ -0,0 +1,131 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncTreeAdapterTest {
+    private StubTreeLoader stubLoader;
+    private StubTreeSaver stubSaver;
+    private AsyncTreeAdapter adapter;
+    
+    @Before
+    public void setUp() {
+        stubLoader = new StubTreeLoader();
+        stubSaver = new StubTreeSaver();
+        // Direct executor: tasks run on the calling thread
+        adapter = new AsyncTreeAdapter(stubLoader, stubSaver, Runnable::run);
+    }
+    
+    @Test
+    public void testLoadTreeAsync_CompletesWithLoadedRoot() throws Exception {
+        // Arrange
+        TreeNode root = new TreeNode("A", 10);
+        stubLoader.setRootToReturn(root);
+        
+        // Act
+        TreeNode loaded = adapter.loadTreeAsync("tree1").get();
+        
+        // Assert
+        assertSame("Future should carry the loaded root", root, loaded);
+        assertEquals(1, stubLoader.getLoadTreeCallCount());
+    }
+    
+    @Test
+    public void testLoadTreeAsync_WhenLoaderFails_CompletesExceptionally() throws Exception {
+        // Arrange
+        Exception failure = new Exception("Database error");
+        stubLoader.setExceptionToThrow(failure);
+        
+        // Act
+        CompletableFuture<TreeNode> future = adapter.loadTreeAsync("tree1");
+        
+        // Assert
+        assertTrue("Future should fail", future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("get() should throw");
+        } catch (ExecutionException expected) {
+            assertSame("Cause should be the loader's exception", failure, expected.getCause());
+        }
+    }
+    
+    @Test
+    public void testTreeExistsAsync_ReturnsLoaderAnswer() throws Exception {
+        // Arrange
+        stubLoader.setTreeExists(true);
+        
+        // Act & Assert
+        assertTrue(adapter.treeExistsAsync("tree1").get());
+    }
+    
+    @Test
+    public void testSaveTreeAsync_SavesSnapshotTakenAtCall() throws Exception {
+        // Arrange - executor that holds the task until we run it
+        List<Runnable> queued = new ArrayList<>();
+        AsyncTreeAdapter deferred = new AsyncTreeAdapter(stubLoader, stubSaver, queued::add);
+        TreeNode root = new TreeNode("A", 10);
+        
+        // Act
+        CompletableFuture<Void> future = deferred.saveTreeAsync("tree1", root);
+        root.weight = 99;
+        queued.get(0).run();
+        future.get();
+        
+        // Assert
+        assertEquals("tree1", stubSaver.getLastSavedTreeName());
+        assertEquals("Edit after the call should not be saved", 10, stubSaver.getSavedRoot().weight);
+    }
+    
+    @Test
+    public void testSaveTreeAsync_WithoutSaver_FailsFuture() {
+        // Act
+        CompletableFuture<Void> future = new AsyncTreeAdapter(stubLoader, null, Runnable::run).saveTreeAsync("t", null);
+        
+        // Assert
+        assertTrue(future.isCompletedExceptionally());
+    }
+    
+    @Test
+    public void testLoadTreeAsync_ManyTrees_OverlapOnExecutor() throws Exception {
+        // Arrange - loader that blocks until all loads have started
+        int trees = 4;
+        CountDownLatch allStarted = new CountDownLatch(trees);
+        ITreeLoader slowLoader = new ITreeLoader() {
+            @Override
+            public TreeNode loadTree(String treeName) throws Exception {
+                allStarted.countDown();
+                assertTrue("Loads should run at the same time", allStarted.await(5, TimeUnit.SECONDS));
+                return new TreeNode(treeName, 0);
+            }
+            
+            @Override
+            public boolean treeExists(String treeName) {
+                return true;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(trees);
+        AsyncTreeAdapter parallel = new AsyncTreeAdapter(slowLoader, null, executor);
+        
+        // Act
+        List<CompletableFuture<TreeNode>> futures = new ArrayList<>();
+        for (int i = 0; i < trees; i++) {
+            futures.add(parallel.loadTreeAsync("T" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        
+        // Assert
+        for (int i = 0; i < trees; i++) {
+            assertEquals("T" + i, futures.get(i).get().nodeName);
+        }
+    }
+}
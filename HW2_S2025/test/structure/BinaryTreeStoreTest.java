@@ -0,0 +1,115 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BinaryTreeStoreTest {
+    private Path folder;
+    private BinaryTreeStore store;
+    private TreeNode root;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("trees");
+        store = new BinaryTreeStore(folder.resolve("trees"));
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (File file : store.getDirectory().toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(store.getDirectory());
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testSaveTree_ThenLoad_ReturnsSameTree() throws Exception {
+        // Act
+        store.saveTree("tree1", root);
+        TreeNode loaded = store.loadTree("tree1");
+
+        // Assert
+        assertTrue(store.treeExists("tree1"));
+        assertEquals("D", loaded.left.left.nodeName);
+        assertEquals(5, loaded.right.weight);
+        String[] files = store.getDirectory().toFile().list();
+        assertEquals("No temporary file should be left", 1, files.length);
+    }
+
+    @Test
+    public void testSaveTree_Again_ReplacesStoredTree() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+
+        // Act
+        store.saveTree("tree1", new TreeNode("X", 1));
+
+        // Assert
+        TreeNode loaded = store.loadTree("tree1");
+        assertEquals("X", loaded.nodeName);
+        assertNull(loaded.left);
+    }
+
+    @Test
+    public void testLoadTree_Missing_ReturnsNull() throws Exception {
+        // Assert
+        assertNull(store.loadTree("none"));
+        assertFalse(store.treeExists("none"));
+    }
+
+    @Test
+    public void testSaveTree_EmptyTree_DeletesStoredTree() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+
+        // Act
+        store.saveTree("tree1", null);
+
+        // Assert
+        assertFalse(store.treeExists("tree1"));
+        assertNull(store.loadTree("tree1"));
+    }
+
+    @Test
+    public void testTreeNames_MatchedCaseInsensitively() throws Exception {
+        // Act
+        store.saveTree("Tree1", root);
+
+        // Assert
+        assertTrue(store.treeExists("TREE1"));
+        assertEquals("A", store.loadTree("tree1").nodeName);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSaveTree_NameWithPath_Throws() throws Exception {
+        // Act
+        store.saveTree(".." + File.separator + "x", root);
+    }
+
+    @Test
+    public void testTree_UsesStoreAsLoaderAndSaver() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+        MockMessageController messageController = new MockMessageController();
+        Tree tree = new Tree("tree1", store, store, messageController);
+
+        // Act
+        tree.buildTreeFromDatabase();
+        tree.saveTreeInDatabase("copy");
+
+        // Assert
+        assertEquals(3, tree.calculatePathLength("D", "C"));
+        assertEquals(3, store.queryPathLength("copy", "D", "C"));
+    }
+}
@@ -0,0 +1,250 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class CachingTreeLoaderTest {
+    private StubTreeLoader stubLoader;
+    private StubTreeSaver stubSaver;
+    private long now;
+    private CachingTreeLoader cache;
+    
+    @Before
+    public void setUp() {
+        stubLoader = new StubTreeLoader();
+        stubSaver = new StubTreeSaver();
+        now = 0;
+        cache = new CachingTreeLoader(stubLoader, stubSaver, 2, 1000, () -> now);
+        
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        stubLoader.setRootToReturn(root);
+        stubLoader.setTreeExists(true);
+    }
+    
+    @Test
+    public void testLoadTree_SecondLoad_ServedFromCache() throws Exception {
+        // Act
+        TreeNode first = cache.loadTree("tree1");
+        TreeNode second = cache.loadTree("tree1");
+        
+        // Assert
+        assertEquals("Loader should be called once", 1, stubLoader.getLoadTreeCallCount());
+        assertEquals("Cached tree should have the same root", "A", second.nodeName);
+        assertEquals("Cached tree should have the same children", "B", second.left.nodeName);
+        assertNotSame("Each caller should get its own copy", first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+    
+    @Test
+    public void testLoadTree_CallerEdits_DoNotChangeCachedTree() throws Exception {
+        // Arrange
+        TreeNode first = cache.loadTree("tree1");
+        
+        // Act
+        first.left.weight = 99;
+        first.right = null;
+        TreeNode second = cache.loadTree("tree1");
+        
+        // Assert
+        assertEquals("Cached weight should be unchanged", 20, second.left.weight);
+        assertNotNull("Cached child should be unchanged", second.right);
+    }
+    
+    @Test
+    public void testLoadTree_AfterTtl_LoadsAgain() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        
+        // Act
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        cache.loadTree("tree1");
+        
+        // Assert
+        assertEquals("Expired tree should be loaded again", 2, stubLoader.getLoadTreeCallCount());
+    }
+    
+    @Test
+    public void testLoadTree_OverCapacity_EvictsLeastRecentlyUsed() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        cache.loadTree("tree2");
+        cache.loadTree("tree1"); // tree2 is now least recently used
+        
+        // Act
+        cache.loadTree("tree3");
+        cache.loadTree("tree1");
+        cache.loadTree("tree2");
+        
+        // Assert
+        assertEquals("Cache should hold at most 2 trees", 2, cache.size());
+        assertEquals("Only tree1 should have stayed cached", 4, stubLoader.getLoadTreeCallCount());
+    }
+    
+    @Test
+    public void testTreeExists_WhenCached_DoesNotCallLoader() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        
+        // Act
+        boolean exists = cache.treeExists("tree1");
+        
+        // Assert
+        assertTrue("Cached tree should exist", exists);
+        assertEquals("Loader should not be asked", 0, stubLoader.getTreeExistsCallCount());
+    }
+    
+    @Test
+    public void testTreeExists_CachedEmptyTree_ReturnsFalse() throws Exception {
+        // Arrange
+        stubLoader.setRootToReturn(null);
+        cache.loadTree("empty");
+        
+        // Act & Assert
+        assertFalse("Empty tree has no rows", cache.treeExists("empty"));
+        assertEquals(0, stubLoader.getTreeExistsCallCount());
+    }
+    
+    @Test
+    public void testTreeExists_WhenNotCached_AsksLoader() throws Exception {
+        // Act
+        boolean exists = cache.treeExists("tree1");
+        
+        // Assert
+        assertTrue(exists);
+        assertEquals("Loader should be asked on a miss", 1, stubLoader.getTreeExistsCallCount());
+    }
+    
+    @Test
+    public void testSaveTree_InvalidatesCachedTree() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        TreeNode newRoot = new TreeNode("X", 1);
+        
+        // Act
+        cache.saveTree("tree1", newRoot);
+        stubLoader.setRootToReturn(newRoot);
+        TreeNode reloaded = cache.loadTree("tree1");
+        
+        // Assert
+        assertSame("Save should be passed to the saver", newRoot, stubSaver.getSavedRoot());
+        assertEquals("Load after save should not be stale", "X", reloaded.nodeName);
+        assertEquals(2, stubLoader.getLoadTreeCallCount());
+    }
+    
+    @Test
+    public void testSaveTree_MixedCaseName_InvalidatesCachedTree() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        TreeNode newRoot = new TreeNode("X", 1);
+        
+        // Act - the database matches names case-insensitively
+        cache.saveTree("Tree1", newRoot);
+        stubLoader.setRootToReturn(newRoot);
+        TreeNode reloaded = cache.loadTree("TREE1");
+        
+        // Assert
+        assertEquals("Load after a mixed-case save should not be stale", "X", reloaded.nodeName);
+        assertEquals("X", cache.loadTree("tree1").nodeName);
+        assertEquals("Both spellings should share one entry", 1, cache.size());
+    }
+    
+    @Test
+    public void testSaveTree_WhenSaverFails_StillInvalidates() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        stubSaver.setExceptionToThrow(new Exception("Save failed"));
+        
+        // Act
+        try {
+            cache.saveTree("tree1", new TreeNode("X", 1));
+            fail("Exception should be passed on");
+        } catch (Exception expected) {
+            assertEquals("Save failed", expected.getMessage());
+        }
+        
+        // Assert
+        assertEquals("Tree should no longer be cached", 0, cache.size());
+    }
+    
+    @Test
+    public void testLoadTree_WhenLoaderFails_NothingIsCached() throws Exception {
+        // Arrange
+        stubLoader.setExceptionToThrow(new Exception("Database error"));
+        
+        // Act
+        try {
+            cache.loadTree("tree1");
+            fail("Exception should be passed on");
+        } catch (Exception expected) {
+            // Assert
+            assertEquals(0, cache.size());
+        }
+    }
+    
+    @Test
+    public void testWithTree_RepeatedBuilds_LoadOnce() {
+        // Arrange
+        Tree tree = new Tree("tree1", cache, cache, new MockMessageController());
+        
+        // Act
+        tree.buildTreeFromDatabase();
+        tree.setLeftChild("A", new TreeNode("Z", 1));
+        tree.buildTreeFromDatabase();
+        
+        // Assert
+        assertEquals("Loader should be called once", 1, stubLoader.getLoadTreeCallCount());
+        assertEquals("Edit of the first build should not leak into the cache", "B", tree.getRoot().left.nodeName);
+    }
+    
+    @Test
+    public void testLoadTrees_LoadsOnlyTreesNotCached() throws Exception {
+        // Arrange
+        cache.loadTree("tree1");
+        
+        // Act
+        Map<String, TreeNode> trees = cache.loadTrees(Arrays.asList("tree1", "tree2"));
+        
+        // Assert
+        assertEquals("Only tree2 should be loaded", 2, stubLoader.getLoadTreeCallCount());
+        assertEquals("A", trees.get("tree1").nodeName);
+        assertEquals("A", trees.get("tree2").nodeName);
+        assertEquals("Both trees should now be cached", 2, cache.size());
+    }
+    
+    @Test
+    public void testLoadTree_WithMetrics_RecordsMissThenHit() throws Exception {
+        // Arrange
+        TreeMetrics metrics = new TreeMetrics();
+        cache.setMetrics(metrics);
+        
+        // Act
+        cache.loadTree("tree1");
+        cache.loadTree("tree1");
+        
+        // Assert
+        assertEquals(1, metrics.getCount(ITreeMetrics.Operation.CACHE_MISS));
+        assertEquals(1, metrics.getCount(ITreeMetrics.Operation.CACHE_HIT));
+    }
+    
+    @Test
+    public void testQueryPathLength_NotCached_ThenAnsweredFromCache() throws Exception {
+        // Act - the stub loader has no query of its own, so the default loads the tree
+        int first = cache.queryPathLength("tree1", "B", "C");
+        cache.loadTree("tree1");
+        int second = cache.queryPathLength("tree1", "B", "C");
+        
+        // Assert
+        assertEquals(2, first);
+        assertEquals(2, second);
+        assertEquals("Query is not cached, the second one is answered by the load", 2, stubLoader.getLoadTreeCallCount());
+        assertEquals(-1, cache.queryPathLength("tree1", "B", "X"));
+        assertEquals(2, stubLoader.getLoadTreeCallCount());
+    }
+}
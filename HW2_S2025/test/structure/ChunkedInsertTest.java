@@ -0,0 +1,110 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class ChunkedInsertTest {
+    private ConnectionPool pool;
+    private Connection connection;
+    
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "insert", "user", "password");
+        connection = pool.getConnection();
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+        pool.close();
+    }
+    
+    @Test
+    public void testFlush_SevenRowsChunkOfThree_SendsThreeStatements() throws SQLException {
+        // Arrange
+        ChunkedInsert insert = new ChunkedInsert(connection, "t1", 3);
+        
+        // Act
+        for (int i = 0; i < 7; i++) {
+            insert.add("N" + i, i, null, null);
+        }
+        int inserted = insert.flush();
+        insert.close();
+        
+        // Assert
+        assertEquals("All rows should be inserted", 7, inserted);
+        assertEquals("Two full chunks and one tail", 3, StubJdbcDriver.executedStatements.size());
+        assertEquals(ChunkedInsert.insertSql(3), StubJdbcDriver.executedStatements.get(0).sql);
+        assertEquals(ChunkedInsert.insertSql(3), StubJdbcDriver.executedStatements.get(1).sql);
+        assertEquals("Tail should carry only the remaining row",
+                ChunkedInsert.insertSql(1), StubJdbcDriver.executedStatements.get(2).sql);
+    }
+    
+    @Test
+    public void testAdd_BindsColumnsInRowOrder() throws SQLException {
+        // Arrange
+        ChunkedInsert insert = new ChunkedInsert(connection, "t1", 2);
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        
+        // Act
+        insert.add(root);
+        insert.add(root.left);
+        insert.flush();
+        
+        // Assert
+        StubJdbcDriver.ExecutedStatement statement = StubJdbcDriver.executedStatements.get(0);
+        assertEquals("t1", statement.parameters.get(1));
+        assertEquals("A", statement.parameters.get(2));
+        assertEquals(10, statement.parameters.get(3));
+        assertEquals("B", statement.parameters.get(4));
+        assertNull("Missing child should be bound as NULL", statement.parameters.get(5));
+        assertEquals("Second row should start at parameter 6", "t1", statement.parameters.get(6));
+        assertEquals("B", statement.parameters.get(7));
+    }
+    
+    @Test
+    public void testFlush_WithoutRows_SendsNothing() throws SQLException {
+        // Act
+        int inserted = new ChunkedInsert(connection, "t1", 10).flush();
+        
+        // Assert
+        assertEquals(0, inserted);
+        assertTrue(StubJdbcDriver.executedStatements.isEmpty());
+    }
+    
+    @Test
+    public void testInsertSql_BuildsOneValuesGroupPerRow() {
+        assertEquals("INSERT INTO world.tree (treeName, nodename, weight, leftp, rightp) VALUES (?, ?, ?, ?, ?),(?, ?, ?, ?, ?)",
+                ChunkedInsert.insertSql(2));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ChunkTooLarge_Throws() {
+        new ChunkedInsert(connection, "t1", ChunkedInsert.MAX_CHUNK_SIZE + 1);
+    }
+    
+    @Test
+    public void testSaveTree_WithStubDatabase_InsertsInChunks() throws Exception {
+        // Arrange
+        TreeSaverDB saver = new TreeSaverDB(pool);
+        saver.setInsertChunkSize(2);
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        
+        // Act
+        saver.saveTree("t1", root);
+        
+        // Assert - delete, one chunk of 2 rows, one tail of 1 row
+        assertEquals(3, StubJdbcDriver.executedStatements.size());
+        assertTrue(StubJdbcDriver.executedStatements.get(0).sql.startsWith("DELETE"));
+        assertEquals(ChunkedInsert.insertSql(2), StubJdbcDriver.executedStatements.get(1).sql);
+        assertEquals(ChunkedInsert.insertSql(1), StubJdbcDriver.executedStatements.get(2).sql);
+    }
+}
@@ -0,0 +1,321 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests closure table maintenance in TreeSaverDB and
+ * TreeBuilderDB.queryPathLength against the stub JDBC driver
+ */
+public class ClosureTableTest {
+    private ConnectionPool pool;
+    private TreeSaverDB treeSaver;
+    private TreeNode root;
+    private MockMessageController mockMessageController;
+
+    private static final Object[][] SAMPLE_TREE = {
+            {"A", 10, "B", "C"}, {"B", 20, "D", null}, {"C", 5, null, null}, {"D", 10, null, null}};
+    private static final Object[][] SAMPLE_CLOSURE = {
+            {"A", "A", 0}, {"B", "B", 0}, {"C", "C", 0}, {"D", "D", 0},
+            {"A", "B", 1}, {"A", "C", 1}, {"B", "D", 1}, {"A", "D", 2}};
+
+    /**
+     * Tree A(B(D), C)
+     */
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "closure", "user", "password");
+        treeSaver = new TreeSaverDB(pool);
+        treeSaver.setMaintainClosureTable(true);
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        mockMessageController = new MockMessageController();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testSaveTree_WritesOneRowPerNodeAndAncestor() throws Exception {
+        // Act
+        treeSaver.saveTree("t1", root);
+
+        // Assert - tree delete and insert, then closure delete and insert
+        List<StubJdbcDriver.ExecutedStatement> statements = StubJdbcDriver.executedStatements;
+        assertEquals(4, statements.size());
+        assertEquals("DELETE FROM world.tree_closure WHERE treeName = ?", statements.get(2).sql);
+        assertEquals(ClosureTable.insertSql(8), statements.get(3).sql);
+        Set<String> rows = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            assertEquals("t1", statements.get(3).parameters.get(4 * i + 1));
+            rows.add(statements.get(3).parameters.get(4 * i + 2) + ">"
+                    + statements.get(3).parameters.get(4 * i + 3) + ":"
+                    + statements.get(3).parameters.get(4 * i + 4));
+        }
+        Set<String> expected = new HashSet<>();
+        Collections.addAll(expected, "A>A:0", "B>B:0", "C>C:0", "D>D:0", "A>B:1", "A>C:1", "B>D:1", "A>D:2");
+        assertEquals(expected, rows);
+    }
+
+    @Test
+    public void testSaveTree_SmallChunks_SplitsClosureInserts() throws Exception {
+        // Arrange
+        treeSaver.setInsertChunkSize(3);
+
+        // Act
+        treeSaver.saveTree("t1", root);
+
+        // Assert - 4 nodes in chunks of 3, 8 closure rows in chunks of 3
+        List<StubJdbcDriver.ExecutedStatement> statements = StubJdbcDriver.executedStatements;
+        assertEquals(1 + 2 + 1 + 3, statements.size());
+        assertEquals(ClosureTable.insertSql(3), statements.get(4).sql);
+        assertEquals(ClosureTable.insertSql(2), statements.get(6).sql);
+    }
+
+    @Test
+    public void testSaveTree_Disabled_WritesNoClosureRows() throws Exception {
+        // Arrange
+        treeSaver.setMaintainClosureTable(false);
+
+        // Act
+        treeSaver.saveTree("t1", root);
+
+        // Assert
+        assertEquals(2, StubJdbcDriver.executedStatements.size());
+    }
+
+    @Test
+    public void testSaves_DisabledWithoutClosureTable_Succeed() throws Exception {
+        // Arrange - a database created before world.tree_closure existed
+        StubJdbcDriver.missingTables.add("world.tree_closure");
+        treeSaver.setMaintainClosureTable(false);
+        PersistentTree stored = PersistentTree.of(root);
+
+        // Act - replace, shape-changing diff and version saves
+        treeSaver.saveTree("t1", root);
+        treeSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        answerStoredRows();
+        root.right.left = new TreeNode("E", 1);
+        treeSaver.saveTree("t1", root);
+        treeSaver.saveVersion("t2", stored.withRightChild("C", new TreeNode("E", 1)), stored);
+
+        // Assert
+        for (StubJdbcDriver.ExecutedStatement statement : StubJdbcDriver.executedStatements) {
+            assertFalse(statement.sql, statement.sql.contains("tree_closure"));
+        }
+    }
+
+    @Test
+    public void testSaveTreeDiff_NewShapeWithClosureOff_QueryLoadsTree() throws Exception {
+        // Arrange - closure rows written for A(B(D), C)
+        treeSaver.saveTree("t1", root);
+        treeSaver.setMaintainClosureTable(false);
+        treeSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        answerStoredRows();
+
+        // Act - D moves under C without closure maintenance
+        root.right.left = root.left.left;
+        root.left.left = null;
+        treeSaver.saveTree("t1", root);
+
+        // Assert - the old rows put D under B, which world.tree no longer does
+        answerQueries(new Object[][] {{"A", 10, "B", "C"}, {"B", 20, null, null}, {"C", 5, "D", null}, {"D", 10, null, null}},
+                SAMPLE_CLOSURE);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+        StubJdbcDriver.executedStatements.clear();
+        assertEquals("D-C is one edge in the new shape", 1, loader.queryPathLength("t1", "D", "C"));
+        assertEquals("Stale rows should make the query load the tree", 3, StubJdbcDriver.executedStatements.size());
+    }
+
+    @Test
+    public void testSaveTreeDiff_WeightChange_KeepsClosureRows() throws Exception {
+        // Arrange
+        treeSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        answerStoredRows();
+        root.right.weight = 50;
+
+        // Act
+        treeSaver.saveTree("t1", root);
+
+        // Assert - read and one update, nothing on the closure table
+        assertEquals(2, StubJdbcDriver.executedStatements.size());
+        assertTrue(StubJdbcDriver.executedStatements.get(1).sql.startsWith("UPDATE"));
+    }
+
+    @Test
+    public void testSaveTreeDiff_MovedNode_RewritesClosureRows() throws Exception {
+        // Arrange - D moves from under B to under C
+        treeSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        answerStoredRows();
+        root.right.left = root.left.left;
+        root.left.left = null;
+
+        // Act
+        treeSaver.saveTree("t1", root);
+
+        // Assert - read, two updates, closure delete and insert
+        List<StubJdbcDriver.ExecutedStatement> statements = StubJdbcDriver.executedStatements;
+        assertEquals(5, statements.size());
+        assertEquals(ClosureTable.insertSql(8), statements.get(4).sql);
+    }
+
+    @Test
+    public void testSaveVersion_RewritesClosureOnlyWhenShapeChanges() throws Exception {
+        // Arrange
+        PersistentTree stored = PersistentTree.of(root);
+        PersistentTree reweighted = stored.withWeight("D", 1);
+
+        // Act
+        treeSaver.saveVersion("t1", reweighted, stored);
+        int weightOnly = StubJdbcDriver.executedStatements.size();
+        treeSaver.saveVersion("t1", reweighted.withRightChild("C", new TreeNode("E", 1)), reweighted);
+
+        // Assert - update of C, insert of E, closure delete and insert (E adds E>E, C>E, A>E)
+        assertEquals(1, weightOnly);
+        assertEquals(1 + 4, StubJdbcDriver.executedStatements.size());
+        assertEquals(ClosureTable.insertSql(11), StubJdbcDriver.executedStatements.get(4).sql);
+    }
+
+    @Test
+    public void testQueryPathLength_AnsweredByOneQuery() throws Exception {
+        // Arrange
+        answerQueries(SAMPLE_TREE, SAMPLE_CLOSURE);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+
+        // Act
+        int pathLength = loader.queryPathLength("t1", "D", "C");
+
+        // Assert
+        assertEquals(3, pathLength);
+        assertEquals(1, StubJdbcDriver.executedStatements.size());
+        StubJdbcDriver.ExecutedStatement statement = StubJdbcDriver.executedStatements.get(0);
+        assertEquals(ClosureTable.CHAINS_QUERY, statement.sql);
+        assertEquals("t1", statement.parameters.get(1));
+        assertEquals("D", statement.parameters.get(2));
+        assertEquals("C", statement.parameters.get(3));
+        assertEquals("Node with itself", 0, loader.queryPathLength("t1", "d", "D"));
+    }
+
+    @Test
+    public void testQueryPathLength_TreeGrewAboveOldRoot_StillAnswered() throws Exception {
+        // Arrange - R was added above A without closure maintenance
+        answerQueries(new Object[][] {{"R", 1, "A", null}, {"A", 10, "B", "C"}, {"B", 20, "D", null},
+                {"C", 5, null, null}, {"D", 10, null, null}}, SAMPLE_CLOSURE);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+
+        // Act & Assert - the old rows still give the LCA of D and C
+        assertEquals(3, loader.queryPathLength("t1", "D", "C"));
+        assertEquals(1, StubJdbcDriver.executedStatements.size());
+    }
+
+    @Test
+    public void testQueryPathLength_MissingNode_ReturnsMinusOne() throws Exception {
+        // Arrange - X has no closure rows and is not in world.tree
+        answerQueries(SAMPLE_TREE, SAMPLE_CLOSURE);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+
+        // Assert
+        assertEquals(-1, loader.queryPathLength("t1", "D", "X"));
+        assertEquals("Closure query, then the node check", 2, StubJdbcDriver.executedStatements.size());
+    }
+
+    @Test
+    public void testQueryPathLength_NoClosureRows_LoadsTree() throws Exception {
+        // Arrange - the closure table knows nothing, world.tree has A(B(D), C)
+        answerQueries(SAMPLE_TREE, new Object[0][]);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+
+        // Act
+        int pathLength = loader.queryPathLength("t1", "D", "C");
+
+        // Assert
+        assertEquals(3, pathLength);
+        assertEquals("Closure query, node check, then the load", 3, StubJdbcDriver.executedStatements.size());
+    }
+
+    @Test
+    public void testQueryPathLength_NoClosureTable_LoadsTree() throws Exception {
+        // Arrange - a database created before world.tree_closure existed
+        StubJdbcDriver.missingTables.add("world.tree_closure");
+        answerQueries(SAMPLE_TREE, new Object[0][]);
+        TreeBuilderDB loader = new TreeBuilderDB(pool, mockMessageController);
+
+        // Act
+        int first = loader.queryPathLength("t1", "D", "C");
+        int second = loader.queryPathLength("t1", "D", "B");
+
+        // Assert - the missing table is found once, later queries load directly
+        assertEquals(3, first);
+        assertEquals(1, second);
+        assertFalse("A missing table is not a database problem", mockMessageController.wasSendWarningCalled());
+        assertEquals("Only the loads run (failed statements are not recorded)", 2, StubJdbcDriver.executedStatements.size());
+    }
+
+    /**
+     * Answers the closure and node queries from the given world.tree rows
+     * (name, weight, left, right) and closure rows (ancestor, descendant,
+     * depth); any other query is a load and gets all tree rows
+     */
+    private static void answerQueries(Object[][] treeRows, Object[][] closureRows) {
+        StubJdbcDriver.queryHandler = statement -> {
+            List<Object[]> rows = new ArrayList<>();
+            String x = (String) statement.parameters.get(2);
+            String y = (String) statement.parameters.get(3);
+            if (statement.sql.equals(ClosureTable.CHAINS_QUERY)) {
+                for (int depth = 0; depth < treeRows.length; depth++) {
+                    for (Object[] closure : closureRows) {
+                        String descendant = (String) closure[1];
+                        boolean asked = descendant.equalsIgnoreCase(x) || descendant.equalsIgnoreCase(y);
+                        if (asked && (Integer) closure[2] == depth) {
+                            Object[] node = find(treeRows, (String) closure[0]);
+                            rows.add(new Object[] {descendant, closure[0],
+                                    node == null ? null : node[0], node == null ? null : node[2], node == null ? null : node[3]});
+                        }
+                    }
+                }
+            } else if (statement.sql.equals(ClosureTable.NODE_COUNT_QUERY)) {
+                int count = (find(treeRows, x) != null ? 1 : 0) + (!x.equalsIgnoreCase(y) && find(treeRows, y) != null ? 1 : 0);
+                rows.add(new Object[] {count});
+            } else {
+                Collections.addAll(rows, treeRows);
+            }
+            return rows;
+        };
+    }
+
+    private static Object[] find(Object[][] treeRows, String name) {
+        for (Object[] row : treeRows) {
+            if (((String) row[0]).equalsIgnoreCase(name)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Answers the DIFF read with the rows of the tree built in setUp
+     */
+    private void answerStoredRows() {
+        StubJdbcDriver.queryHandler = statement -> {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {"A", 10, "B", "C"});
+            rows.add(new Object[] {"B", 20, "D", null});
+            rows.add(new Object[] {"C", 5, null, null});
+            rows.add(new Object[] {"D", 10, null, null});
+            return rows;
+        };
+    }
+}
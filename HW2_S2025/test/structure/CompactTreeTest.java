@@ -0,0 +1,96 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompactTreeTest {
+    private TreeNode root;
+    private CompactTree compactTree;
+    
+    @Before
+    public void setUp() {
+        // Homework tree
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        compactTree = CompactTree.fromTreeNode(root);
+    }
+    
+    @Test
+    public void testFromTreeNode_KeepsStructureInPreorderIds() {
+        // Assert
+        assertEquals("Tree should have 4 nodes", 4, compactTree.size());
+        assertEquals("Root should get id 0", 0, compactTree.getRoot());
+        assertEquals("Root should be A", "A", compactTree.nameOf(0));
+        int b = compactTree.findNode("B");
+        assertEquals("B should follow A in preorder", 1, b);
+        assertEquals("B's left child should be D", "D", compactTree.nameOf(compactTree.leftOf(b)));
+        assertEquals("B should have no right child", CompactTree.NONE, compactTree.rightOf(b));
+        assertEquals("B's parent should be A", 0, compactTree.parentOf(b));
+        assertEquals("D's weight should be 10", 10, compactTree.weightOf(compactTree.findNode("D")));
+        assertEquals("Unknown node should not be found", CompactTree.NONE, compactTree.findNode("Z"));
+    }
+    
+    @Test
+    public void testQueries_MatchTree() {
+        // Assert
+        assertEquals("Path length from D to C should be 3", 3, compactTree.calculatePathLength("D", "C"));
+        assertEquals("Path length from A to A should be 0", 0, compactTree.calculatePathLength("A", "A"));
+        assertEquals("Missing node should give -1", -1, compactTree.calculatePathLength("A", "Z"));
+        assertEquals("LCA of D and C should be A", "A", compactTree.findLCA("D", "C"));
+        assertEquals("LCA with one missing node returns the found one", "D", compactTree.findLCA("Z", "D"));
+        assertNull("LCA of missing nodes should be null", compactTree.findLCA("X", "Z"));
+        assertEquals("Distance from B to D should be 1", 1, compactTree.calculateDistance(compactTree.findNode("B"), "D"));
+        assertEquals("Distance from C to D should be -1", -1, compactTree.calculateDistance(compactTree.findNode("C"), "D"));
+    }
+    
+    @Test
+    public void testBuilder_ResolvesForwardReferencesAndDropsMissingRows() {
+        // Arrange - rows in arbitrary order, child "X" has no row of its own
+        CompactTree.Builder builder = new CompactTree.Builder();
+        builder.addNode("D", 10, null, null);
+        builder.addNode("B", 20, "D", "X");
+        builder.addNode("A", 10, "B", "C");
+        builder.addNode("C", 5, null, null);
+        
+        // Act
+        CompactTree built = builder.build();
+        TreeNode rebuilt = built.toTreeNode();
+        
+        // Assert
+        assertEquals("Tree should have 4 nodes", 4, built.size());
+        assertEquals("Root should be the node without a parent", "A", rebuilt.nodeName);
+        assertEquals("A's left child should be B", "B", rebuilt.left.nodeName);
+        assertEquals("B's left child should be D", "D", rebuilt.left.left.nodeName);
+        assertNull("Link to missing row should be dropped", rebuilt.left.right);
+        assertEquals("C's weight should be 5", 5, rebuilt.right.weight);
+    }
+    
+    @Test
+    public void testEmptyTree_AnswersNotFound() {
+        // Act
+        CompactTree empty = CompactTree.fromTreeNode(null);
+        
+        // Assert
+        assertEquals("Empty tree should have no nodes", 0, empty.size());
+        assertEquals("Empty tree should have no root", CompactTree.NONE, empty.getRoot());
+        assertEquals("Path length in empty tree should be -1", -1, empty.calculatePathLength("A", "B"));
+        assertNull("Empty tree should materialize as null", empty.toTreeNode());
+    }
+    
+    @Test
+    public void testNonAsciiNames_AreFound() {
+        // Arrange
+        TreeNode unicodeRoot = new TreeNode("\u05E2\u05E5", 1);
+        unicodeRoot.left = new TreeNode("\u00F1odo", 2);
+        
+        // Act
+        CompactTree unicodeTree = CompactTree.fromTreeNode(unicodeRoot);
+        
+        // Assert
+        assertEquals("Non-ASCII name should be found", 1, unicodeTree.findNode("\u00F1odo"));
+        assertEquals("Path between non-ASCII names", 1, unicodeTree.calculatePathLength("\u05E2\u05E5", "\u00F1odo"));
+    }
+}
@@ -0,0 +1,254 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentTreeTest {
+    private StubTreeLoader stubLoader;
+    private StubTreeSaver stubSaver;
+    private MockMessageController mockMessageController;
+    private ConcurrentTree tree;
+
+    @Before
+    public void setUp() {
+        stubLoader = new StubTreeLoader();
+        stubSaver = new StubTreeSaver();
+        mockMessageController = new MockMessageController();
+        tree = new ConcurrentTree("test_tree", stubLoader, stubSaver, mockMessageController);
+    }
+
+    /**
+     *        A(10)
+     *       /    \
+     *     B(5)   C(3)
+     *    /
+     *  D(7)
+     */
+    private TreeNode createSampleTree() {
+        TreeNode a = new TreeNode("A", 10);
+        TreeNode b = new TreeNode("B", 5);
+        TreeNode c = new TreeNode("C", 3);
+        TreeNode d = new TreeNode("D", 7);
+        a.left = b;
+        a.right = c;
+        b.left = d;
+        return a;
+    }
+
+    @Test
+    public void testCurrent_InitiallyEmpty() {
+        // Act
+        ConcurrentTree.Version version = tree.current();
+
+        // Assert
+        assertTrue("New tree should be empty", version.isEmpty());
+        assertEquals(0, version.getVersion());
+        assertEquals(0, version.size());
+        assertNull(version.findLCA("A", "B"));
+        assertEquals(-1, version.calculatePathLength("A", "B"));
+        assertEquals(Tree.NO_PATH, version.calculateWeightedPathLength("A", "B"));
+    }
+
+    @Test
+    public void testReplaceRoot_QueriesAnswerFromSnapshot() {
+        // Act
+        ConcurrentTree.Version version = tree.replaceRoot(createSampleTree());
+
+        // Assert
+        assertEquals(1, version.getVersion());
+        assertEquals(4, version.size());
+        assertEquals("A", version.findLCA("D", "C"));
+        assertEquals("B", version.findLCA("D", "B"));
+        assertEquals("Only found node should be returned", "D", version.findLCA("D", "X"));
+        assertEquals(3, version.calculatePathLength("D", "C"));
+        assertEquals(25, version.calculateWeightedPathLength("D", "C"));
+        assertEquals(10, version.findPathMaxWeight("D", "C"));
+        assertEquals(3, version.findPathMinWeight("D", "C"));
+        assertEquals(2, version.aggregate().getHeight());
+        assertEquals(Integer.valueOf(7), version.getWeight("D"));
+        assertNull(version.getWeight("X"));
+    }
+
+    @Test
+    public void testReplaceRoot_CopiesNodes() {
+        // Arrange
+        TreeNode root = createSampleTree();
+        tree.replaceRoot(root);
+
+        // Act - changing the caller's nodes afterwards
+        root.left.weight = 100;
+        root.right = null;
+
+        // Assert
+        assertEquals(Integer.valueOf(5), tree.current().getWeight("B"));
+        assertTrue(tree.current().contains("C"));
+    }
+
+    @Test
+    public void testUpdateWeight_PublishesNewVersionAndKeepsOld() {
+        // Arrange
+        ConcurrentTree.Version before = tree.replaceRoot(createSampleTree());
+
+        // Act
+        boolean found = tree.updateWeight("B", 50);
+
+        // Assert
+        ConcurrentTree.Version after = tree.current();
+        assertTrue(found);
+        assertEquals(2, after.getVersion());
+        assertEquals(67, after.calculateWeightedPathLength("D", "A"));
+        assertEquals("Old version should be unchanged", 22, before.calculateWeightedPathLength("D", "A"));
+        assertEquals(Integer.valueOf(5), before.getWeight("B"));
+    }
+
+    @Test
+    public void testUpdateWeight_MissingNode_ReturnsFalse() {
+        // Arrange
+        tree.replaceRoot(createSampleTree());
+
+        // Act
+        boolean found = tree.updateWeight("X", 1);
+
+        // Assert
+        assertFalse(found);
+        assertEquals(22, tree.current().calculateWeightedPathLength("D", "A"));
+    }
+
+    @Test
+    public void testUpdate_StructuralEditRebuildsIndex() {
+        // Arrange
+        tree.replaceRoot(createSampleTree());
+
+        // Act - move E under C
+        ConcurrentTree.Version version = tree.update(t -> t.setRightChild("C", new TreeNode("E", 1)));
+
+        // Assert
+        assertEquals(5, version.size());
+        assertEquals("A", version.findLCA("E", "D"));
+        assertEquals(4, version.calculatePathLength("E", "D"));
+    }
+
+    @Test
+    public void testUpdate_EditCannotReachPublishedNodes() {
+        // Arrange
+        tree.replaceRoot(createSampleTree());
+        AtomicReference<Tree> leaked = new AtomicReference<>();
+
+        // Act
+        tree.update(leaked::set);
+        leaked.get().updateWeight("A", 99);
+
+        // Assert
+        assertEquals(Integer.valueOf(10), tree.current().getWeight("A"));
+    }
+
+    @Test
+    public void testBuildTreeFromDatabase_PublishesLoadedTree() throws Exception {
+        // Arrange
+        stubLoader.setRootToReturn(createSampleTree());
+
+        // Act
+        boolean loaded = tree.buildTreeFromDatabase();
+
+        // Assert
+        assertTrue(loaded);
+        assertEquals(4, tree.current().size());
+        assertEquals(1, stubLoader.getLoadTreeCallCount());
+    }
+
+    @Test
+    public void testBuildTreeFromDatabase_LoaderEditsItsNodes_VersionUnchanged() {
+        // Arrange
+        TreeNode loaderRoot = createSampleTree();
+        stubLoader.setRootToReturn(loaderRoot);
+        tree.buildTreeFromDatabase();
+
+        // Act
+        loaderRoot.weight = 99;
+        loaderRoot.right = null;
+
+        // Assert
+        assertEquals(Integer.valueOf(10), tree.current().getWeight("A"));
+        assertEquals(4, tree.current().size());
+    }
+
+    @Test
+    public void testBuildTreeFromDatabase_WhenLoaderFails_KeepsCurrentVersion() {
+        // Arrange
+        ConcurrentTree.Version before = tree.replaceRoot(createSampleTree());
+        stubLoader.setExceptionToThrow(new Exception("Database error"));
+
+        // Act
+        boolean loaded = tree.buildTreeFromDatabase();
+
+        // Assert
+        assertFalse(loaded);
+        assertSame(before, tree.current());
+        assertTrue(mockMessageController.wasSendWarningCalled());
+        assertEquals("Failed to build tree from database", mockMessageController.getLastWarningMessage());
+    }
+
+    @Test
+    public void testSaveTreeInDatabase_SavesCurrentVersion() {
+        // Arrange
+        tree.replaceRoot(createSampleTree());
+
+        // Act
+        tree.saveTreeInDatabase("saved");
+
+        // Assert
+        assertEquals("saved", stubSaver.getLastSavedTreeName());
+        assertEquals("A", stubSaver.getSavedRoot().nodeName);
+    }
+
+    @Test
+    public void testConcurrentReadersDuringWrites_SeeConsistentVersions() throws Exception {
+        // Arrange - every published version has weight(A) == version number,
+        // so a reader that saw a half-applied write would see a mismatch
+        tree.replaceRoot(createSampleTree());
+        tree.updateWeight("A", 2);
+        int readerCount = 4;
+        int writes = 200;
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(readerCount);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < readerCount; i++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                while (!done.get()) {
+                    ConcurrentTree.Version version = tree.current();
+                    long expected = version.getVersion() + 5 + 7;
+                    long actual = version.calculateWeightedPathLength("D", "A");
+                    if (actual != expected) {
+                        failure.compareAndSet(null, "version " + version.getVersion() + " gave " + actual);
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        started.await();
+
+        // Act
+        for (int i = 0; i < writes; i++) {
+            ConcurrentTree.Version base = tree.current();
+            tree.updateWeight("A", (int) base.getVersion() + 1);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        // Assert
+        assertNull("Readers should only see complete versions", failure.get());
+        assertEquals(2 + writes, tree.current().getVersion());
+        assertEquals(Integer.valueOf(2 + writes), tree.current().getWeight("A"));
+    }
+}
@@ -0,0 +1,113 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class ConnectionPoolTest {
+    private ConnectionPool pool;
+    
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "pool", "user", "password", 2, 50);
+    }
+    
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+    
+    @Test
+    public void testGetConnection_ReusesReturnedConnection() throws SQLException {
+        // Act
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+        second.close();
+        
+        // Assert
+        assertEquals("Only one physical connection should be opened", 1, StubJdbcDriver.openedConnections.get());
+        assertEquals("Returned connection should stay idle in the pool", 1, pool.getIdleCount());
+        assertEquals("Physical connection should not be closed", 0, StubJdbcDriver.closedConnections.get());
+    }
+    
+    @Test
+    public void testGetConnection_WhenMaxSizeReached_TimesOut() throws SQLException {
+        // Arrange
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        
+        // Act
+        try {
+            pool.getConnection();
+            fail("Third connection should time out");
+        } catch (SQLException expected) {
+            // Assert
+            assertTrue("Message should mention the timeout", expected.getMessage().contains("Timed out"));
+        }
+        second.close();
+        Connection third = pool.getConnection();
+        
+        // Assert
+        assertNotNull("Connection should be available after one was returned", third);
+        first.close();
+        third.close();
+    }
+    
+    @Test
+    public void testClosedConnection_CannotBeUsedAgain() throws SQLException {
+        // Arrange
+        Connection connection = pool.getConnection();
+        connection.close();
+        
+        // Act & Assert
+        assertTrue("Proxy should report closed", connection.isClosed());
+        try {
+            connection.setAutoCommit(false);
+            fail("Using a returned connection should fail");
+        } catch (SQLException expected) {
+            assertEquals("Connection is closed", expected.getMessage());
+        }
+    }
+    
+    @Test
+    public void testReturnedConnection_IsResetToAutoCommit() throws SQLException {
+        // Arrange
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        
+        // Act
+        connection.close();
+        Connection reused = pool.getConnection();
+        
+        // Assert
+        assertTrue("Reused connection should be in auto-commit mode", reused.getAutoCommit());
+        reused.close();
+    }
+    
+    @Test
+    public void testClose_ClosesIdleConnections() throws SQLException {
+        // Arrange
+        pool.getConnection().close();
+        
+        // Act
+        pool.close();
+        
+        // Assert
+        assertEquals("Idle connection should be closed", 1, StubJdbcDriver.closedConnections.get());
+        assertEquals("No idle connections should remain", 0, pool.getIdleCount());
+    }
+    
+    @Test
+    public void testShared_ReturnsSamePoolForSameParameters() {
+        // Act & Assert
+        assertSame("Same parameters should share a pool",
+                ConnectionPool.shared("jdbc:stub:a", "u", "p"), ConnectionPool.shared("jdbc:stub:a", "u", "p"));
+        assertNotSame("Different parameters should not share a pool",
+                ConnectionPool.shared("jdbc:stub:a", "u", "p"), ConnectionPool.shared("jdbc:stub:b", "u", "p"));
+    }
+}
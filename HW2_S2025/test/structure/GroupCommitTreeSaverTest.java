@@ -0,0 +1,279 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class GroupCommitTreeSaverTest {
+    private BatchRecordingSaver recordingSaver;
+    private GroupCommitTreeSaver groupSaver;
+
+    /**
+     * Records each saveTrees call; fails every call while failure is set,
+     * and every call including badTree
+     */
+    private static class BatchRecordingSaver implements ITreeSaver {
+        final List<Map<String, TreeNode>> batches = Collections.synchronizedList(new ArrayList<Map<String, TreeNode>>());
+        volatile Exception failure;
+        volatile String badTree;
+
+        @Override
+        public void saveTree(String treeName, TreeNode root) throws Exception {
+            saveTrees(Collections.singletonMap(treeName, root));
+        }
+
+        @Override
+        public void saveTrees(Map<String, TreeNode> trees) throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            if (badTree != null && trees.containsKey(badTree)) {
+                throw new SQLException("Bad tree " + badTree);
+            }
+            batches.add(new LinkedHashMap<>(trees));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        recordingSaver = new BatchRecordingSaver();
+        // Long interval: tests flush explicitly unless they test the interval
+        groupSaver = new GroupCommitTreeSaver(recordingSaver, 60000, 100);
+    }
+
+    @After
+    public void tearDown() {
+        groupSaver.close();
+    }
+
+    @Test
+    public void testSaveTreeAsync_SeveralTrees_WrittenInOneBatch() throws Exception {
+        // Act
+        CompletableFuture<Void> first = groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+        CompletableFuture<Void> second = groupSaver.saveTreeAsync("t2", new TreeNode("B", 2));
+        groupSaver.flushNow();
+
+        // Assert
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isDone());
+        assertEquals(1, recordingSaver.batches.size());
+        assertEquals(2, recordingSaver.batches.get(0).size());
+        assertEquals(1, groupSaver.getFlushCount());
+    }
+
+    @Test
+    public void testSaveTreeAsync_SameTreeTwice_OnlyLatestWritten() throws Exception {
+        // Act
+        CompletableFuture<Void> first = groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+        CompletableFuture<Void> second = groupSaver.saveTreeAsync("T1", new TreeNode("A", 2));
+        groupSaver.flushNow();
+
+        // Assert
+        Map<String, TreeNode> batch = recordingSaver.batches.get(0);
+        assertEquals(1, batch.size());
+        assertEquals("Latest save should win", 2, batch.get("T1").weight);
+        assertTrue("Both callers should be answered", first.isDone() && second.isDone());
+        assertEquals(2, groupSaver.getSaveCount());
+        assertEquals(1, groupSaver.getCoalescedCount());
+    }
+
+    @Test
+    public void testSaveTreeAsync_CallerEditsAfterSave_DoNotChangeSavedTree() throws Exception {
+        // Arrange
+        TreeNode root = new TreeNode("A", 1);
+
+        // Act
+        groupSaver.saveTreeAsync("t1", root);
+        root.weight = 99;
+        groupSaver.flushNow();
+
+        // Assert
+        assertEquals(1, recordingSaver.batches.get(0).get("t1").weight);
+    }
+
+    @Test
+    public void testSaveTreeAsync_MaxBatchReached_WritesWithoutWaiting() throws Exception {
+        // Arrange
+        groupSaver.close();
+        groupSaver = new GroupCommitTreeSaver(recordingSaver, 60000, 2);
+
+        // Act
+        groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+        groupSaver.saveTreeAsync("t2", new TreeNode("B", 2)).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, recordingSaver.batches.size());
+    }
+
+    @Test
+    public void testSaveTree_WaitsForFlushInterval() throws Exception {
+        // Arrange
+        groupSaver.close();
+        groupSaver = new GroupCommitTreeSaver(recordingSaver, 5, 100);
+
+        // Act
+        groupSaver.saveTree("t1", new TreeNode("A", 1));
+
+        // Assert
+        assertEquals("Save should return after its write", 1, recordingSaver.batches.size());
+    }
+
+    @Test
+    public void testSaveTree_FailedWrite_ThrowsItsError() throws Exception {
+        // Arrange
+        groupSaver.close();
+        groupSaver = new GroupCommitTreeSaver(recordingSaver, 1, 100);
+        recordingSaver.failure = new SQLException("Connection lost");
+
+        // Act
+        try {
+            groupSaver.saveTree("t1", new TreeNode("A", 1));
+            fail("Expected the write error");
+        } catch (SQLException e) {
+            // Assert
+            assertEquals("Connection lost", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSaveTreeAsync_OneBadTree_OthersStillSaved() throws Exception {
+        // Arrange
+        recordingSaver.badTree = "t2";
+
+        // Act
+        CompletableFuture<Void> first = groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+        CompletableFuture<Void> bad = groupSaver.saveTreeAsync("t2", new TreeNode("B", 2));
+        CompletableFuture<Void> third = groupSaver.saveTreeAsync("t3", new TreeNode("C", 3));
+        groupSaver.flushNow();
+
+        // Assert - the batch fails, then each tree is written alone
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(third.isDone() && !third.isCompletedExceptionally());
+        try {
+            bad.get();
+            fail("The bad tree's save should fail");
+        } catch (ExecutionException e) {
+            assertEquals("Bad tree t2", e.getCause().getMessage());
+        }
+        assertEquals(2, recordingSaver.batches.size());
+    }
+
+    @Test
+    public void testSaveTreeAsync_SaverThrowsError_CallersAnswered() throws Exception {
+        // Arrange
+        ITreeSaver brokenSaver = new ITreeSaver() {
+            @Override
+            public void saveTree(String treeName, TreeNode root) {
+                throw new AssertionError("Broken saver");
+            }
+        };
+        groupSaver.close();
+        groupSaver = new GroupCommitTreeSaver(brokenSaver, 60000, 100);
+
+        // Act
+        CompletableFuture<Void> first = groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+        CompletableFuture<Void> second = groupSaver.saveTreeAsync("t2", new TreeNode("B", 2));
+        groupSaver.flushNow();
+
+        // Assert
+        assertTrue("An Error should not leave callers waiting", first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testClose_WritesWaitingTreesAndRejectsLaterSaves() throws Exception {
+        // Arrange
+        CompletableFuture<Void> waiting = groupSaver.saveTreeAsync("t1", new TreeNode("A", 1));
+
+        // Act
+        groupSaver.close();
+        CompletableFuture<Void> late = groupSaver.saveTreeAsync("t2", new TreeNode("B", 2));
+
+        // Assert
+        assertTrue(waiting.isDone() && !waiting.isCompletedExceptionally());
+        try {
+            late.get();
+            fail("Save after close should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testSaveTree_ConcurrentCallers_ShareWrites() throws Exception {
+        // Arrange
+        groupSaver.close();
+        groupSaver = new GroupCommitTreeSaver(recordingSaver, 20, 100);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String treeName = "t" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                groupSaver.saveTree(treeName, new TreeNode("A", 1));
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        int written = 0;
+        for (Map<String, TreeNode> batch : recordingSaver.batches) {
+            written += batch.size();
+        }
+        assertEquals(threads, written);
+        assertTrue("Saves should share writes, got " + groupSaver.getFlushCount(),
+                groupSaver.getFlushCount() < threads);
+    }
+
+    @Test
+    public void testWithTreeSaverDB_BatchIsOneTransaction() throws Exception {
+        // Arrange
+        StubJdbcDriver.register();
+        ConnectionPool pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "group", "user", "password");
+        try {
+            groupSaver.close();
+            groupSaver = new GroupCommitTreeSaver(new TreeSaverDB(pool), 60000, 100);
+            TreeNode root = new TreeNode("A", 1);
+            root.left = new TreeNode("B", 2);
+
+            // Act
+            groupSaver.saveTreeAsync("t1", root);
+            groupSaver.saveTreeAsync("t2", new TreeNode("C", 3));
+            groupSaver.flushNow();
+
+            // Assert - both trees on one connection, delete and insert each
+            assertEquals(1, StubJdbcDriver.openedConnections.get());
+            List<StubJdbcDriver.ExecutedStatement> statements = StubJdbcDriver.executedStatements;
+            assertEquals(4, statements.size());
+            assertEquals("t1", statements.get(0).parameters.get(1));
+            assertEquals(ChunkedInsert.insertSql(2), statements.get(1).sql);
+            assertEquals("t2", statements.get(2).parameters.get(1));
+            assertEquals(ChunkedInsert.insertSql(1), statements.get(3).sql);
+        } finally {
+            pool.close();
+        }
+    }
+}
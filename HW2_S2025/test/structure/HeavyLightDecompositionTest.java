@@ -0,0 +1,122 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class HeavyLightDecompositionTest {
+
+    @Test
+    public void testPathQueries_SampleTree_IncludeBothEnds() {
+        // Arrange
+        //        A(10)
+        //      B(20)  C(5)
+        //     D(10)     E(7)
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        root.right.right = new TreeNode("E", 7);
+        LcaIndex lcaIndex = new LcaIndex(root);
+        HeavyLightDecomposition heavyLight = new HeavyLightDecomposition(lcaIndex);
+        int d = lcaIndex.idOf("D");
+        int e = lcaIndex.idOf("E");
+
+        // Act & Assert
+        assertEquals("D-B-A-C-E", 52, heavyLight.pathSum(d, e));
+        assertEquals(20, heavyLight.pathMax(d, e));
+        assertEquals(5, heavyLight.pathMin(e, d));
+        assertEquals("Node with itself", 10, heavyLight.pathSum(d, d));
+    }
+
+    @Test
+    public void testUpdate_ChangesLaterQueries() {
+        // Arrange
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        LcaIndex lcaIndex = new LcaIndex(root);
+        HeavyLightDecomposition heavyLight = new HeavyLightDecomposition(lcaIndex);
+        int b = lcaIndex.idOf("B");
+        int c = lcaIndex.idOf("C");
+
+        // Act
+        heavyLight.update(lcaIndex.idOf("A"), -100);
+
+        // Assert
+        assertEquals(-75, heavyLight.pathSum(b, c));
+        assertEquals(20, heavyLight.pathMax(b, c));
+        assertEquals(-100, heavyLight.pathMin(b, c));
+    }
+
+    @Test
+    public void testRandomUpdatesAndQueries_MatchPathWalk() {
+        // Arrange - random tree, each node hangs under a random earlier node
+        Random random = new Random(11);
+        List<TreeNode> nodes = new ArrayList<>();
+        nodes.add(new TreeNode("N0", random.nextInt(100)));
+        for (int i = 1; i < 3000; i++) {
+            TreeNode node = new TreeNode("N" + i, random.nextInt(100));
+            TreeNode parent;
+            do {
+                parent = nodes.get(random.nextInt(nodes.size()));
+            } while (parent.left != null && parent.right != null);
+            if (parent.left == null) {
+                parent.left = node;
+            } else {
+                parent.right = node;
+            }
+            node.parent = parent;
+            nodes.add(node);
+        }
+        LcaIndex lcaIndex = new LcaIndex(nodes.get(0));
+        HeavyLightDecomposition heavyLight = new HeavyLightDecomposition(lcaIndex);
+
+        for (int step = 0; step < 1000; step++) {
+            // Act - update a random node
+            TreeNode changed = nodes.get(random.nextInt(nodes.size()));
+            changed.weight = random.nextInt(2000) - 1000;
+            heavyLight.update(lcaIndex.idOf(changed.nodeName), changed.weight);
+
+            // Assert - compare a random path with a walk up to the LCA
+            TreeNode x = nodes.get(random.nextInt(nodes.size()));
+            TreeNode y = nodes.get(random.nextInt(nodes.size()));
+            int xId = lcaIndex.idOf(x.nodeName);
+            int yId = lcaIndex.idOf(y.nodeName);
+            TreeNode lca = lcaIndex.nodeAt(lcaIndex.lca(xId, yId));
+            long sum = lca.weight;
+            int max = lca.weight;
+            int min = lca.weight;
+            for (TreeNode end : new TreeNode[] {x, y}) {
+                for (TreeNode n = end; n != lca; n = n.parent) {
+                    sum += n.weight;
+                    max = Math.max(max, n.weight);
+                    min = Math.min(min, n.weight);
+                }
+            }
+            assertEquals("Sum after step " + step, sum, heavyLight.pathSum(xId, yId));
+            assertEquals("Max after step " + step, max, heavyLight.pathMax(xId, yId));
+            assertEquals("Min after step " + step, min, heavyLight.pathMin(xId, yId));
+        }
+    }
+
+    @Test
+    public void testBuild_DeepSkewedTree_DoesNotOverflowStack() {
+        // Arrange
+        TreeNode root = new TreeNode("N0", 1);
+        TreeNode current = root;
+        for (int i = 1; i < 100000; i++) {
+            current.right = new TreeNode("N" + i, 1);
+            current = current.right;
+        }
+        LcaIndex lcaIndex = new LcaIndex(root);
+
+        // Act
+        HeavyLightDecomposition heavyLight = new HeavyLightDecomposition(lcaIndex);
+
+        // Assert
+        assertEquals(100000, heavyLight.pathSum(lcaIndex.idOf("N0"), lcaIndex.idOf("N99999")));
+    }
+}
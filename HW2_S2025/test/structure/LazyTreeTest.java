@@ -0,0 +1,147 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests LazyTree against the stub JDBC driver, which answers its two
+ * queries (rows by name, parents by child name) from an in-memory table
+ */
+public class LazyTreeTest {
+    private static final int NODES = 15;
+
+    private ConnectionPool pool;
+    private MockMessageController mockMessageController;
+    private LazyTree lazyTree;
+
+    /**
+     * Balanced tree N0..N14: children of Ni are N(2i+1) and N(2i+2), weight i
+     */
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        List<Object[]> table = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            String left = (2 * i + 1 < NODES) ? "N" + (2 * i + 1) : null;
+            String right = (2 * i + 2 < NODES) ? "N" + (2 * i + 2) : null;
+            table.add(new Object[] {"N" + i, i, left, right});
+        }
+        StubJdbcDriver.queryHandler = statement -> {
+            List<Object[]> rows = new ArrayList<>();
+            if (!"t1".equals(statement.parameters.get(1))) {
+                return rows;
+            }
+            Set<Object> names = new HashSet<>(statement.parameters.values());
+            boolean byParent = statement.sql.contains("leftp IN");
+            for (Object[] row : table) {
+                boolean match = byParent ? names.contains(row[2]) || names.contains(row[3]) : names.contains(row[0]);
+                if (match) {
+                    rows.add(row);
+                }
+            }
+            return rows;
+        };
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "lazy", "user", "password");
+        mockMessageController = new MockMessageController();
+        lazyTree = new TreeBuilderDB(pool, mockMessageController).openLazyTree("t1");
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testCalculatePathLength_Siblings_ReadsOnlyTheirRegion() throws Exception {
+        // Act
+        int pathLength = lazyTree.calculatePathLength("N7", "N8");
+
+        // Assert
+        assertEquals(2, pathLength);
+        assertEquals("One row query and one parent query", 2, lazyTree.getQueryCount());
+        assertEquals("Only N7, N8 and their parent N3 are read", 3, lazyTree.getCachedNodeCount());
+        assertEquals(LazyTree.rowsQuery(2), StubJdbcDriver.executedStatements.get(0).sql);
+        assertEquals(LazyTree.parentsQuery(2), StubJdbcDriver.executedStatements.get(1).sql);
+    }
+
+    @Test
+    public void testFindLCA_DistantNodes_ClimbsToCommonAncestor() throws Exception {
+        // Assert
+        assertEquals("N0", lazyTree.findLCA("N7", "N14"));
+        assertEquals(6, lazyTree.calculatePathLength("N7", "N14"));
+        assertEquals("Ancestor is its own LCA", "N1", lazyTree.findLCA("N9", "N1"));
+        assertEquals(2, lazyTree.calculatePathLength("N1", "N9"));
+        assertEquals(3, lazyTree.calculatePathLength("N0", "N13"));
+    }
+
+    @Test
+    public void testCalculatePathLength_CachedRegion_SendsNoQueries() throws Exception {
+        // Arrange
+        lazyTree.calculatePathLength("N7", "N8");
+        int queries = lazyTree.getQueryCount();
+
+        // Act
+        int pathLength = lazyTree.calculatePathLength("N8", "N7");
+
+        // Assert
+        assertEquals(2, pathLength);
+        assertEquals("Second query should be answered from the cache", queries, lazyTree.getQueryCount());
+    }
+
+    @Test
+    public void testCalculatePathLength_SameOrMissingNode() throws Exception {
+        // Assert
+        assertEquals(0, lazyTree.calculatePathLength("N5", "N5"));
+        assertEquals(-1, lazyTree.calculatePathLength("N5", "X"));
+        assertNull(lazyTree.findLCA("X", "N5"));
+        int queries = lazyTree.getQueryCount();
+        assertEquals("Missing node should be remembered", -1, lazyTree.calculatePathLength("X", "N5"));
+        assertEquals(queries, lazyTree.getQueryCount());
+    }
+
+    @Test
+    public void testLoadSubtree_OneQueryPerLevel() throws Exception {
+        // Act
+        TreeNode subtree = lazyTree.loadSubtree("N1", 1);
+
+        // Assert
+        assertEquals("N1", subtree.nodeName);
+        assertEquals("N3", subtree.left.nodeName);
+        assertEquals("N4", subtree.right.nodeName);
+        assertSame(subtree, subtree.left.parent);
+        assertNull("Only one level should be loaded", subtree.left.left);
+        assertEquals(2, lazyTree.getQueryCount());
+        assertNull(lazyTree.loadSubtree("X", 3));
+    }
+
+    @Test
+    public void testLoadSubtree_WholeTree() throws Exception {
+        // Act
+        TreeNode root = lazyTree.loadSubtree("N0", Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals(NODES, new SubtreeAggregator(root).invoke().getSize());
+        assertEquals("The root and three levels below it", 4, lazyTree.getQueryCount());
+    }
+
+    @Test
+    public void testGetWeightAndInvalidate() throws Exception {
+        // Arrange
+        assertEquals(Integer.valueOf(6), lazyTree.getWeight("N6"));
+
+        // Act
+        lazyTree.invalidate();
+
+        // Assert
+        assertEquals(0, lazyTree.getCachedNodeCount());
+        assertEquals(Integer.valueOf(6), lazyTree.getWeight("N6"));
+        assertEquals("Row should be read again", 2, lazyTree.getQueryCount());
+    }
+}
@@ -0,0 +1,71 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LcaIndexTest {
+    private TreeNode root;
+    private LcaIndex index;
+
+    @Before
+    public void setUp() {
+        // Homework tree plus one extra level:
+        //        A
+        //      B   C
+        //     D     E
+        //      F
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        root.left.left.right = new TreeNode("F", 1);
+        root.right.right = new TreeNode("E", 7);
+        index = new LcaIndex(root);
+    }
+
+    @Test
+    public void testIndex_ContainsAllNodesWithDepth() {
+        assertEquals("Index should contain 6 nodes", 6, index.size());
+        assertEquals("Root depth should be 0", 0, index.depthOf(index.idOf("A")));
+        assertEquals("F depth should be 3", 3, index.depthOf(index.idOf("F")));
+        assertSame("Node lookup should return the original node", root.left, index.nodeAt(index.idOf("B")));
+        assertEquals("Unknown node should have id -1", -1, index.idOf("Z"));
+        assertEquals("Root has no parent", -1, index.parentOf(index.idOf("A")));
+        assertEquals("F's parent should be D", index.idOf("D"), index.parentOf(index.idOf("F")));
+    }
+
+    @Test
+    public void testLca_ReturnsLowestCommonAncestor() {
+        assertEquals("LCA of F and B is B", "B", index.nodeAt(index.lca(index.idOf("F"), index.idOf("B"))).nodeName);
+        assertEquals("LCA of F and E is A", "A", index.nodeAt(index.lca(index.idOf("F"), index.idOf("E"))).nodeName);
+        assertEquals("LCA of C and E is C", "C", index.nodeAt(index.lca(index.idOf("E"), index.idOf("C"))).nodeName);
+        assertEquals("LCA of D and D is D", "D", index.nodeAt(index.lca(index.idOf("D"), index.idOf("D"))).nodeName);
+    }
+
+    @Test
+    public void testPathLength_MatchesEdgeCount() {
+        assertEquals("F to E should be 5", 5, index.pathLength("F", "E"));
+        assertEquals("A to D should be 2", 2, index.pathLength("A", "D"));
+        assertEquals("C to C should be 0", 0, index.pathLength("C", "C"));
+        assertEquals("Unknown node should give -1", -1, index.pathLength("A", "Z"));
+    }
+
+    @Test
+    public void testIndex_DeepSkewedTree_DoesNotOverflowStack() {
+        // Arrange - linked list shaped tree with 100000 levels
+        TreeNode deepRoot = new TreeNode("N0", 0);
+        TreeNode current = deepRoot;
+        for (int i = 1; i < 100000; i++) {
+            current.left = new TreeNode("N" + i, i);
+            current = current.left;
+        }
+
+        // Act
+        LcaIndex deepIndex = new LcaIndex(deepRoot);
+
+        // Assert
+        assertEquals("Path from top to bottom", 99999, deepIndex.pathLength("N0", "N99999"));
+        assertEquals("Path inside the chain", 500, deepIndex.pathLength("N1000", "N1500"));
+    }
+}
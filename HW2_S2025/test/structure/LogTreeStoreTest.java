@@ -0,0 +1,318 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LogTreeStoreTest {
+    private Path folder;
+    private Path logFile;
+    private LogTreeStore store;
+    private TreeNode root;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("treelog");
+        logFile = folder.resolve("trees.log");
+        store = new LogTreeStore(logFile);
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(logFile.resolveSibling("trees.log.compact"));
+        Files.deleteIfExists(logFile);
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testSaveTree_ThenLoad_ReturnsLatestTree() throws Exception {
+        // Arrange
+        store.saveTree("tree1", new TreeNode("X", 1));
+
+        // Act
+        store.saveTree("tree1", root);
+        TreeNode loaded = store.loadTree("TREE1");
+
+        // Assert
+        assertEquals("D", loaded.left.left.nodeName);
+        assertTrue(store.treeExists("tree1"));
+        assertNull(store.loadTree("tree2"));
+        assertEquals("Each save should be synced", 2, store.getSyncCount());
+    }
+
+    @Test
+    public void testReopen_RebuildsIndexFromLog() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+        store.saveTree("tree2", new TreeNode("X", 1));
+        store.saveTree("tree2", null);
+        long logSize = store.getLogSize();
+        store.close();
+
+        // Act
+        store = new LogTreeStore(logFile);
+
+        // Assert
+        assertEquals(logSize, store.getLogSize());
+        assertEquals(5, store.loadTree("tree1").right.weight);
+        assertFalse("Tombstone should hide tree2", store.treeExists("tree2"));
+    }
+
+    @Test
+    public void testSaveTree_EmptyTreeNotStored_WritesNothing() throws Exception {
+        // Act
+        store.saveTree("tree1", null);
+
+        // Assert
+        assertEquals(0, store.getLogSize());
+    }
+
+    @Test
+    public void testReopen_TornLastRecord_IsCutOff() throws Exception {
+        // Arrange - the second record loses its last bytes
+        store.saveTree("tree1", root);
+        long firstRecordEnd = store.getLogSize();
+        store.saveTree("tree2", root);
+        store.close();
+        try (RandomAccessFile log = new RandomAccessFile(logFile.toFile(), "rw")) {
+            log.setLength(log.length() - 3);
+        }
+
+        // Act
+        store = new LogTreeStore(logFile);
+
+        // Assert
+        assertEquals(firstRecordEnd, store.getLogSize());
+        assertEquals(firstRecordEnd, Files.size(logFile));
+        assertTrue(store.treeExists("tree1"));
+        assertFalse(store.treeExists("tree2"));
+        store.saveTree("tree2", root);
+        assertEquals("A", store.loadTree("tree2").nodeName);
+    }
+
+    @Test
+    public void testReopen_CorruptRecord_IsCutOff() throws Exception {
+        // Arrange - flip a byte inside the second record
+        store.saveTree("tree1", root);
+        long firstRecordEnd = store.getLogSize();
+        store.saveTree("tree2", root);
+        store.close();
+        try (RandomAccessFile log = new RandomAccessFile(logFile.toFile(), "rw")) {
+            log.seek(firstRecordEnd + LogTreeStore.HEADER_BYTES + 4);
+            int b = log.read();
+            log.seek(firstRecordEnd + LogTreeStore.HEADER_BYTES + 4);
+            log.write(b ^ 0xFF);
+        }
+
+        // Act
+        store = new LogTreeStore(logFile);
+
+        // Assert
+        assertEquals(firstRecordEnd, store.getLogSize());
+        assertFalse(store.treeExists("tree2"));
+    }
+
+    @Test
+    public void testCompact_KeepsOnlyLatestRecords() throws Exception {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            store.saveTree("tree1", new TreeNode("A", i));
+        }
+        store.saveTree("tree2", root);
+        store.saveTree("tree3", root);
+        store.saveTree("tree3", null);
+
+        // Act
+        store.compact();
+
+        // Assert
+        assertEquals(store.getLiveBytes(), store.getLogSize());
+        assertEquals(store.getLogSize(), Files.size(logFile));
+        assertEquals(9, store.loadTree("tree1").weight);
+        assertEquals("D", store.loadTree("tree2").left.left.nodeName);
+        assertFalse(store.treeExists("tree3"));
+        store.close();
+        store = new LogTreeStore(logFile);
+        assertEquals(9, store.loadTree("tree1").weight);
+        assertFalse(store.treeExists("tree3"));
+    }
+
+    @Test
+    public void testSaveTree_MostlyDeadLog_CompactsAutomatically() throws Exception {
+        // Arrange
+        store.close();
+        store = new LogTreeStore(logFile, 100);
+
+        // Act - every save but the last one is overwritten
+        for (int i = 0; i < 20; i++) {
+            store.saveTree("tree1", root);
+        }
+
+        // Assert
+        assertTrue("Compaction should have run", store.getCompactionCount() > 0);
+        assertTrue("Log should stay small", store.getLogSize() < 2 * store.getLiveBytes() + 100);
+        assertEquals("A", store.loadTree("tree1").nodeName);
+    }
+
+    @Test
+    public void testSaveTree_ConcurrentSaves_AllDurableWithSharedSyncs() throws Exception {
+        // Arrange
+        int threads = 8;
+        int savesPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String treeName = "t" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < savesPerThread; i++) {
+                    store.saveTree(treeName, new TreeNode("A", i));
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue("At most one sync per save", store.getSyncCount() <= threads * savesPerThread);
+        store.close();
+        store = new LogTreeStore(logFile);
+        for (int t = 0; t < threads; t++) {
+            assertEquals(savesPerThread - 1, store.loadTree("t" + t).weight);
+        }
+    }
+
+    @Test
+    public void testSaveTree_ConcurrentSavesWhileCompacting_AllDurable() throws Exception {
+        // Arrange - a small threshold, so compaction swaps the file during syncs
+        store.close();
+        store = new LogTreeStore(logFile, 200);
+        int threads = 4;
+        int savesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String treeName = "t" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < savesPerThread; i++) {
+                    store.saveTree(treeName, new TreeNode("A", i));
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue("Compaction should have run", store.getCompactionCount() > 0);
+        store.close();
+        store = new LogTreeStore(logFile);
+        for (int t = 0; t < threads; t++) {
+            assertEquals(savesPerThread - 1, store.loadTree("t" + t).weight);
+        }
+    }
+
+    @Test
+    public void testLoadTree_InterruptedThread_StoreStaysOpen() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+        Thread.currentThread().interrupt();
+
+        // Act
+        boolean failed = false;
+        try {
+            store.loadTree("tree1");
+        } catch (ClosedByInterruptException e) {
+            failed = true;
+        }
+        boolean stillInterrupted = Thread.interrupted();
+
+        // Assert
+        assertTrue("The interrupted load should fail", failed);
+        assertTrue("The interrupt status should be kept", stillInterrupted);
+        assertEquals("Later loads should reopen the log", "D", store.loadTree("tree1").left.left.nodeName);
+        store.saveTree("tree2", root);
+        assertEquals("Later saves should work", 10, store.loadTree("tree2").weight);
+    }
+
+    @Test
+    public void testSaveTree_InterruptedWriterThread_OtherThreadsContinue() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+        Thread writer = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            try {
+                store.saveTree("tree2", root);
+            } catch (Exception e) {
+                // expected: the interrupt closed the channel
+            }
+        });
+
+        // Act
+        writer.start();
+        writer.join();
+
+        // Assert
+        assertEquals("Stored tree should still load", 10, store.loadTree("tree1").weight);
+        store.saveTree("tree3", root);
+        store.close();
+        store = new LogTreeStore(logFile);
+        assertTrue("Save after the interrupt should be in the log", store.treeExists("tree3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadTree_AfterClose_Throws() throws Exception {
+        // Arrange
+        store.close();
+
+        // Act
+        store.loadTree("tree1");
+    }
+
+    @Test
+    public void testTree_UsesStoreAsLoaderAndSaver() throws Exception {
+        // Arrange
+        store.saveTree("tree1", root);
+        Tree tree = new Tree("tree1", store, store, new MockMessageController());
+
+        // Act
+        tree.buildTreeFromDatabase();
+        tree.saveTreeInDatabase("copy");
+
+        // Assert
+        assertEquals(3, tree.calculatePathLength("D", "C"));
+        assertEquals(3, store.queryPathLength("copy", "D", "C"));
+    }
+}
@@ -0,0 +1,61 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NodeIndexTest {
+    private TreeNode root;
+    private NodeIndex index;
+    
+    @Before
+    public void setUp() {
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        index = new NodeIndex(root);
+    }
+    
+    @Test
+    public void testIndex_FillsParentPointersAndDepth() {
+        // Assert
+        assertEquals("Index should contain 4 nodes", 4, index.size());
+        assertSame("D should be found by name", root.left.left, index.get("D"));
+        assertSame("D's parent should be B", root.left, index.get("D").parent);
+        assertNull("Root should have no parent", root.parent);
+        assertEquals("D's depth should be 2", 2, index.get("D").depth);
+        assertNull("Unknown name should not be found", index.get("Z"));
+    }
+    
+    @Test
+    public void testAttach_ReplacesSubtreeAndUpdatesIndex() {
+        // Arrange
+        TreeNode newChild = new TreeNode("E", 1);
+        newChild.right = new TreeNode("F", 2);
+        
+        // Act - replace B's subtree (B, D) under A
+        index.attach(root, newChild, true);
+        
+        // Assert
+        assertSame("A's left child should be E", newChild, root.left);
+        assertNull("B should be removed", index.get("B"));
+        assertNull("D should be removed", index.get("D"));
+        assertSame("F should be indexed", newChild.right, index.get("F"));
+        assertEquals("F's depth should be 2", 2, index.get("F").depth);
+        assertSame("E's parent should be A", root, index.get("E").parent);
+    }
+    
+    @Test
+    public void testIsAttached_DetectsDirectFieldEdits() {
+        // Arrange
+        TreeNode d = index.get("D");
+        
+        // Act - detach B directly without going through the index
+        root.left = null;
+        
+        // Assert
+        assertFalse("D should no longer be attached", index.isAttached(d));
+        assertTrue("C should still be attached", index.isAttached(index.get("C")));
+    }
+}
@@ -0,0 +1,121 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PathWeightIndexTest {
+    private LcaIndex lcaIndex;
+    private PathWeightIndex index;
+
+    @Before
+    public void setUp() {
+        //        A(10)
+        //      B(20)  C(5)
+        //     D(10)     E(7)
+        //      F(1)
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        root.left.left.right = new TreeNode("F", 1);
+        root.right.right = new TreeNode("E", 7);
+        lcaIndex = new LcaIndex(root);
+        index = new PathWeightIndex(lcaIndex);
+    }
+
+    private int id(String name) {
+        return lcaIndex.idOf(name);
+    }
+
+    @Test
+    public void testPathWeight_IncludesBothEnds() {
+        assertEquals("F-D-B-A-C-E", 1 + 10 + 20 + 10 + 5 + 7, index.pathWeight(id("F"), id("E")));
+        assertEquals("D-B", 30, index.pathWeight(id("D"), id("B")));
+        assertEquals("Node with itself is its own weight", 5, index.pathWeight(id("C"), id("C")));
+    }
+
+    @Test
+    public void testPathMaxAndMin_IncludeLcaAndEnds() {
+        assertEquals("Max on F..E is B's 20", 20, index.pathMaxWeight(id("F"), id("E")));
+        assertEquals("Min on F..E is F's 1", 1, index.pathMinWeight(id("F"), id("E")));
+        assertEquals("Max on C..E", 7, index.pathMaxWeight(id("E"), id("C")));
+        assertEquals("Min on D..A", 10, index.pathMinWeight(id("D"), id("A")));
+    }
+
+    @Test
+    public void testQueries_RandomTree_MatchPathWalk() {
+        // Arrange - random tree, each node hangs under a random earlier node
+        Random random = new Random(7);
+        List<TreeNode> nodes = new ArrayList<>();
+        TreeNode root = new TreeNode("N0", random.nextInt(1000) - 500);
+        nodes.add(root);
+        for (int i = 1; i < 2000; i++) {
+            TreeNode node = new TreeNode("N" + i, random.nextInt(1000) - 500);
+            TreeNode parent;
+            do {
+                parent = nodes.get(random.nextInt(nodes.size()));
+            } while (parent.left != null && parent.right != null);
+            if (parent.left == null) {
+                parent.left = node;
+            } else {
+                parent.right = node;
+            }
+            node.parent = parent;
+            nodes.add(node);
+        }
+        LcaIndex randomLca = new LcaIndex(root);
+        PathWeightIndex randomIndex = new PathWeightIndex(randomLca);
+
+        for (int q = 0; q < 500; q++) {
+            TreeNode x = nodes.get(random.nextInt(nodes.size()));
+            TreeNode y = nodes.get(random.nextInt(nodes.size()));
+            int lca = randomLca.lca(randomLca.idOf(x.nodeName), randomLca.idOf(y.nodeName));
+            TreeNode lcaNode = randomLca.nodeAt(lca);
+
+            // Walk both ends up to the LCA
+            long sum = lcaNode.weight;
+            int max = lcaNode.weight;
+            int min = lcaNode.weight;
+            for (TreeNode end : new TreeNode[] {x, y}) {
+                for (TreeNode n = end; n != lcaNode; n = n.parent) {
+                    sum += n.weight;
+                    max = Math.max(max, n.weight);
+                    min = Math.min(min, n.weight);
+                }
+            }
+
+            // Act & Assert
+            int xId = randomLca.idOf(x.nodeName);
+            int yId = randomLca.idOf(y.nodeName);
+            assertEquals("Sum " + x.nodeName + ".." + y.nodeName, sum, randomIndex.pathWeight(xId, yId));
+            assertEquals("Max " + x.nodeName + ".." + y.nodeName, max, randomIndex.pathMaxWeight(xId, yId));
+            assertEquals("Min " + x.nodeName + ".." + y.nodeName, min, randomIndex.pathMinWeight(xId, yId));
+        }
+    }
+
+    @Test
+    public void testIndex_DeepSkewedTree_ClimbsInLogSteps() {
+        // Arrange - chain with weights 0..99999
+        TreeNode deepRoot = new TreeNode("N0", 0);
+        TreeNode current = deepRoot;
+        for (int i = 1; i < 100000; i++) {
+            current.left = new TreeNode("N" + i, i);
+            current = current.left;
+        }
+        LcaIndex deepLca = new LcaIndex(deepRoot);
+
+        // Act
+        PathWeightIndex deepIndex = new PathWeightIndex(deepLca);
+
+        // Assert
+        int top = deepLca.idOf("N1000");
+        int bottom = deepLca.idOf("N1500");
+        assertEquals("Sum of 1000..1500", (1000L + 1500L) * 501 / 2, deepIndex.pathWeight(top, bottom));
+        assertEquals(1500, deepIndex.pathMaxWeight(top, bottom));
+        assertEquals(1000, deepIndex.pathMinWeight(bottom, top));
+    }
+}
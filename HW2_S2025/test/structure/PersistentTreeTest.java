@@ -0,0 +1,170 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class PersistentTreeTest {
+    private PersistentTree base;
+
+    /**
+     *        A(10)
+     *       /    \
+     *     B(5)   C(3)
+     *    /  \      \
+     *  D(7) E(1)   F(2)
+     */
+    @Before
+    public void setUp() {
+        TreeNode a = new TreeNode("A", 10);
+        a.left = new TreeNode("B", 5);
+        a.right = new TreeNode("C", 3);
+        a.left.left = new TreeNode("D", 7);
+        a.left.right = new TreeNode("E", 1);
+        a.right.right = new TreeNode("F", 2);
+        base = PersistentTree.of(a);
+    }
+
+    @Test
+    public void testOf_CopiesTree() {
+        // Assert
+        assertEquals(Integer.valueOf(7), base.getWeight("D"));
+        assertTrue(base.contains("F"));
+        assertFalse(base.contains("X"));
+        assertNull(base.getWeight("X"));
+        assertTrue(PersistentTree.empty().isEmpty());
+    }
+
+    @Test
+    public void testWithWeight_CopiesOnlyThePath() {
+        // Act
+        PersistentTree next = base.withWeight("D", 70);
+
+        // Assert
+        PersistentTree.Node oldRoot = base.getRoot();
+        PersistentTree.Node newRoot = next.getRoot();
+        assertNotSame("Root is on the path", oldRoot, newRoot);
+        assertNotSame("B is on the path", oldRoot.left, newRoot.left);
+        assertSame("Right subtree should be shared", oldRoot.right, newRoot.right);
+        assertSame("Sibling E should be shared", oldRoot.left.right, newRoot.left.right);
+        assertEquals(Integer.valueOf(70), next.getWeight("D"));
+        assertEquals("Old version should be unchanged", Integer.valueOf(7), base.getWeight("D"));
+        assertTrue(next.getVersion() > base.getVersion());
+    }
+
+    @Test
+    public void testWithWeight_MissingOrSameWeight_ReturnsSameVersion() {
+        // Assert
+        assertSame(base, base.withWeight("X", 1));
+        assertSame(base, base.withWeight("D", 7));
+    }
+
+    @Test
+    public void testWithLeftChild_ReplacesSubtree() {
+        // Arrange
+        TreeNode g = new TreeNode("G", 4);
+        g.left = new TreeNode("H", 8);
+
+        // Act
+        PersistentTree next = base.withLeftChild("C", g);
+        g.weight = 99; // the caller's nodes are copied
+
+        // Assert
+        assertEquals(Integer.valueOf(4), next.getWeight("G"));
+        assertEquals(Integer.valueOf(8), next.getWeight("H"));
+        assertFalse(base.contains("G"));
+        assertSame("Left subtree of A should be shared", base.getRoot().left, next.getRoot().left);
+    }
+
+    @Test
+    public void testChangesSince_WeightChange_WritesOnlyChangedRow() {
+        // Arrange
+        PersistentTree next = base.withWeight("D", 70);
+
+        // Act
+        TreeDiff diff = next.changesSince(base);
+
+        // Assert
+        assertTrue(diff.inserts.isEmpty());
+        assertTrue(diff.deletes.isEmpty());
+        assertEquals("Copied path rows are unchanged, only D is written", 1, diff.updates.size());
+        assertEquals("D", diff.updates.get(0).nodeName);
+        assertEquals(Integer.valueOf(70), diff.updates.get(0).weight);
+    }
+
+    @Test
+    public void testChangesSince_ReplacedSubtree_InsertsAndDeletes() {
+        // Arrange - B's subtree (B, D, E) is replaced by G
+        PersistentTree next = base.withLeftChild("A", new TreeNode("G", 4));
+
+        // Act
+        TreeDiff diff = next.changesSince(base);
+
+        // Assert
+        assertEquals(1, diff.updates.size());
+        assertEquals("A", diff.updates.get(0).nodeName);
+        assertEquals("G", diff.updates.get(0).leftName);
+        assertEquals(1, diff.inserts.size());
+        assertEquals("G", diff.inserts.get(0).nodeName);
+        assertEquals(new HashSet<>(Arrays.asList("B", "D", "E")), new HashSet<>(diff.deletes));
+    }
+
+    @Test
+    public void testChangesSince_SeveralVersions_MatchesFullDiff() {
+        // Arrange
+        PersistentTree next = base.withWeight("F", 20)
+                .withRightChild("E", new TreeNode("I", 6))
+                .withLeftChild("B", null);
+
+        // Act
+        TreeDiff diff = next.changesSince(base);
+
+        // Assert - same rows as comparing the whole trees
+        TreeDiff full = TreeDiff.compute(base.toTreeNode(), next.toTreeNode());
+        assertEquals(full.changeCount(), diff.changeCount());
+        assertEquals(new HashSet<>(full.deletes), new HashSet<>(diff.deletes));
+        assertEquals(Arrays.asList("D"), diff.deletes);
+    }
+
+    @Test
+    public void testChangesSince_SameVersion_IsEmpty() {
+        // Assert
+        assertTrue(base.changesSince(base).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChangesSince_UnrelatedVersion_Throws() {
+        // Arrange - two branches of the same base
+        PersistentTree left = base.withWeight("D", 1);
+        PersistentTree right = base.withWeight("E", 2);
+
+        // Act
+        right.changesSince(left);
+    }
+
+    @Test
+    public void testIsDerivedFrom() {
+        // Arrange
+        PersistentTree next = base.withWeight("D", 1).withWeight("E", 2);
+
+        // Assert
+        assertTrue(next.isDerivedFrom(base));
+        assertTrue(base.isDerivedFrom(base));
+        assertFalse(base.isDerivedFrom(next));
+        assertFalse(next.isDerivedFrom(PersistentTree.of(base.toTreeNode())));
+    }
+
+    @Test
+    public void testToTreeNode_CopiesWithParents() {
+        // Act
+        TreeNode root = base.withWeight("F", 20).toTreeNode();
+
+        // Assert
+        assertEquals("A", root.nodeName);
+        assertEquals(20, root.right.right.weight);
+        assertSame(root.right, root.right.right.parent);
+        assertEquals("E", root.left.right.nodeName);
+    }
+}
@@ -0,0 +1,231 @@
+package structure;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Stub JDBC driver for "jdbc:stub:" urls
+ * Hands out fake connections that only track open/closed state,
+ * so connection pooling can be tested without a database
+ * Prepared statements record each executed statement with its parameters;
+ * queries return the rows of queryRows whose first column equals one of
+ * the bound parameters, ignoring case like MySQL's default collation,
+ * unless a queryHandler is set to answer them
+ * Statements on a table listed in missingTables fail like MySQL's
+ * "table doesn't exist"
+ */
+public class StubJdbcDriver implements Driver {
+    public static final String URL_PREFIX = "jdbc:stub:";
+    public static final AtomicInteger openedConnections = new AtomicInteger();
+    public static final AtomicInteger closedConnections = new AtomicInteger();
+    public static final List<ExecutedStatement> executedStatements =
+            Collections.synchronizedList(new ArrayList<ExecutedStatement>());
+    public static final List<Object[]> queryRows =
+            Collections.synchronizedList(new ArrayList<Object[]>());
+    // Answers queries instead of the first-column match when set (reset by register)
+    public static volatile Function<ExecutedStatement, List<Object[]>> queryHandler;
+    // Tables (e.g. "world.tree_closure") that are not in the stub schema (reset by register)
+    public static final Set<String> missingTables = Collections.synchronizedSet(new HashSet<String>());
+    private static boolean registered = false;
+    
+    /**
+     * SQL and bound parameters (by index) of one executeUpdate call
+     */
+    public static class ExecutedStatement {
+        public final String sql;
+        public final Map<Integer, Object> parameters;
+        
+        ExecutedStatement(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+    
+    public static synchronized void register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(new StubJdbcDriver());
+            registered = true;
+        }
+        openedConnections.set(0);
+        closedConnections.set(0);
+        executedStatements.clear();
+        queryRows.clear();
+        queryHandler = null;
+        missingTables.clear();
+    }
+    
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        openedConnections.incrementAndGet();
+        final boolean[] state = {false, true}; // closed, autoCommit
+        return (Connection) Proxy.newProxyInstance(StubJdbcDriver.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!state[0]) {
+                                closedConnections.incrementAndGet();
+                            }
+                            state[0] = true;
+                            return null;
+                        case "isClosed":
+                            return state[0];
+                        case "isValid":
+                            return !state[0];
+                        case "getAutoCommit":
+                            return state[1];
+                        case "setAutoCommit":
+                            state[1] = (Boolean) args[0];
+                            return null;
+                        case "prepareStatement":
+                            return prepareStatement((String) args[0]);
+                        case "getMetaData":
+                            return Proxy.newProxyInstance(StubJdbcDriver.class.getClassLoader(),
+                                    new Class<?>[] {DatabaseMetaData.class},
+                                    (p, m, a) -> "getDatabaseProductName".equals(m.getName()) ? "Stub" : null);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+    
+    private static PreparedStatement prepareStatement(String sql) {
+        final Map<Integer, Object> parameters = new HashMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(StubJdbcDriver.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                        return null;
+                    }
+                    if (name.equals("executeUpdate") || name.equals("addBatch") || name.equals("executeQuery")) {
+                        checkTablesExist(sql);
+                    }
+                    switch (name) {
+                        case "executeUpdate":
+                            executedStatements.add(new ExecutedStatement(sql, new HashMap<>(parameters)));
+                            return 1;
+                        case "addBatch":
+                            // Batched statements are recorded when added
+                            executedStatements.add(new ExecutedStatement(sql, new HashMap<>(parameters)));
+                            return null;
+                        case "executeBatch":
+                            return new int[0];
+                        case "executeQuery":
+                            ExecutedStatement statement = new ExecutedStatement(sql, new HashMap<>(parameters));
+                            executedStatements.add(statement);
+                            Function<ExecutedStatement, List<Object[]>> handler = queryHandler;
+                            if (handler != null) {
+                                return resultSet(handler.apply(statement));
+                            }
+                            List<Object[]> rows = new ArrayList<>();
+                            synchronized (queryRows) {
+                                for (Object[] row : queryRows) {
+                                    for (Object parameter : parameters.values()) {
+                                        if (parameter instanceof String && ((String) parameter).equalsIgnoreCase((String) row[0])) {
+                                            rows.add(row);
+                                            break;
+                                        }
+                                    }
+                                }
+                            }
+                            return resultSet(rows);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+    
+    private static void checkTablesExist(String sql) throws SQLException {
+        synchronized (missingTables) {
+            for (String table : missingTables) {
+                if (sql.contains(table + " ")) {
+                    throw new SQLException("Table '" + table + "' doesn't exist", "42S02", 1146);
+                }
+            }
+        }
+    }
+    
+    private static ResultSet resultSet(List<Object[]> rows) {
+        final int[] cursor = {-1};
+        final boolean[] lastWasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(StubJdbcDriver.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "getString":
+                        case "getInt":
+                            Object value = rows.get(cursor[0])[(Integer) args[0] - 1];
+                            lastWasNull[0] = value == null;
+                            if (method.getName().equals("getInt")) {
+                                return value == null ? 0 : (Integer) value;
+                            }
+                            return value;
+                        case "wasNull":
+                            return lastWasNull[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+    
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+    
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+    
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+    
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+    
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
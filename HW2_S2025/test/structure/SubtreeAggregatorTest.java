@@ -0,0 +1,94 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class SubtreeAggregatorTest {
+    
+    /**
+     * Complete tree of the given size with weight i for node Ni
+     */
+    private TreeNode createBalancedTree(int size) {
+        TreeNode[] nodes = new TreeNode[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new TreeNode("N" + i, i);
+            if (i > 0) {
+                if (i % 2 == 1) {
+                    nodes[(i - 1) / 2].left = nodes[i];
+                } else {
+                    nodes[(i - 1) / 2].right = nodes[i];
+                }
+            }
+        }
+        return nodes[0];
+    }
+    
+    @Test
+    public void testCompute_SmallTree_ComputesAllAggregates() {
+        // Arrange
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        
+        // Act
+        TreeAggregate result = new ForkJoinPool(2).invoke(new SubtreeAggregator(root));
+        
+        // Assert
+        assertEquals("Size should be 4", 4, result.getSize());
+        assertEquals("Height should be 2 edges", 2, result.getHeight());
+        assertEquals("Total weight should be 45", 45, result.getTotalWeight());
+        assertEquals("Max weight should be 20", 20, result.getMaxWeight());
+        assertEquals("Min weight should be 5", 5, result.getMinWeight());
+    }
+    
+    @Test
+    public void testCompute_LargeTree_SplitsAndMatchesSequentialResult() {
+        // Arrange - large enough to cross the split threshold many times
+        int size = SubtreeAggregator.SPLIT_THRESHOLD * 20 + 7;
+        TreeNode root = createBalancedTree(size);
+        
+        // Act
+        TreeAggregate result = new ForkJoinPool(4).invoke(new SubtreeAggregator(root));
+        
+        // Assert
+        assertEquals(size, result.getSize());
+        assertEquals("Height of a complete tree is floor(log2(n))",
+                31 - Integer.numberOfLeadingZeros(size), result.getHeight());
+        assertEquals("Sum of 0..n-1", (long) size * (size - 1) / 2, result.getTotalWeight());
+        assertEquals(size - 1, result.getMaxWeight());
+        assertEquals(0, result.getMinWeight());
+    }
+    
+    @Test
+    public void testCompute_DeepSkewedTree_DoesNotOverflowStack() {
+        // Arrange
+        int size = 200000;
+        TreeNode root = new TreeNode("N0", 1);
+        TreeNode current = root;
+        for (int i = 1; i < size; i++) {
+            current.right = new TreeNode("N" + i, 1);
+            current = current.right;
+        }
+        
+        // Act
+        TreeAggregate result = new ForkJoinPool(2).invoke(new SubtreeAggregator(root));
+        
+        // Assert
+        assertEquals(size, result.getSize());
+        assertEquals(size - 1, result.getHeight());
+        assertEquals(size, result.getTotalWeight());
+    }
+    
+    @Test
+    public void testCompute_NullRoot_ReturnsEmpty() {
+        // Act
+        TreeAggregate result = new ForkJoinPool(1).invoke(new SubtreeAggregator(null));
+        
+        // Assert
+        assertEquals(0, result.getSize());
+        assertEquals("Empty tree has height -1", -1, result.getHeight());
+        assertEquals(0, result.getTotalWeight());
+    }
+}
@@ -0,0 +1,77 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TarjanLcaTest {
+    
+    /**
+     * Builds a random tree with nodes named N0..N(size-1)
+     */
+    private TreeNode buildRandomTree(int size, Random random) {
+        List<TreeNode> open = new ArrayList<>();
+        TreeNode root = new TreeNode("N0", 0);
+        open.add(root);
+        for (int i = 1; i < size; i++) {
+            TreeNode node = new TreeNode("N" + i, i);
+            while (true) {
+                TreeNode parent = open.get(random.nextInt(open.size()));
+                if (parent.left == null && random.nextBoolean()) {
+                    parent.left = node;
+                    break;
+                }
+                if (parent.right == null) {
+                    parent.right = node;
+                    break;
+                }
+            }
+            open.add(node);
+        }
+        return root;
+    }
+    
+    @Test
+    public void testPathLengths_RandomTree_MatchesLcaIndex() {
+        // Arrange
+        Random random = new Random(42);
+        TreeNode root = buildRandomTree(2000, random);
+        LcaIndex index = new LcaIndex(root);
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            pairs.add(new String[] {"N" + random.nextInt(2100), "N" + random.nextInt(2100)});
+        }
+        
+        // Act
+        int[] lengths = TarjanLca.pathLengths(root, pairs);
+        
+        // Assert
+        for (int i = 0; i < pairs.size(); i++) {
+            String[] pair = pairs.get(i);
+            assertEquals("Pair " + pair[0] + "-" + pair[1], index.pathLength(pair[0], pair[1]), lengths[i]);
+        }
+    }
+    
+    @Test
+    public void testPathLengths_DeepSkewedTree_DoesNotOverflowStack() {
+        // Arrange
+        TreeNode root = new TreeNode("N0", 0);
+        TreeNode current = root;
+        for (int i = 1; i < 100000; i++) {
+            current.right = new TreeNode("N" + i, i);
+            current = current.right;
+        }
+        List<String[]> pairs = new ArrayList<>();
+        pairs.add(new String[] {"N99999", "N0"});
+        pairs.add(new String[] {"N10", "N20"});
+        pairs.add(null);
+        
+        // Act
+        int[] lengths = TarjanLca.pathLengths(root, pairs);
+        
+        // Assert
+        assertArrayEquals(new int[] {99999, 10, -1}, lengths);
+    }
+}
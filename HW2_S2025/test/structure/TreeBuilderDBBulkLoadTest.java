@@ -0,0 +1,132 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests TreeBuilderDB.loadTrees against the stub JDBC driver (no database)
+ */
+public class TreeBuilderDBBulkLoadTest {
+    private ConnectionPool pool;
+    private TreeBuilderDB treeLoader;
+    private MockMessageController mockMessageController;
+    
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "bulk", "user", "password");
+        mockMessageController = new MockMessageController();
+        treeLoader = new TreeBuilderDB(pool, mockMessageController);
+    }
+    
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+    
+    private void addRow(String treeName, String nodeName, int weight, String left, String right) {
+        StubJdbcDriver.queryRows.add(new Object[] {treeName, nodeName, weight, left, right});
+    }
+    
+    @Test
+    public void testLoadTrees_InterleavedRows_SortedIntoTheirTrees() throws Exception {
+        // Arrange - rows of two trees mixed, children before parents in t2
+        addRow("t1", "A", 10, "B", "C");
+        addRow("t2", "Y", 2, null, null);
+        addRow("t1", "B", 20, null, null);
+        addRow("t2", "X", 1, "Y", null);
+        addRow("t1", "C", 5, null, null);
+        
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(Arrays.asList("t1", "t2", "missing"));
+        
+        // Assert
+        assertEquals("One query for all trees", 1, StubJdbcDriver.executedStatements.size());
+        assertEquals("Results should follow the request order",
+                Arrays.asList("t1", "t2", "missing"), new ArrayList<>(trees.keySet()));
+        assertEquals("A", trees.get("t1").nodeName);
+        assertEquals("B", trees.get("t1").left.nodeName);
+        assertEquals("C", trees.get("t1").right.nodeName);
+        assertEquals("X", trees.get("t2").nodeName);
+        assertEquals("Y", trees.get("t2").left.nodeName);
+        assertNull("Tree without rows should be null", trees.get("missing"));
+    }
+    
+    @Test
+    public void testLoadTrees_ManyNames_QueriesInPartitions() throws Exception {
+        // Arrange
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < TreeBuilderDB.IN_QUERY_PARTITION * 2 + 1; i++) {
+            names.add("t" + i);
+            addRow("t" + i, "N" + i, i, null, null);
+        }
+        
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(names);
+        
+        // Assert
+        assertEquals("Three partitions should give three queries", 3, StubJdbcDriver.executedStatements.size());
+        assertEquals(names.size(), trees.size());
+        assertEquals("N1000", trees.get("t1000").nodeName);
+        assertEquals("Last partition has one name", TreeBuilderDB.inQuery(1),
+                StubJdbcDriver.executedStatements.get(2).sql);
+    }
+    
+    @Test
+    public void testLoadTrees_DifferentCaseFromDatabase_StillMatched() throws Exception {
+        // Arrange - the database compares tree names case-insensitively
+        addRow("TREE", "A", 10, null, null);
+        
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(Arrays.asList("tree", "Tree"));
+        
+        // Assert
+        assertEquals("A", trees.get("tree").nodeName);
+        assertEquals("Names equal ignoring case share the rows", "A", trees.get("Tree").nodeName);
+    }
+    
+    @Test
+    public void testLoadTrees_CaseVariantsInDifferentPartitions_QueriedOnce() throws Exception {
+        // Arrange - "Tree1" and "tree1" would land in different partitions
+        addRow("tree1", "A", 10, "B", null);
+        addRow("tree1", "B", 20, null, null);
+        List<String> names = new ArrayList<>();
+        names.add("Tree1");
+        for (int i = 0; i < TreeBuilderDB.IN_QUERY_PARTITION - 1; i++) {
+            names.add("t" + i);
+        }
+        names.add("tree1");
+        
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(names);
+        
+        // Assert
+        assertEquals("Case variants should share one name in the query", 1, StubJdbcDriver.executedStatements.size());
+        assertEquals("Rows should be read once", "B", trees.get("Tree1").left.nodeName);
+        assertNull("B should have no children", trees.get("Tree1").left.left);
+        assertSame("Both variants should get the same tree", trees.get("Tree1"), trees.get("tree1"));
+    }
+    
+    @Test
+    public void testLoadTrees_EmptyRequest_RunsNoQuery() throws Exception {
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(new ArrayList<String>());
+        
+        // Assert
+        assertTrue(trees.isEmpty());
+        assertTrue(StubJdbcDriver.executedStatements.isEmpty());
+    }
+    
+    @Test
+    public void testInQuery_HasOnePlaceholderPerName() {
+        assertEquals("SELECT treeName, nodename, weight, leftp, rightp FROM world.tree WHERE treeName IN (?, ?, ?)",
+                TreeBuilderDB.inQuery(3));
+    }
+}
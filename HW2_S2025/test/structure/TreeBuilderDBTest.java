@@ -5,6 +5,8 @@ import org.junit.After;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Map;
 
 public class TreeBuilderDBTest {
     private TreeBuilderDB treeLoader;
@@ -37,7 +39,9 @@ public class TreeBuilderDBTest {
         String sql = "INSERT INTO world.tree (treeName, nodename, weight, leftp, rightp) VALUES " +
                     "('test_load', 'A', 10, 'B', 'C'), " +
                     "('test_load', 'B', 20, NULL, NULL), " +
-                    "('test_load', 'C', 5, NULL, NULL)";
+                    "('test_load', 'C', 5, NULL, NULL), " +
+                    "('test_load2', 'X', 1, NULL, 'Y'), " +
+                    "('test_load2', 'Y', 2, NULL, NULL)";
         try (Statement stmt = testConnection.createStatement()) {
             stmt.executeUpdate(sql);
         }
@@ -77,4 +81,18 @@ public class TreeBuilderDBTest {
         // Assert
         assertTrue("Should return true for existing tree", exists);
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testLoadTrees_WithSeveralTrees_LoadsEachTree() throws Exception {
+        // Act
+        Map<String, TreeNode> trees = treeLoader.loadTrees(Arrays.asList("test_load", "test_load2", "test_none"));
+        
+        // Assert - STATE VERIFICATION
+        assertEquals("Every requested name should be in the result", 3, trees.size());
+        assertEquals("A", trees.get("test_load").nodeName);
+        assertEquals("C", trees.get("test_load").right.nodeName);
+        assertEquals("X", trees.get("test_load2").nodeName);
+        assertEquals("Y", trees.get("test_load2").right.nodeName);
+        assertNull("Unknown tree should be null", trees.get("test_none"));
+    }
+}
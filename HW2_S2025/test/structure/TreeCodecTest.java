@@ -0,0 +1,154 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TreeCodecTest {
+
+    @Test
+    public void testEncode_SmallTree_ExactBytes() {
+        // Arrange
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", -1);
+
+        // Act
+        byte[] bytes = TreeCodec.encode(root);
+
+        // Assert - tag (left, new name), name, zigzag weight per node
+        byte[] expected = {'T', 'B', 1, 5, 1, 'A', 20, 4, 1, 'B', 1};
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test
+    public void testDecode_RoundTrip_KeepsShapeWeightsAndParents() throws IOException {
+        // Arrange
+        TreeNode root = new TreeNode("A", Integer.MIN_VALUE);
+        root.left = new TreeNode("B", -300);
+        root.right = new TreeNode("C", Integer.MAX_VALUE);
+        root.left.right = new TreeNode("D", 0);
+        root.right.left = new TreeNode("E", 128);
+
+        // Act
+        TreeNode decoded = TreeCodec.decode(TreeCodec.encode(root));
+
+        // Assert
+        assertEquals("A", decoded.nodeName);
+        assertEquals(Integer.MIN_VALUE, decoded.weight);
+        assertEquals(-300, decoded.left.weight);
+        assertNull(decoded.left.left);
+        assertEquals("D", decoded.left.right.nodeName);
+        assertEquals(Integer.MAX_VALUE, decoded.right.weight);
+        assertEquals(128, decoded.right.left.weight);
+        assertNull(decoded.right.right);
+        assertSame("Parent pointers should be set", decoded.left, decoded.left.right.parent);
+        assertNull(decoded.parent);
+    }
+
+    @Test
+    public void testEncode_RepeatedNames_WrittenOnce() throws IOException {
+        // Arrange
+        TreeNode root = new TreeNode("LongName", 1);
+        root.left = new TreeNode("LongName", 2);
+        root.right = new TreeNode("LongName", 3);
+
+        // Act
+        byte[] bytes = TreeCodec.encode(root);
+        TreeNode decoded = TreeCodec.decode(bytes);
+
+        // Assert - header, first node with its name, two nodes with a dictionary id
+        assertEquals(3 + (1 + 1 + 8 + 1) + 2 * (1 + 1 + 1), bytes.length);
+        assertEquals("LongName", decoded.right.nodeName);
+        assertEquals(3, decoded.right.weight);
+    }
+
+    @Test
+    public void testEncode_EmptyTree() throws IOException {
+        // Act
+        byte[] bytes = TreeCodec.encode(null);
+
+        // Assert
+        assertEquals(4, bytes.length);
+        assertNull(TreeCodec.decode(bytes));
+    }
+
+    @Test
+    public void testDecode_SeveralTreesInOneStream() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TreeCodec.encode(new TreeNode("A", 1), out);
+        TreeCodec.encode(null, out);
+        TreeCodec.encode(new TreeNode("A", 2), out);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+        // Act / Assert - the dictionary is per tree
+        assertEquals(1, TreeCodec.decode(in).weight);
+        assertNull(TreeCodec.decode(in));
+        assertEquals("A", TreeCodec.decode(in).nodeName);
+        assertEquals("Nothing should be left", -1, in.read());
+    }
+
+    @Test
+    public void testDecode_SkewedTree_NoStackOverflow() throws IOException {
+        // Arrange
+        TreeNode root = new TreeNode("N0", 0);
+        TreeNode current = root;
+        for (int i = 1; i < 100000; i++) {
+            current.right = new TreeNode("N" + i, i);
+            current = current.right;
+        }
+
+        // Act
+        TreeNode decoded = TreeCodec.decode(TreeCodec.encode(root));
+
+        // Assert
+        assertEquals(100000, new SubtreeAggregator(decoded).invoke().getSize());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecode_NotATree_Throws() throws IOException {
+        // Act
+        TreeCodec.decode(new byte[] {'X', 'Y', 1, 0});
+    }
+
+    @Test(expected = EOFException.class)
+    public void testDecode_Truncated_Throws() throws IOException {
+        // Arrange
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        byte[] bytes = TreeCodec.encode(root);
+
+        // Act
+        TreeCodec.decode(Arrays.copyOf(bytes, bytes.length - 2));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testDecode_HugeNameLength_ThrowsWithoutAllocatingIt() throws IOException {
+        // Act - root name claims 2^31 - 1 bytes, followed by only two
+        TreeCodec.decode(new byte[] {'T', 'B', 1, 4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'A', 'B'});
+    }
+
+    @Test
+    public void testDecode_NameLongerThanOneChunk_RoundTrips() throws IOException {
+        // Arrange
+        char[] chars = new char[3 * TreeCodec.NAME_CHUNK_BYTES + 5];
+        Arrays.fill(chars, 'x');
+        TreeNode root = new TreeNode(new String(chars), 1);
+
+        // Act
+        TreeNode decoded = TreeCodec.decode(TreeCodec.encode(root));
+
+        // Assert
+        assertEquals(root.nodeName, decoded.nodeName);
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecode_UnknownNameId_Throws() throws IOException {
+        // Act - root refers to name 0 before any name was written
+        TreeCodec.decode(new byte[] {'T', 'B', 1, 0, 0, 2});
+    }
+}
@@ -0,0 +1,111 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TreeDiffTest {
+    
+    private TreeNode createTree() {
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        return root;
+    }
+    
+    @Test
+    public void testCompute_UnchangedTree_IsEmpty() {
+        // Act
+        TreeDiff diff = TreeDiff.compute(createTree(), createTree());
+        
+        // Assert
+        assertTrue("Unchanged tree should need no statements", diff.isEmpty());
+    }
+    
+    @Test
+    public void testCompute_OneWeightChanged_UpdatesOneRow() {
+        // Arrange
+        TreeNode changed = createTree();
+        changed.left.left.weight = 42;
+        
+        // Act
+        TreeDiff diff = TreeDiff.compute(createTree(), changed);
+        
+        // Assert
+        assertEquals("Only one row should be written", 1, diff.changeCount());
+        assertEquals("D", diff.updates.get(0).nodeName);
+        assertEquals(Integer.valueOf(42), diff.updates.get(0).weight);
+    }
+    
+    @Test
+    public void testCompute_AddedLeaf_InsertsLeafAndUpdatesParent() {
+        // Arrange
+        TreeNode changed = createTree();
+        changed.right.left = new TreeNode("E", 7);
+        
+        // Act
+        TreeDiff diff = TreeDiff.compute(createTree(), changed);
+        
+        // Assert
+        assertEquals("New leaf should be inserted", "E", diff.inserts.get(0).nodeName);
+        assertEquals("Parent's left pointer should be updated", "C", diff.updates.get(0).nodeName);
+        assertEquals("E", diff.updates.get(0).leftName);
+        assertEquals(2, diff.changeCount());
+    }
+    
+    @Test
+    public void testCompute_RemovedSubtree_DeletesItsRows() {
+        // Arrange
+        TreeNode changed = createTree();
+        changed.left = null;
+        
+        // Act
+        TreeDiff diff = TreeDiff.compute(createTree(), changed);
+        
+        // Assert
+        diff.deletes.sort(null);
+        assertEquals("B and D should be deleted", Arrays.asList("B", "D"), diff.deletes);
+        assertEquals("A's left pointer should be cleared", "A", diff.updates.get(0).nodeName);
+        assertNull(diff.updates.get(0).leftName);
+        assertTrue(diff.inserts.isEmpty());
+    }
+    
+    @Test
+    public void testCompute_EmptyTree_DeletesAllRows() {
+        // Act
+        TreeDiff diff = TreeDiff.compute(createTree(), (TreeNode) null);
+        
+        // Assert
+        assertEquals("All stored rows should be deleted", 4, diff.deletes.size());
+        assertEquals(4, diff.changeCount());
+    }
+    
+    @Test
+    public void testCompute_NothingStored_InsertsInPreorder() {
+        // Act
+        TreeDiff diff = TreeDiff.compute(new HashMap<String, TreeDiff.Row>(), createTree());
+        
+        // Assert
+        assertEquals(4, diff.inserts.size());
+        assertEquals("A", diff.inserts.get(0).nodeName);
+        assertEquals("B", diff.inserts.get(1).nodeName);
+        assertEquals("D", diff.inserts.get(2).nodeName);
+        assertEquals("C", diff.inserts.get(3).nodeName);
+    }
+    
+    @Test
+    public void testCompute_StoredNullWeight_IsUpdated() {
+        // Arrange
+        Map<String, TreeDiff.Row> stored = new HashMap<>();
+        stored.put("A", new TreeDiff.Row("A", null, null, null));
+        
+        // Act
+        TreeDiff diff = TreeDiff.compute(stored, new TreeNode("A", 0));
+        
+        // Assert
+        assertEquals("NULL weight should not equal 0", 1, diff.updates.size());
+    }
+}
@@ -0,0 +1,98 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TreeMetricsTest {
+    private List<String> events;
+    private TreeMetrics metrics;
+
+    @Before
+    public void setUp() {
+        events = new ArrayList<>();
+        metrics = new TreeMetrics(events::add);
+    }
+
+    @Test
+    public void testNoop_IsDisabled() {
+        // Assert
+        assertFalse(ITreeMetrics.NOOP.isEnabled());
+        assertTrue(metrics.isEnabled());
+    }
+
+    @Test
+    public void testRecord_CountsAndTotalsPerOperation() {
+        // Act
+        metrics.record(ITreeMetrics.Operation.LOAD, "t1", 100);
+        metrics.record(ITreeMetrics.Operation.LOAD, "t1", 300);
+        metrics.record(ITreeMetrics.Operation.SAVE, "t1", 50);
+
+        // Assert
+        assertEquals(2, metrics.getCount(ITreeMetrics.Operation.LOAD));
+        assertEquals(400, metrics.getTotalNanos(ITreeMetrics.Operation.LOAD));
+        assertEquals(200, metrics.getMeanNanos(ITreeMetrics.Operation.LOAD));
+        assertEquals(300, metrics.getMaxNanos(ITreeMetrics.Operation.LOAD));
+        assertEquals(1, metrics.getCount(ITreeMetrics.Operation.SAVE));
+        assertEquals(0, metrics.getCount(ITreeMetrics.Operation.QUERY));
+        assertEquals("Nothing recorded gives 0", 0, metrics.getMeanNanos(ITreeMetrics.Operation.QUERY));
+    }
+
+    @Test
+    public void testGetPercentileNanos_BoundedByBucketAndMax() {
+        // Arrange - 99 fast queries and one slow one
+        for (int i = 0; i < 99; i++) {
+            metrics.record(ITreeMetrics.Operation.QUERY, "t1", 100);
+        }
+        metrics.record(ITreeMetrics.Operation.QUERY, "t1", 1000000);
+
+        // Act
+        long p50 = metrics.getPercentileNanos(ITreeMetrics.Operation.QUERY, 50);
+        long p100 = metrics.getPercentileNanos(ITreeMetrics.Operation.QUERY, 100);
+
+        // Assert
+        assertTrue("p50 should be within a factor of two of 100, was " + p50, p50 >= 100 && p50 < 200);
+        assertEquals("p100 is the maximum", 1000000, p100);
+        assertEquals(0, metrics.getPercentileNanos(ITreeMetrics.Operation.SAVE, 99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetPercentileNanos_OutOfRange_Throws() {
+        // Act
+        metrics.getPercentileNanos(ITreeMetrics.Operation.QUERY, 101);
+    }
+
+    @Test
+    public void testEvent_CountedAndPassedToListener() {
+        // Arrange
+        MockMessageController messageController = new MockMessageController();
+        TreeMetrics forwarding = new TreeMetrics(messageController::sendWarning);
+
+        // Act
+        metrics.event("Inserted 3 nodes for tree: t1");
+        forwarding.event("No tree found with name: t2");
+
+        // Assert
+        assertEquals(1, metrics.getEventCount());
+        assertEquals("Inserted 3 nodes for tree: t1", events.get(0));
+        assertEquals("No tree found with name: t2", messageController.getLastWarningMessage());
+    }
+
+    @Test
+    public void testReset_ClearsEverything() {
+        // Arrange
+        metrics.record(ITreeMetrics.Operation.LOAD, "t1", 100);
+        metrics.event("x");
+
+        // Act
+        metrics.reset();
+
+        // Assert
+        assertEquals(0, metrics.getCount(ITreeMetrics.Operation.LOAD));
+        assertEquals(0, metrics.getMaxNanos(ITreeMetrics.Operation.LOAD));
+        assertEquals(0, metrics.getPercentileNanos(ITreeMetrics.Operation.LOAD, 50));
+        assertEquals(0, metrics.getEventCount());
+    }
+}
@@ -0,0 +1,66 @@
+package structure;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TreeRowAssemblerTest {
+    
+    @Test
+    public void testBuild_RowsInPreorder_LinksAllChildren() {
+        // Arrange
+        TreeRowAssembler assembler = new TreeRowAssembler();
+        assembler.addRow("A", 10, "B", "C");
+        assembler.addRow("B", 20, "D", null);
+        assembler.addRow("C", 5, null, null);
+        assembler.addRow("D", 10, null, null);
+        
+        // Act
+        TreeNode root = assembler.build();
+        
+        // Assert
+        assertEquals("Root should be A", "A", root.nodeName);
+        assertEquals("A's left should be B", "B", root.left.nodeName);
+        assertEquals("A's right should be C", "C", root.right.nodeName);
+        assertEquals("B's left should be D", "D", root.left.left.nodeName);
+        assertSame("D's parent pointer should be B", root.left, root.left.left.parent);
+        assertEquals("D's weight should be 10", 10, root.left.left.weight);
+    }
+    
+    @Test
+    public void testBuild_ChildrenBeforeParents_ResolvesDeferredLinks() {
+        // Arrange - leaves first, root last
+        TreeRowAssembler assembler = new TreeRowAssembler();
+        assembler.addRow("D", 10, null, null);
+        assembler.addRow("C", 5, null, null);
+        assembler.addRow("B", 20, "D", null);
+        assembler.addRow("A", 10, "B", "C");
+        
+        // Act
+        TreeNode root = assembler.build();
+        
+        // Assert
+        assertEquals("Root should be found by climbing from the first row", "A", root.nodeName);
+        assertEquals("B's left should be D", "D", root.left.left.nodeName);
+        assertEquals("A's right should be C", "C", root.right.nodeName);
+    }
+    
+    @Test
+    public void testBuild_LinkToMissingRow_IsDropped() {
+        // Arrange
+        TreeRowAssembler assembler = new TreeRowAssembler();
+        assembler.addRow("A", 10, "B", "GHOST");
+        assembler.addRow("B", 20, null, null);
+        
+        // Act
+        TreeNode root = assembler.build();
+        
+        // Assert
+        assertEquals("B", root.left.nodeName);
+        assertNull("Link to a name without a row should be dropped", root.right);
+    }
+    
+    @Test
+    public void testBuild_WithoutRows_ReturnsNull() {
+        assertNull("No rows should give an empty tree", new TreeRowAssembler().build());
+    }
+}
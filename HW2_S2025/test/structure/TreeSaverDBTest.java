@@ -156,6 +156,44 @@ public class TreeSaverDBTest {
         }
     }
     
+    @Test
+    public void testSaveTree_DiffMode_WritesOnlyChangedRows() throws Exception {
+        // Arrange
+        String testTreeName = "test_diff";
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        treeSaver.saveTree(testTreeName, root);
+        treeSaver.setSaveMode(TreeSaverDB.SaveMode.DIFF);
+        
+        // Act - change a weight, drop C, add D under B
+        root.left.weight = 21;
+        root.right = null;
+        root.left.left = new TreeNode("D", 1);
+        treeSaver.saveTree(testTreeName, root);
+        
+        // Assert - STATE VERIFICATION (same rows a full save would give)
+        String query = "SELECT nodename, weight, leftp, rightp FROM world.tree WHERE treeName = ? ORDER BY nodename";
+        try (PreparedStatement stmt = testConnection.prepareStatement(query)) {
+            stmt.setString(1, testTreeName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue("Should have node A", rs.next());
+                assertEquals("A", rs.getString("nodename"));
+                assertEquals("B", rs.getString("leftp"));
+                assertNull("A's right should be cleared", rs.getString("rightp"));
+                
+                assertTrue("Should have node B", rs.next());
+                assertEquals(21, rs.getInt("weight"));
+                assertEquals("D", rs.getString("leftp"));
+                
+                assertTrue("Should have node D", rs.next());
+                assertEquals("D", rs.getString("nodename"));
+                
+                assertFalse("C should be deleted", rs.next());
+            }
+        }
+    }
+    
     @Test
     public void testSaveTree_TransactionRollback_OnError() throws Exception {
         // This test verifies behavior when an error occurs
@@ -0,0 +1,84 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.sql.SQLException;
+
+/**
+ * Tests TreeSaverDB.saveVersion against the stub JDBC driver (no database)
+ */
+public class TreeSaverDBVersionTest {
+    private ConnectionPool pool;
+    private TreeSaverDB treeSaver;
+    private PersistentTree stored;
+
+    @Before
+    public void setUp() throws SQLException {
+        StubJdbcDriver.register();
+        pool = new ConnectionPool(StubJdbcDriver.URL_PREFIX + "version", "user", "password");
+        treeSaver = new TreeSaverDB(pool);
+        TreeNode root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 5);
+        root.right = new TreeNode("C", 3);
+        stored = PersistentTree.of(root);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testSaveVersion_WeightChange_WritesOnlyChangedRow() throws Exception {
+        // Arrange
+        PersistentTree next = stored.withWeight("C", 30);
+
+        // Act
+        treeSaver.saveVersion("t1", next, stored);
+
+        // Assert - A is copied but its row is unchanged, B is shared
+        assertEquals(1, StubJdbcDriver.executedStatements.size());
+        StubJdbcDriver.ExecutedStatement statement = StubJdbcDriver.executedStatements.get(0);
+        assertTrue("Update expected", statement.sql.startsWith("UPDATE"));
+        assertEquals("t1", statement.parameters.get(4));
+        assertEquals("C", statement.parameters.get(5));
+        assertEquals(30, statement.parameters.get(1));
+    }
+
+    @Test
+    public void testSaveVersion_Unchanged_WritesNothing() throws Exception {
+        // Act
+        treeSaver.saveVersion("t1", stored.withWeight("B", 5), stored);
+
+        // Assert
+        assertTrue(StubJdbcDriver.executedStatements.isEmpty());
+    }
+
+    @Test
+    public void testSaveVersion_NothingStored_WritesWholeTree() throws Exception {
+        // Act
+        treeSaver.saveVersion("t1", stored, null);
+
+        // Assert
+        assertEquals("Delete then one insert chunk", 2, StubJdbcDriver.executedStatements.size());
+        assertTrue(StubJdbcDriver.executedStatements.get(0).sql.startsWith("DELETE"));
+        assertEquals(ChunkedInsert.insertSql(3), StubJdbcDriver.executedStatements.get(1).sql);
+    }
+
+    @Test
+    public void testSaveVersion_UnrelatedVersion_FallsBackToFullComparison() throws Exception {
+        // Arrange - a separately built tree that differs only in C
+        TreeNode root = stored.toTreeNode();
+        root.right.weight = 30;
+        PersistentTree unrelated = PersistentTree.of(root);
+
+        // Act
+        treeSaver.saveVersion("t1", unrelated, stored);
+
+        // Assert
+        assertEquals(1, StubJdbcDriver.executedStatements.size());
+        assertEquals("C", StubJdbcDriver.executedStatements.get(0).parameters.get(5));
+    }
+}
@@ -0,0 +1,132 @@
+package structure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class TreeSnapshotTest {
+    private Path snapshotFile;
+    private Tree tree;
+    
+    @Before
+    public void setUp() throws IOException {
+        snapshotFile = Files.createTempFile("tree", ".snapshot");
+        tree = new Tree("snapshotTree", new StubTreeLoader(), new StubTreeSaver(), new MockMessageController());
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+    
+    @Test
+    public void testWriteAndOpen_AnswersQueriesFromMapping() throws IOException {
+        // Act
+        TreeSnapshot.write(tree, snapshotFile);
+        TreeSnapshot snapshot = TreeSnapshot.open(snapshotFile);
+        
+        // Assert
+        assertEquals("Snapshot should have 4 nodes", 4, snapshot.size());
+        assertEquals("Root should be A", "A", snapshot.nameOf(snapshot.getRoot()));
+        assertEquals("D's weight should be 10", 10, snapshot.weightOf(snapshot.findNode("D")));
+        assertEquals("Path length from D to C should be 3", 3, snapshot.calculatePathLength("D", "C"));
+        assertEquals("Missing node should give -1", -1, snapshot.calculatePathLength("D", "Z"));
+        assertEquals("LCA of D and B should be B", "B", snapshot.findLCA("D", "B"));
+        assertEquals("Distance from A to D should be 2", 2, snapshot.calculateDistance(snapshot.getRoot(), "D"));
+    }
+    
+    @Test
+    public void testWrite_ConcurrentWritersOfOneFile_EachUseOwnTempFile() throws Exception {
+        // Arrange
+        Path folder = Files.createTempDirectory("snapshots");
+        Path target = folder.resolve("tree.snapshot");
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    TreeSnapshot.write(tree, target);
+                }
+                return null;
+            }));
+        }
+        
+        try {
+            // Act
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+            
+            // Assert
+            assertEquals(3, TreeSnapshot.open(target).calculatePathLength("D", "C"));
+            try (Stream<Path> files = Files.list(folder)) {
+                assertEquals("Temp files should be moved or deleted", 1, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(target);
+            Files.delete(folder);
+        }
+    }
+    
+    @Test
+    public void testToTreeNode_RestoresStructure() throws IOException {
+        // Arrange
+        TreeSnapshot.write(tree, snapshotFile);
+        
+        // Act
+        TreeNode restored = TreeSnapshot.open(snapshotFile).toTreeNode();
+        
+        // Assert
+        assertEquals("A", restored.nodeName);
+        assertEquals("B", restored.left.nodeName);
+        assertEquals("C", restored.right.nodeName);
+        assertEquals("D", restored.left.left.nodeName);
+        assertEquals(20, restored.left.weight);
+        assertNull(restored.left.right);
+    }
+    
+    @Test
+    public void testEmptyTree_WritesEmptySnapshot() throws IOException {
+        // Arrange
+        tree.root = null;
+        
+        // Act
+        TreeSnapshot.write(tree, snapshotFile);
+        TreeSnapshot snapshot = TreeSnapshot.open(snapshotFile);
+        
+        // Assert
+        assertEquals("Empty snapshot should have no nodes", 0, snapshot.size());
+        assertEquals("Path length should be -1", -1, snapshot.calculatePathLength("A", "B"));
+        assertNull("Empty snapshot should restore as null", snapshot.toTreeNode());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testOpen_WithForeignFile_ThrowsIOException() throws IOException {
+        // Arrange
+        Files.write(snapshotFile, "not a snapshot file at all, just text".getBytes("UTF-8"));
+        
+        // Act
+        TreeSnapshot.open(snapshotFile);
+    }
+}
@@ -3,6 +3,9 @@ package structure;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class TreeTest {
     private StubTreeLoader stubLoader;
@@ -186,4 +189,504 @@ public class TreeTest {
         // Assert
         assertEquals("Path length with both nodes non-existent should be -1", -1, pathLength);
     }
-}
\ No newline at end of file
+    
+    // Tests for the LCA index
+    
+    @Test
+    public void testCalculatePathLength_WithLcaIndex_ReturnsSameDistances() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        
+        // Act
+        tree.buildLcaIndex();
+        
+        // Assert
+        assertTrue("Index should be active", tree.hasLcaIndex());
+        assertEquals("Path length from A to D should be 2", 2, tree.calculatePathLength("A", "D"));
+        assertEquals("Path length from D to C should be 3", 3, tree.calculatePathLength("D", "C"));
+        assertEquals("Missing node should give -1", -1, tree.calculatePathLength("D", "Z"));
+        assertEquals("LCA of D and C should be A", "A", tree.findLCA(tree.root, "D", "C").nodeName);
+        assertEquals("LCA with one missing node returns the found node", "D", tree.findLCA(tree.root, "D", "Z").nodeName);
+        assertNull("LCA of missing nodes should be null", tree.findLCA(tree.root, "X", "Z"));
+    }
+    
+    @Test
+    public void testLcaIndex_IsDroppedWhenTreeChanges() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.buildLcaIndex();
+        
+        // Act - replace the root and reload from the loader
+        tree.setRoot(new TreeNode("X", 1));
+        boolean afterSetRoot = tree.hasLcaIndex();
+        tree.buildLcaIndex();
+        TreeNode loaded = new TreeNode("A", 10);
+        loaded.right = new TreeNode("C", 5);
+        stubLoader.setRootToReturn(loaded);
+        tree.buildTreeFromDatabase();
+        
+        // Assert
+        assertFalse("setRoot should drop the index", afterSetRoot);
+        assertFalse("Loading should drop the index", tree.hasLcaIndex());
+        assertEquals("Path should use the loaded tree", 1, tree.calculatePathLength("A", "C"));
+    }
+    
+    @Test
+    public void testLcaIndex_IgnoredAfterDirectRootAssignment() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.buildLcaIndex();
+        
+        // Act
+        tree.root = new TreeNode("X", 1);
+        tree.root.left = new TreeNode("Y", 2);
+        
+        // Assert
+        assertFalse("Index of the old root should not be used", tree.hasLcaIndex());
+        assertEquals("Path should use the new root", 1, tree.calculatePathLength("X", "Y"));
+    }
+    
+    // Tests for calculatePathLengths()
+    
+    @Test
+    public void testCalculatePathLengths_ReturnsDistancePerPair() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        List<String[]> pairs = Arrays.asList(
+                new String[] {"A", "B"},
+                new String[] {"D", "C"},
+                new String[] {"C", "C"},
+                new String[] {"A", "Z"},
+                new String[] {"B", "D"});
+        
+        // Act
+        int[] lengths = tree.calculatePathLengths(pairs);
+        tree.buildLcaIndex();
+        int[] indexedLengths = tree.calculatePathLengths(pairs);
+        
+        // Assert
+        assertArrayEquals("Path lengths should match each pair", new int[] {1, 3, 0, -1, 1}, lengths);
+        assertArrayEquals("Indexed path lengths should match", new int[] {1, 3, 0, -1, 1}, indexedLengths);
+    }
+    
+    @Test
+    public void testCalculatePathLengths_WithEmptyTree_ReturnsMinusOnes() {
+        // Act
+        int[] lengths = tree.calculatePathLengths(Arrays.asList(new String[] {"A", "B"}, new String[] {"C", "D"}));
+        
+        // Assert
+        assertArrayEquals("Empty tree should give -1 for every pair", new int[] {-1, -1}, lengths);
+    }
+    
+    // Tests for the name index and in-memory edits
+    
+    @Test
+    public void testFindNode_ReturnsNodeOnlyInsideStartingSubtree() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        
+        // Act & Assert
+        assertSame("D should be found from root", tree.root.left.left, tree.findNode(tree.root, "D"));
+        assertSame("D should be found from B", tree.root.left.left, tree.findNode(tree.root.left, "D"));
+        assertNull("D should not be found from C", tree.findNode(tree.root.right, "D"));
+        assertEquals("Distance from B to D should be 1", 1, tree.calculateDistance(tree.root.left, "D", 0));
+        assertEquals("Distance from C to D should be -1", -1, tree.calculateDistance(tree.root.right, "D", 0));
+    }
+    
+    @Test
+    public void testSetChild_UpdatesPathLengths() {
+        // Arrange
+        tree.setRoot(new TreeNode("A", 10));
+        tree.setLeftChild("A", new TreeNode("B", 20));
+        tree.setRightChild("A", new TreeNode("C", 5));
+        assertEquals("Path length from B to C should be 2", 2, tree.calculatePathLength("B", "C"));
+        
+        // Act - grow C and replace B
+        boolean added = tree.setLeftChild("C", new TreeNode("D", 1));
+        tree.setLeftChild("A", new TreeNode("E", 3));
+        boolean missingParent = tree.setRightChild("Z", new TreeNode("F", 1));
+        
+        // Assert
+        assertTrue("Adding under C should succeed", added);
+        assertFalse("Adding under missing node should fail", missingParent);
+        assertEquals("Path length from D to E should be 3", 3, tree.calculatePathLength("D", "E"));
+        assertEquals("Replaced node B should not be found", -1, tree.calculatePathLength("B", "D"));
+    }
+    
+    @Test
+    public void testCalculatePathLength_AfterDirectFieldEdits_StaysCorrect() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.left.left = new TreeNode("D", 10);
+        assertEquals("Path length from A to D should be 2", 2, tree.calculatePathLength("A", "D"));
+        
+        // Act - move D under a new node C directly on the fields
+        TreeNode d = tree.root.left.left;
+        tree.root.left.left = null;
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.right.right = d;
+        
+        // Assert
+        assertEquals("Path length from B to D should follow the new links", 3, tree.calculatePathLength("B", "D"));
+        assertEquals("Path length from C to D should be 1", 1, tree.calculatePathLength("C", "D"));
+    }
+    
+    // Tests for deep (skewed) trees
+    
+    @Test
+    public void testQueries_OnDeepSkewedTree_DoNotOverflowStack() {
+        // Arrange - right leaning chain with 100000 levels
+        tree.root = new TreeNode("N0", 0);
+        TreeNode current = tree.root;
+        for (int i = 1; i < 100000; i++) {
+            current.right = new TreeNode("N" + i, i);
+            current = current.right;
+        }
+        TreeNode second = tree.root.right;
+        
+        // Act & Assert
+        assertEquals("Path length along the chain", 99999, tree.calculatePathLength("N0", "N99999"));
+        assertSame("findNode from a non-root node", current, tree.findNode(second, "N99999"));
+        assertNull("findNode of a missing name", tree.findNode(second, "N0"));
+        assertEquals("LCA from a non-root node", "N10", tree.findLCA(second, "N10", "N99999").nodeName);
+        assertEquals("Distance from a non-root node", 99998, tree.calculateDistance(second, "N99999", 0));
+        assertEquals("Distance of a node above the start", -1, tree.calculateDistance(second, "N0", 0));
+    }
+    
+    // Tests for aggregate queries
+    
+    @Test
+    public void testAggregates_OnSampleTree_ReturnExpectedValues() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        
+        // Act & Assert
+        assertEquals("Size should be 4", 4, tree.size());
+        assertEquals("Height should be 2", 2, tree.height());
+        assertEquals("Total weight should be 45", 45, tree.totalWeight());
+        assertEquals("Max weight should be 20", 20, tree.aggregate().getMaxWeight());
+        assertEquals("Subtree of B weighs 30", 30, tree.subtreeWeightSum("B"));
+        assertEquals("Subtree of B has height 1", 1, tree.aggregateSubtree("B").getHeight());
+        assertEquals("Missing node should return -1", -1, tree.subtreeWeightSum("X"));
+    }
+    
+    @Test
+    public void testAggregates_OnEmptyTree_ReturnEmptyValues() {
+        // Act & Assert
+        assertEquals("Empty tree has no nodes", 0, tree.size());
+        assertEquals("Empty tree has height -1", -1, tree.height());
+        assertEquals("Empty tree has no weight", 0, tree.totalWeight());
+        assertNull("No subtree in an empty tree", tree.aggregateSubtree("A"));
+    }
+    
+    // Tests for weighted path queries
+    
+    @Test
+    public void testWeightedPathQueries_OnSampleTree_UseNodeWeights() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        
+        // Act & Assert
+        assertEquals("D-B-A-C weighs 45", 45, tree.calculateWeightedPathLength("D", "C"));
+        assertEquals("Max on D..C is 20", 20, tree.findPathMaxWeight("D", "C"));
+        assertEquals("Min on D..C is 5", 5, tree.findPathMinWeight("C", "D"));
+        assertEquals("Node with itself", 20, tree.calculateWeightedPathLength("B", "B"));
+        assertEquals("Missing node", Tree.NO_PATH, tree.calculateWeightedPathLength("A", "X"));
+    }
+    
+    @Test
+    public void testWeightedPathQueries_AfterSetChild_SeeNewLinks() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        assertEquals(30, tree.calculateWeightedPathLength("A", "B"));
+        
+        // Act
+        tree.setRightChild("B", new TreeNode("E", 100));
+        
+        // Assert
+        assertEquals("New node should be on the path", 130, tree.calculateWeightedPathLength("A", "E"));
+        assertEquals(100, tree.findPathMaxWeight("E", "A"));
+    }
+    
+    @Test
+    public void testWeightedPathQueries_ThenDirectEdit_PathLengthSeesNewLinks() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        assertEquals(30, tree.calculateWeightedPathLength("A", "B"));
+        
+        // Act
+        tree.root.right = new TreeNode("C", 5);
+        
+        // Assert
+        assertFalse("Weighted query should not build the LCA index", tree.hasLcaIndex());
+        assertEquals("New node should be reachable", 1, tree.calculatePathLength("A", "C"));
+        assertEquals("LCA of B and C is the root", "A", tree.findLCA(tree.root, "B", "C").nodeName);
+    }
+    
+    @Test
+    public void testWeightedPathQueries_ThenDirectWeightEdit_SeeNewWeight() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        assertEquals(30, tree.calculateWeightedPathLength("A", "B"));
+    
+        // Act
+        tree.root.left.weight = 1;
+    
+        // Assert
+        assertEquals("Sum should use the edited weight", 11, tree.calculateWeightedPathLength("A", "B"));
+        assertEquals("Max should use the edited weight", 10, tree.findPathMaxWeight("A", "B"));
+        assertEquals("Min should use the edited weight", 1, tree.findPathMinWeight("A", "B"));
+    }
+    
+    @Test
+    public void testWeightedPathQueries_ThenDirectChildEdit_SeeNewChild() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.buildLcaIndex();
+        assertEquals(30, tree.calculateWeightedPathLength("A", "B"));
+    
+        // Act
+        tree.root.left.left = new TreeNode("C", 5);
+        tree.root.right = tree.root.left;
+        tree.root.left = null;
+    
+        // Assert
+        assertEquals("Added child should be found", 35, tree.calculateWeightedPathLength("A", "C"));
+        assertEquals("Moved child should still be found", 30, tree.calculateWeightedPathLength("A", "B"));
+        assertFalse("Stale LCA index should be dropped", tree.hasLcaIndex());
+    }
+    
+    @Test
+    public void testWeightedPathQueries_UnknownNode_ReturnNoPath() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+    
+        // Act
+        long result = tree.calculateWeightedPathLength("A", "Z");
+    
+        // Assert
+        assertEquals("Missing node should give NO_PATH", Tree.NO_PATH, result);
+        assertEquals("Index should still answer", 30, tree.calculateWeightedPathLength("A", "B"));
+    }
+    
+    @Test
+    public void testWeightedPathQueries_OnEmptyTree_ReturnNoPath() {
+        assertEquals(Tree.NO_PATH, tree.calculateWeightedPathLength("A", "B"));
+        assertEquals(Tree.NO_PATH, tree.findPathMaxWeight("A", "B"));
+        assertEquals(Tree.NO_PATH, tree.findPathMinWeight("A", "B"));
+    }
+    
+    // Tests for updateWeight()
+    
+    @Test
+    public void testUpdateWeight_ChangesWeightedQueriesAndSavedTree() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.root.right = new TreeNode("C", 5);
+        tree.root.left.left = new TreeNode("D", 10);
+        assertEquals(45, tree.calculateWeightedPathLength("D", "C"));
+        
+        // Act
+        boolean updated = tree.updateWeight("B", 1);
+        tree.saveTreeInDatabase("testTree");
+        
+        // Assert
+        assertTrue("Node B should be found", updated);
+        assertEquals("Path sum should use the new weight", 26, tree.calculateWeightedPathLength("D", "C"));
+        assertEquals("Max should drop to D's 10", 10, tree.findPathMaxWeight("D", "C"));
+        assertEquals("Min should be the new weight", 1, tree.findPathMinWeight("D", "A"));
+        assertEquals("Saved tree should carry the new weight", 1, stubSaver.getSavedRoot().left.weight);
+    }
+    
+    @Test
+    public void testUpdateWeight_MissingNode_ReturnsFalse() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        
+        // Act & Assert
+        assertFalse("Missing node should not be updated", tree.updateWeight("X", 1));
+        assertFalse("Empty tree has nothing to update", new Tree("empty", stubLoader, stubSaver, mockMessageController).updateWeight("A", 1));
+    }
+    
+    @Test
+    public void testUpdateWeight_ThenSetChild_RebuildsFromCurrentWeights() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.updateWeight("B", 30);
+        
+        // Act
+        tree.setRightChild("A", new TreeNode("C", 5));
+        
+        // Assert
+        assertEquals("B-A-C with the updated weight", 45, tree.calculateWeightedPathLength("B", "C"));
+    }
+    
+    @Test
+    public void testUpdateWeight_ThenDirectEdit_PathLengthSeesNewLinks() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.updateWeight("B", 3);
+        
+        // Act
+        tree.root.left.left = new TreeNode("D", 10);
+        
+        // Assert
+        assertFalse("updateWeight should not build the LCA index", tree.hasLcaIndex());
+        assertEquals("New node should be reachable", 2, tree.calculatePathLength("A", "D"));
+        assertEquals("B", tree.findLCA(tree.root, "B", "D").nodeName);
+    }
+    
+    @Test
+    public void testUpdateWeight_ThenDirectEdits_WeightedQueriesSeeThem() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.updateWeight("B", 3);
+    
+        // Act
+        tree.root.left.left = new TreeNode("D", 10);
+        tree.root.weight = 1;
+    
+        // Assert
+        assertEquals("Attached node should be found", 14, tree.calculateWeightedPathLength("A", "D"));
+        assertEquals("Direct weight edit should be seen", 4, tree.calculateWeightedPathLength("A", "B"));
+        assertEquals("Max should use the live weights", 10, tree.findPathMaxWeight("A", "D"));
+    }
+    
+    @Test
+    public void testUpdateWeight_AfterDirectChildEdit_UpdatesAttachedNode() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        tree.updateWeight("B", 3);
+        tree.root.right = new TreeNode("C", 5);
+    
+        // Act
+        boolean updated = tree.updateWeight("C", 7);
+    
+        // Assert
+        assertTrue("Attached node should be updated", updated);
+        assertEquals("C's weight should change", 7, tree.root.right.weight);
+        assertEquals("Path should use both updates", 20, tree.calculateWeightedPathLength("B", "C"));
+    }
+    
+    // Tests for the async database methods
+    
+    @Test
+    public void testBuildTreeFromDatabaseAsync_SetsRootWhenDone() throws Exception {
+        // Arrange
+        TreeNode expectedRoot = new TreeNode("A", 10);
+        stubLoader.setRootToReturn(expectedRoot);
+        tree.setAsyncExecutor(Runnable::run);
+        
+        // Act
+        tree.buildTreeFromDatabaseAsync().get();
+        
+        // Assert
+        assertSame("Root should be the loaded node", expectedRoot, tree.root);
+        assertFalse("Warning should not be sent", mockMessageController.wasSendWarningCalled());
+    }
+    
+    @Test
+    public void testBuildTreeFromDatabaseAsync_WhenLoaderFails_SendsWarning() {
+        // Arrange
+        stubLoader.setExceptionToThrow(new Exception("Database error"));
+        tree.setAsyncExecutor(Runnable::run);
+        
+        // Act
+        boolean failed = tree.buildTreeFromDatabaseAsync().isCompletedExceptionally();
+        
+        // Assert
+        assertTrue("Future should fail", failed);
+        assertTrue("Warning should be sent", mockMessageController.wasSendWarningCalled());
+        assertEquals("Failed to build tree from database", mockMessageController.getLastWarningMessage());
+    }
+    
+    @Test
+    public void testSaveTreeInDatabaseAsync_SavesCurrentTree() throws Exception {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        tree.setAsyncExecutor(Runnable::run);
+        
+        // Act
+        tree.saveTreeInDatabaseAsync("newName").get();
+        
+        // Assert
+        assertEquals("newName", stubSaver.getLastSavedTreeName());
+        assertEquals("A", stubSaver.getSavedRoot().nodeName);
+    }
+    
+    @Test
+    public void testCalculatePathLength_WithMetrics_RecordsQueryAndEvent() {
+        // Arrange
+        List<String> events = new ArrayList<>();
+        TreeMetrics metrics = new TreeMetrics(events::add);
+        tree.setMetrics(metrics);
+        tree.root = new TreeNode("A", 10);
+        tree.root.left = new TreeNode("B", 20);
+        
+        // Act
+        int found = tree.calculatePathLength("A", "B");
+        int missing = tree.calculatePathLength("A", "X");
+        
+        // Assert
+        assertEquals(1, found);
+        assertEquals(-1, missing);
+        assertEquals("Both queries should be timed", 2, metrics.getCount(ITreeMetrics.Operation.QUERY));
+        assertEquals(Arrays.asList("One or both of the nodes were not found."), events);
+    }
+    
+    @Test
+    public void testSaveTreeInDatabase_WithoutMetrics_SkipsExistenceCheck() {
+        // Arrange
+        tree.root = new TreeNode("A", 10);
+        
+        // Act
+        tree.saveTreeInDatabase("newName");
+        
+        // Assert
+        assertEquals("Existence is only checked for the log message", 0, stubLoader.getTreeExistsCallCount());
+        assertEquals("newName", stubSaver.getLastSavedTreeName());
+    }
+    
+    @Test
+    public void testSaveTreeInDatabase_WithMetrics_RecordsSaveAndEvent() {
+        // Arrange
+        List<String> events = new ArrayList<>();
+        TreeMetrics metrics = new TreeMetrics(events::add);
+        tree.setMetrics(metrics);
+        stubLoader.setTreeExists(true);
+        
+        // Act
+        tree.saveTreeInDatabase("newName");
+        
+        // Assert
+        assertEquals(1, metrics.getCount(ITreeMetrics.Operation.SAVE));
+        assertEquals(Arrays.asList("Updated existing tree: newName"), events);
+    }
+}
@@ -0,0 +1,88 @@
+package structure;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TreeWalkerTest {
+    private TreeNode root;
+    private TreeWalker walker;
+    
+    @Before
+    public void setUp() {
+        root = new TreeNode("A", 10);
+        root.left = new TreeNode("B", 20);
+        root.right = new TreeNode("C", 5);
+        root.left.left = new TreeNode("D", 10);
+        root.left.right = new TreeNode("E", 1);
+        walker = new TreeWalker();
+    }
+    
+    private String preorder(TreeNode start) {
+        StringBuilder order = new StringBuilder();
+        walker.startPreorder(start);
+        TreeNode node;
+        while ((node = walker.nextPreorder()) != null) {
+            order.append(node.nodeName).append(walker.depth());
+        }
+        return order.toString();
+    }
+    
+    private String inorder(TreeNode start) {
+        StringBuilder order = new StringBuilder();
+        walker.startInorder(start);
+        TreeNode node;
+        while ((node = walker.nextInorder()) != null) {
+            order.append(node.nodeName).append(walker.depth());
+        }
+        return order.toString();
+    }
+    
+    @Test
+    public void testPreorder_VisitsRootLeftRightWithDepth() {
+        assertEquals("A0B1D2E2C1", preorder(root));
+        assertEquals("B0D1E1", preorder(root.left));
+        assertEquals("Empty iteration for null start", "", preorder(null));
+    }
+    
+    @Test
+    public void testInorder_VisitsLeftRootRightWithDepth() {
+        assertEquals("D2B1E2A0C1", inorder(root));
+        assertEquals("Empty iteration for null start", "", inorder(null));
+    }
+    
+    @Test
+    public void testWalker_IsReusableAfterAbandonedTraversal() {
+        // Arrange - stop a traversal half way
+        walker.startPreorder(root);
+        walker.nextPreorder();
+        walker.nextPreorder();
+        
+        // Act & Assert
+        assertEquals("New traversal should start clean", "D2B1E2A0C1", inorder(root));
+        assertEquals("Preorder after inorder should start clean", "C0", preorder(root.right));
+    }
+    
+    @Test
+    public void testWalker_DeepSkewedTree_DoesNotOverflowStack() {
+        // Arrange - left leaning chain with 200000 levels
+        TreeNode deepRoot = new TreeNode("N0", 0);
+        TreeNode current = deepRoot;
+        for (int i = 1; i < 200000; i++) {
+            current.left = new TreeNode("N" + i, i);
+            current = current.left;
+        }
+        
+        // Act
+        walker.startInorder(deepRoot);
+        TreeNode first = walker.nextInorder();
+        int count = 1;
+        while (walker.nextInorder() != null) {
+            count++;
+        }
+        
+        // Assert
+        assertEquals("Deepest node comes first inorder", "N199999", first.nodeName);
+        assertEquals("All nodes should be visited", 200000, count);
+    }
+}
@@ -28,7 +28,9 @@ CREATE TABLE `tree` (
   `weight` int DEFAULT NULL,
   `leftp` varchar(10) DEFAULT NULL,
   `rightp` varchar(10) DEFAULT NULL,
-  PRIMARY KEY (`nodename`,`treeName`)
+  PRIMARY KEY (`nodename`,`treeName`),
+  KEY `idx_tree_leftp` (`leftp`,`treeName`),
+  KEY `idx_tree_rightp` (`rightp`,`treeName`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -41,6 +43,33 @@ LOCK TABLES `tree` WRITE;
 INSERT INTO `tree` VALUES ('tree1','A',10,'B','C'),('tree1','B',20,'D',NULL),('tree1','C',5,NULL,NULL),('tree1','D',10,NULL,NULL);
 /*!40000 ALTER TABLE `tree` ENABLE KEYS */;
 UNLOCK TABLES;
+--
+-- Table structure for table `tree_closure`
+-- (ancestor rows of every node, written by TreeSaverDB.setMaintainClosureTable)
+--
+
+DROP TABLE IF EXISTS `tree_closure`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `tree_closure` (
+  `treeName` varchar(10) NOT NULL,
+  `ancestor` varchar(10) NOT NULL,
+  `descendant` varchar(10) NOT NULL,
+  `depth` int NOT NULL,
+  PRIMARY KEY (`descendant`,`ancestor`,`treeName`),
+  KEY `idx_tree_closure_tree` (`treeName`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `tree_closure`
+--
+
+LOCK TABLES `tree_closure` WRITE;
+/*!40000 ALTER TABLE `tree_closure` DISABLE KEYS */;
+INSERT INTO `tree_closure` VALUES ('tree1','A','A',0),('tree1','B','B',0),('tree1','A','B',1),('tree1','D','D',0),('tree1','B','D',1),('tree1','A','D',2),('tree1','C','C',0),('tree1','A','C',1);
+/*!40000 ALTER TABLE `tree_closure` ENABLE KEYS */;
+UNLOCK TABLES;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;